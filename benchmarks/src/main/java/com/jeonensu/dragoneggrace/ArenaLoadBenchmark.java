@@ -0,0 +1,78 @@
+package com.jeonensu.dragoneggrace;
+
+import be.seeseemelk.mockbukkit.WorldMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One shared tracking tick ({@link ArenaManager#runTrackingTick()}) with many concurrent races,
+ * each on its own world with its own players and a tagged egg held by one of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArenaLoadBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int arenas;
+
+    @Param({"25"})
+    public int playersPerArena;
+
+    private BenchmarkServer server;
+    private ArenaManager manager;
+
+    @Setup
+    public void setUp() {
+        server = BenchmarkServer.start(0, true);
+        manager = server.plugin.getArenas();
+
+        for (int i = 0; i < arenas; i++) {
+            WorldMock world = server.server.addSimpleWorld("arena_world_" + i);
+            world.setTime(1000L); // 낮 (밤에는 발자국을 만들지 않음)
+            Arena arena = manager.createArena("arena" + i, List.of(world.getName()), false);
+
+            for (int j = 0; j < playersPerArena; j++) {
+                PlayerMock player = server.server.addPlayer();
+                player.teleport(new Location(world, (j % 8) * 16.5, 64, (j / 8) * 16.5));
+                if (j == 0) {
+                    ItemStack egg = new ItemStack(Material.DRAGON_EGG);
+                    manager.tagEgg(egg, arena);
+                    player.getInventory().addItem(egg);
+                }
+            }
+            arena.startGame(); // seeds the holder index with the egg holder
+        }
+        manager.runTrackingTick(); // pick-up pass of every arena
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public void trackingTick() {
+        manager.runTrackingTick();
+    }
+}
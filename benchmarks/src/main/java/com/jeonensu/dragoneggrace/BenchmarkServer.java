@@ -0,0 +1,59 @@
+package com.jeonensu.dragoneggrace;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.WorldMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mock server shared by the benchmark suites: one overworld in daytime, a number of online players
+ * spread over it, and optionally the plugin itself.
+ */
+final class BenchmarkServer {
+
+    final ServerMock server;
+    final WorldMock world;
+    final List<PlayerMock> players = new ArrayList<>();
+    DragonEggRacePlugin plugin;
+
+    private BenchmarkServer(int playerCount, boolean loadPlugin) {
+        server = MockBukkit.mock();
+        world = server.addSimpleWorld("world");
+        world.setTime(1000L); // 낮 (밤에는 발자국을 만들지 않음)
+
+        for (int i = 0; i < playerCount; i++) {
+            PlayerMock player = server.addPlayer();
+            // Players stand 16 blocks apart so they don't share footprint chunks
+            player.teleport(new Location(world, (i % 32) * 16.5, 64, (i / 32) * 16.5));
+            players.add(player);
+        }
+
+        if (loadPlugin) {
+            plugin = MockBukkit.load(DragonEggRacePlugin.class);
+        }
+    }
+
+    static BenchmarkServer start(int playerCount, boolean loadPlugin) {
+        return new BenchmarkServer(playerCount, loadPlugin);
+    }
+
+    /**
+     * Gives the egg to the first player and lets the holder index pick it up.
+     */
+    PlayerMock giveEggToFirstPlayer() {
+        PlayerMock holder = players.get(0);
+        holder.getInventory().addItem(new ItemStack(Material.DRAGON_EGG));
+        plugin.getArenas().getDefaultArena().getEggTracker().getHolderIndex().rebuild();
+        return holder;
+    }
+
+    void stop() {
+        MockBukkit.unmock();
+    }
+}
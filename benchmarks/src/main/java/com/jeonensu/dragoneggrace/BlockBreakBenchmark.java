@@ -0,0 +1,96 @@
+package com.jeonensu.dragoneggrace;
+
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.block.Block;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GameEventListener#onBlockBreak(BlockBreakEvent)} for ordinary blocks on a server with a
+ * growing number of beacon structures (10 protected blocks each), plus one break of a protected block.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockBreakBenchmark {
+
+    private static final int BLOCK_COUNT = 1024;
+
+    @Param({"0", "100", "1000"})
+    public int structures;
+
+    private BenchmarkServer server;
+    private GameEventListener listener;
+    private PlayerMock player;
+    private BlockBreakEvent[] events;
+    private BlockBreakEvent protectedEvent;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        server = BenchmarkServer.start(10, true);
+        server.plugin.getArenas().getDefaultArena().startGame();
+        listener = new GameEventListener(server.plugin);
+        player = server.players.get(0);
+
+        // Beacon structures scattered like eggs lost all over the map
+        ProtectedBlockIndex beacons = server.plugin.getArenas().getDefaultArena().getEggTracker().getBeaconBlocks();
+        SplittableRandom random = new SplittableRandom(42L);
+        for (int i = 0; i < structures; i++) {
+            int x = random.nextInt(-5000, 5000);
+            int z = random.nextInt(-5000, 5000);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    beacons.add(server.world, x + dx, 63, z + dz);
+                }
+            }
+            beacons.add(server.world, x, 64, z);
+        }
+
+        events = new BlockBreakEvent[BLOCK_COUNT];
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            Block block = server.world.getBlockAt(random.nextInt(-5000, 5000), random.nextInt(0, 128), random.nextInt(-5000, 5000));
+            events[i] = new BlockBreakEvent(block, player);
+        }
+
+        beacons.add(server.world, 0, 200, 0);
+        protectedEvent = new BlockBreakEvent(server.world.getBlockAt(0, 200, 0), player);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public boolean breakOrdinaryBlock() {
+        BlockBreakEvent event = events[next++ & (BLOCK_COUNT - 1)];
+        listener.onBlockBreak(event);
+        return event.isCancelled();
+    }
+
+    @Benchmark
+    public boolean breakProtectedBlock() {
+        protectedEvent.setCancelled(false);
+        listener.onBlockBreak(protectedEvent);
+        player.nextMessage(); // PlayerMock keeps every message; drop the warning so memory stays flat
+        return protectedEvent.isCancelled();
+    }
+}
@@ -0,0 +1,90 @@
+package com.jeonensu.dragoneggrace;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Footprint expiry, the path that used to be {@code cleanupOldFootprints()}.
+ * <p>
+ * Each invocation is one tracking pass in steady state: one footprint is added, the clock moves
+ * 20 ticks and the expiry wheel removes whatever is due. Lifetimes are chosen so the store stays
+ * at about the requested number of footprints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FootprintExpiryBenchmark {
+
+    private static final int TICKS_PER_PASS = 20;
+
+    @Param({"1000", "10000", "50000"})
+    public int footprints;
+
+    private BenchmarkServer server;
+    private FootprintStore store;
+    private FootprintExpiryWheel wheel;
+    private FootprintExpiryWheel.ExpiryHandler handler;
+    private UUID[] owners;
+    private SplittableRandom random;
+    private long lifetime;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        server = BenchmarkServer.start(0, false);
+        store = new FootprintStore();
+        wheel = new FootprintExpiryWheel();
+        handler = (slot, id) -> {
+            if (store.isCurrent(slot, id)) {
+                store.remove(slot);
+            }
+        };
+        owners = new UUID[16];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = UUID.randomUUID();
+        }
+        random = new SplittableRandom(42L);
+        lifetime = (long) footprints * TICKS_PER_PASS;
+        now = 0L;
+
+        // Pre-fill with deadlines spread over one lifetime
+        for (int i = 0; i < footprints; i++) {
+            add(now + random.nextLong(lifetime));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public int trackingPassExpiry() {
+        add(now + lifetime);
+        now += TICKS_PER_PASS;
+        return wheel.advance(now, 64, handler);
+    }
+
+    private void add(long deadline) {
+        int slot = store.add(owners[random.nextInt(owners.length)], server.world,
+                random.nextDouble(-2000, 2000), 64.1, random.nextDouble(-2000, 2000), 0f, now);
+        wheel.schedule(slot, store.getId(slot), deadline);
+    }
+}
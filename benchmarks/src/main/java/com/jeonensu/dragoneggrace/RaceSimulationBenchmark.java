@@ -0,0 +1,46 @@
+package com.jeonensu.dragoneggrace;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole 100-day race (2.4 million ticks) on the {@link RaceStateMachine}, without a server:
+ * once driven by the random model of {@link RaceSimulator}, once replayed from its recorded event log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaceSimulationBenchmark {
+
+    private RaceEventLog recorded;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        recorded = new RaceEventLog();
+        RaceSimulator.check(RaceSimulator.simulate(42L, recorded));
+    }
+
+    @Benchmark
+    public RaceSimulator.Outcome simulateGame() {
+        return RaceSimulator.simulate(seed++, null);
+    }
+
+    @Benchmark
+    public RaceSimulator.Outcome replayGame() {
+        return RaceSimulator.replay(recorded);
+    }
+}
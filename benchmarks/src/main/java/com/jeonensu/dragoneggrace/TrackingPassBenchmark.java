@@ -0,0 +1,96 @@
+package com.jeonensu.dragoneggrace;
+
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One steady-state pass of {@link DragonEggTracker#updateTracking()} and the end-of-game winner scan
+ * through {@link DragonEggTracker#hasDragonEgg(Player)}, by player and footprint count.
+ * <p>
+ * The holder stands next to their own last footprint, so a pass runs the holder index refresh,
+ * the night check, the nearby-footprint lookup, the expiry wheel and the renderer tick without
+ * spawning anything.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrackingPassBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int players;
+
+    @Param({"1000", "10000", "50000"})
+    public int footprints;
+
+    private BenchmarkServer server;
+    private DragonEggTracker tracker;
+
+    @Setup
+    public void setUp() {
+        server = BenchmarkServer.start(players, true);
+        tracker = server.plugin.getArenas().getDefaultArena().getEggTracker();
+        PlayerMock holder = server.giveEggToFirstPlayer();
+        tracker.updateTracking(); // pick-up pass: clears beacons and records the holder
+
+        FootprintStore store = tracker.getFootprints();
+        Location at = holder.getLocation();
+        store.add(holder.getUniqueId(), server.world, at.getX(), at.getY() + 0.1, at.getZ(), 0f, 0L);
+
+        // The rest is spread over a 4000 x 4000 area around spawn, owned by random players
+        SplittableRandom random = new SplittableRandom(42L);
+        for (int i = 1; i < footprints; i++) {
+            PlayerMock owner = server.players.get(random.nextInt(players));
+            store.add(owner.getUniqueId(), server.world,
+                    random.nextDouble(-2000, 2000), 64.1, random.nextDouble(-2000, 2000),
+                    (float) random.nextDouble(-180, 180), 0L);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public void updateTracking() {
+        tracker.updateTracking();
+    }
+
+    @Benchmark
+    public void findWinner(Blackhole blackhole) {
+        for (Player player : server.server.getOnlinePlayers()) {
+            if (tracker.hasDragonEgg(player)) {
+                blackhole.consume(player);
+                return;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean nearbyFootprintLookup() {
+        Player holder = server.players.get(0);
+        Location at = holder.getLocation();
+        return tracker.getFootprints().isLastFootprintWithin(holder.getUniqueId(), at.getWorld(),
+                at.getX(), at.getY(), at.getZ(), 5.0);
+    }
+}
@@ -0,0 +1,578 @@
+package com.jeonensu.dragoneggrace;
+
+import net.md_5.bungee.api.ChatColor;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.entity.EnderDragon;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+
+/**
+ * One independent race: its own egg, tracker, game clock, protected beacon blocks and saved state.
+ * <p>
+ * A named arena owns the worlds listed for it in the config, and only counts eggs tagged with its
+ * name. The default arena covers every world no named arena claims and counts untagged eggs, which
+ * is exactly the single race the plugin ran before arenas existed.
+ * <p>
+ * The rules of the race live in a {@link RaceStateMachine}; the arena turns its transitions into
+ * messages, sounds and world changes. With {@code debug.record-race-events} the machine's inputs are
+ * saved per game under {@code state/.../events} for replay in the offline simulator.
+ */
+public class Arena {
+
+    private static final int GAME_DURATION = GameClock.TICKS_PER_DAY * 100; // 100일 (틱 단위)
+
+    private final DragonEggRacePlugin plugin;
+    private final ArenaManager manager;
+    private final String name;
+    // Names of the worlds owned by this arena; empty for the default arena
+    private final List<String> worldNames;
+    // The owned worlds that are loaded, bound by the arena manager
+    private final Set<UUID> worldIds = new CopyOnWriteArraySet<>();
+    private final boolean autoStart;
+    private final File stateDirectory;
+    private final boolean recordEvents;
+
+    private final GameStateJournal journal; // 재시작 후 게임을 이어가기 위한 상태 기록
+    private final DragonEggTracker eggTracker;
+    private final RaceStateMachine raceState; // 보유자 변경, 밤, 날짜, 게임 종료 규칙
+    private final GameClock gameClock; // 서버 틱 기준 게임 시계
+    private final HoldLeaderboard leaderboard = new HoldLeaderboard(); // 플레이어별 알 보유 시간, 최장 보유, 뺏은 횟수
+    private final LeaderboardSidebar sidebar; // 순위표 사이드바
+
+    private boolean gameActive = false;
+    private UUID gameId; // 현재 게임 식별자
+    private volatile boolean ready = false; // 저장된 게임을 복구했는지 (청크 로드는 지역 스레드에서도 확인)
+    private TaskScheduler.Task checkpointTask; // 경과 시간 주기적 저장
+
+    Arena(DragonEggRacePlugin plugin, ArenaManager manager, String name, List<String> worldNames, boolean autoStart) {
+        this.plugin = plugin;
+        this.manager = manager;
+        this.name = name;
+        this.worldNames = List.copyOf(worldNames);
+        this.autoStart = autoStart;
+
+        // 기본 아레나는 기존 위치(state/)를 그대로 사용
+        File stateDirectory = new File(plugin.getDataFolder(), "state");
+        if (!isDefault()) {
+            stateDirectory = new File(stateDirectory, "arenas/" + name);
+        }
+        this.stateDirectory = stateDirectory;
+        this.recordEvents = plugin.getConfig().getBoolean("debug.record-race-events", false);
+        this.journal = new GameStateJournal(plugin, stateDirectory, name);
+        this.eggTracker = new DragonEggTracker(plugin, this);
+        this.raceState = new RaceStateMachine(GAME_DURATION, new RaceEvents());
+        this.gameClock = new GameClock(plugin, raceState);
+        this.sidebar = new LeaderboardSidebar(plugin, this);
+    }
+
+    /**
+     * Turns the transitions of the race state machine into effects on the server.
+     */
+    private class RaceEvents implements RaceStateMachine.Listener {
+        @Override
+        public void onEggPickedUp(UUID playerId) {
+            eggTracker.onEggPickedUp(playerId);
+        }
+
+        @Override
+        public void onEggLost(UUID playerId) {
+            eggTracker.onEggLost(playerId);
+        }
+
+        @Override
+        public void onHolderChanged(UUID previousId, UUID holderId) {
+            journal.holderChanged(holderId);
+            Player holder = holderId != null ? Bukkit.getPlayer(holderId) : null;
+            EggLocator.Position position = eggTracker.getLocator().getPosition();
+            String holderName = holder != null ? holder.getName()
+                    : holderId != null && holderId.equals(position.playerId()) ? position.playerName() : null;
+            leaderboard.onHolderChanged(holderId, holderName, gameClock.getElapsedTicks());
+            saveHoldStats(previousId);
+            saveHoldStats(holderId);
+        }
+
+        @Override
+        public void onNightStarted() {
+            eggTracker.onNightStarted();
+        }
+
+        @Override
+        public void onDayElapsed(int daysLeft) {
+            Arena.this.onDayElapsed(daysLeft);
+        }
+
+        @Override
+        public void onGameEnded(UUID holderId) {
+            // 마지막 보유 시간까지 순위표에 반영
+            leaderboard.update(holderId, null, raceState.getElapsedTicks());
+            saveHoldStats(holderId);
+            sidebar.update(leaderboard);
+            endGame();
+        }
+    }
+
+    /**
+     * Recovers the saved game of this arena and resumes it, or starts a new one if configured to.
+     */
+    void enable() {
+        journal.recover().thenAccept(state -> plugin.getTaskScheduler().runGlobal(() -> {
+            if (state.isActive()) {
+                resumeGame(state);
+            } else if (autoStart) {
+                startGame();
+            }
+            ready = true;
+            // 복구 전에 불러온 청크의 이전 신호기/발자국 정리
+            plugin.getOrphanCleaner().onArenaReady(this);
+        }));
+    }
+
+    /**
+     * Saves the elapsed time and stops everything. Beacons stay, they are restored on the next start.
+     */
+    void disable() {
+        if (checkpointTask != null) {
+            checkpointTask.cancel();
+        }
+        // 마지막 경과 시간과 보유 시간을 기록해 두고 시계 정지
+        if (gameActive) {
+            checkpoint();
+        }
+        sidebar.hide();
+        saveEventLog();
+        gameClock.stop();
+        eggTracker.cleanup();
+        journal.close(); // 남은 기록을 모두 디스크에 쓰고 닫음
+    }
+
+    public void startGame() {
+        if (gameActive) {
+            return;
+        }
+
+        gameActive = true;
+        gameId = UUID.randomUUID();
+        journal.gameStarted(gameId);
+        startRecording();
+        raceState.start(0L, null);
+        leaderboard.clear();
+        eggTracker.getLocator().clear();
+
+        // 트래킹 시작
+        eggTracker.startTracking();
+
+        // 아레나의 모든 플레이어에게 게임 시작 알림
+        broadcast("game-start");
+
+        // 게임 타이머 시작 (다음 날짜가 바뀌는 시점에만 작업이 실행됨)
+        gameClock.start(0L);
+        startCheckpoints();
+    }
+
+    // 서버 재시작 전 진행 중이던 게임을 이어서 진행
+    private void resumeGame(GameStateJournal.State state) {
+        if (gameActive) {
+            return;
+        }
+
+        gameActive = true;
+        gameId = state.getGameId();
+        startRecording();
+        // 재시작 전 보유자는 첫 확인에서 여전히 알을 가지고 있으면 새로 주운 것으로 알리지 않음
+        raceState.start(state.getElapsedTicks(), state.getHolderId());
+        leaderboard.restore(state.getHoldStats(), state.getHolderId(), state.getElapsedTicks());
+        // 재시작 전 마지막 위치 (접속 중이 아닌 보유자는 오프라인 보유자로 간주)
+        eggTracker.getLocator().restore(state.getEggPosition());
+
+        eggTracker.restore(state);
+        eggTracker.startTracking();
+        gameClock.start(state.getElapsedTicks());
+        startCheckpoints();
+
+        broadcast("game-resumed", "days", String.valueOf(getRemainingDays()));
+    }
+
+    // 1분마다 경과 시간을 기록 (비정상 종료 시 최대 1분만 손실)
+    private void startCheckpoints() {
+        if (checkpointTask != null) {
+            checkpointTask.cancel();
+        }
+        checkpointTask = plugin.getTaskScheduler().runGlobalTimer(this::checkpoint, 1200L, 1200L);
+    }
+
+    // 경과 시간과 현재 보유자의 보유 시간 기록
+    private void checkpoint() {
+        long elapsed = gameClock.getElapsedTicks();
+        journal.clock(elapsed);
+        leaderboard.update(raceState.getHolderId(), null, elapsed);
+        saveHoldStats(raceState.getHolderId());
+    }
+
+    private void saveHoldStats(UUID playerId) {
+        HoldLeaderboard.Entry entry = playerId != null ? leaderboard.get(playerId) : null;
+        if (entry != null) {
+            journal.holdStats(entry);
+        }
+    }
+
+    /**
+     * Adds the time since the last pass to the holder's statistics and refreshes the sidebar.
+     * Called by the tracker on every full tracking pass, after the holder was observed.
+     *
+     * @param holder The current holder, or null.
+     */
+    void updateLeaderboard(Player holder) {
+        leaderboard.update(raceState.getHolderId(), holder != null ? holder.getName() : null, gameClock.getElapsedTicks());
+        sidebar.update(leaderboard);
+    }
+
+    private void stopCheckpoints() {
+        if (checkpointTask != null) {
+            checkpointTask.cancel();
+            checkpointTask = null;
+        }
+    }
+
+    // 게임 시계가 하루(24000틱)가 지날 때마다 호출 - 남은 시간 알림
+    private void onDayElapsed(int daysLeft) {
+        journal.dayElapsed(100 - daysLeft, gameClock.getElapsedTicks());
+
+        if (daysLeft > 0) {
+            broadcast("day-remaining", "days", String.valueOf(daysLeft));
+
+            // 마지막 10일일 때 경고
+            if (daysLeft <= 10) {
+                broadcast("day-warning", "days", String.valueOf(daysLeft));
+                playSound(Sound.BLOCK_NOTE_BLOCK_BELL);
+            }
+
+            // 마지막 1일
+            if (daysLeft == 1) {
+                broadcast("day-final");
+                playSound(Sound.ENTITY_WITHER_SPAWN);
+            }
+        }
+    }
+
+    public void stopGame() {
+        if (!gameActive) {
+            return;
+        }
+
+        gameActive = false;
+        raceState.stop(gameClock.getElapsedTicks());
+        gameClock.stop();
+        stopCheckpoints();
+        // 트래킹 중지 및 정리
+        eggTracker.stopTracking();
+        journal.gameEnded();
+        saveEventLog();
+
+        broadcast("game-stopped");
+    }
+
+    private void endGame() {
+        gameActive = false;
+        gameClock.stop();
+        stopCheckpoints();
+        // 드래곤 알을 가진 플레이어 (접속을 종료한 보유자 포함)
+        EggLocator.Position position = eggTracker.getLocator().getPosition();
+        UUID winnerId = eggTracker.getLocator().getHolderId();
+        // 게임 종료 시 트래킹 중지 및 정리
+        eggTracker.stopTracking();
+        journal.gameEnded();
+        saveEventLog();
+
+        Player winner = winnerId != null ? Bukkit.getPlayer(winnerId) : null;
+        if (winner == null && winnerId != null) {
+            // 오프라인 우승자: 발표만 함
+            broadcast("end-winner", "player", position.playerName() != null ? position.playerName() : winnerId.toString());
+            playSound(Sound.UI_TOAST_CHALLENGE_COMPLETE);
+        } else if (winner != null) {
+            String winnerName = winner.getName();
+
+            // 승리자 발표
+            broadcast("end-winner", "player", winnerName);
+
+            // 승리 사운드
+            playSound(Sound.UI_TOAST_CHALLENGE_COMPLETE);
+
+            // 드래곤 소환과 효과는 승리자가 있는 지역의 스레드에서 실행 (Bukkit 서버에서는 바로 실행)
+            final Player finalPlayer = winner; // final로 복사
+            plugin.getTaskScheduler().executeOn(finalPlayer, () -> {
+                // 승리자 위치에 엔더 드래곤 소환
+                spawnDragonAtPlayer(finalPlayer);
+
+                // 승리자에게 특별한 효과
+                finalPlayer.sendTitle(
+                        ChatColor.GOLD + "🏆 승리! 🏆",
+                        ChatColor.YELLOW + "드래곤 알 경주 우승자!",
+                        10, 70, 20
+                );
+            });
+
+            // 승리자에게 보상 효과
+            plugin.getTaskScheduler().runOnLater(finalPlayer, () -> {
+                finalPlayer.getWorld().strikeLightningEffect(finalPlayer.getLocation());
+            }, 20L);
+        } else {
+            broadcast("end-draw");
+        }
+    }
+
+    // debug.record-race-events: 이번 게임(또는 재개된 구간)의 상태 기계 입력을 기록
+    private void startRecording() {
+        raceState.setRecorder(recordEvents ? new RaceEventLog() : null);
+    }
+
+    // 기록한 입력을 state/.../events/<게임 id>-<시각>.events 로 저장 (게임이 끝나거나 서버가 꺼질 때)
+    private void saveEventLog() {
+        RaceEventLog log = raceState.getRecorder();
+        raceState.setRecorder(null);
+        if (log == null || log.size() == 0 || gameId == null) {
+            return;
+        }
+        File target = new File(stateDirectory, "events/" + gameId + "-" + System.currentTimeMillis() + ".events");
+        try {
+            plugin.getIo().execute(() -> {
+                target.getParentFile().mkdirs();
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(target)))) {
+                    log.write(out);
+                } catch (IOException e) {
+                    plugin.getLogger().log(Level.WARNING, "게임 이벤트 기록을 저장하지 못했습니다: " + target, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().warning("파일 작업 대기열이 가득 차서 게임 이벤트 기록을 저장하지 못했습니다: " + target);
+        }
+    }
+
+    private void spawnDragonAtPlayer(Player player) {
+        World world = player.getWorld();
+
+        // 플레이어 위 15블록에 드래곤 소환
+        EnderDragon dragon = (EnderDragon) world.spawnEntity(
+                player.getLocation().add(0, 15, 0),
+                EntityType.ENDER_DRAGON
+        );
+
+        // 드래곤 이름 설정
+        dragon.setCustomName(ChatColor.GOLD + player.getName() + "의 승리 드래곤");
+        dragon.setCustomNameVisible(true);
+
+        // 드래곤 소환 효과
+        world.playSound(player.getLocation(), Sound.ENTITY_ENDER_DRAGON_GROWL, 2.0f, 1.0f);
+        world.playSound(player.getLocation(), Sound.ENTITY_LIGHTNING_BOLT_THUNDER, 1.0f, 1.0f);
+
+        // 파티클 효과
+        world.spawnParticle(
+                Particle.DRAGON_BREATH,
+                player.getLocation().add(0, 15, 0),
+                100, 3, 3, 3, 0.1
+        );
+
+        world.spawnParticle(
+                Particle.END_ROD,
+                player.getLocation().add(0, 10, 0),
+                50, 2, 2, 2, 0.1
+        );
+
+        // 번개 효과
+        world.strikeLightningEffect(player.getLocation());
+    }
+
+    private void playSound(Sound sound) {
+        for (Player player : getPlayers()) {
+            player.playSound(player.getLocation(), sound, 1.0f, 1.0f);
+        }
+    }
+
+    /**
+     * Queues a message for the players of this arena.
+     *
+     * @param key The message key in the locale files.
+     * @param placeholders Alternating placeholder names and values.
+     */
+    public void broadcast(String key, String... placeholders) {
+        plugin.getMessages().broadcast(this, key, placeholders);
+    }
+
+    /**
+     * Checks whether an item is this arena's Dragon Egg.
+     *
+     * @param item The item to check, may be null.
+     * @return True for a Dragon Egg tagged with this arena (or untagged, for the default arena).
+     */
+    public boolean isEgg(ItemStack item) {
+        if (item == null || item.getType() != Material.DRAGON_EGG) {
+            return false;
+        }
+        String tag = manager.getEggTag(item);
+        return isDefault() ? tag == null : name.equals(tag);
+    }
+
+    /**
+     * Checks whether a player is currently in this arena.
+     */
+    public boolean contains(Player player) {
+        return manager.arenaOf(player.getWorld()) == this;
+    }
+
+    /**
+     * Returns the online players currently in this arena.
+     */
+    public Collection<? extends Player> getPlayers() {
+        if (isDefault()) {
+            // 다른 아레나가 차지하지 않은 모든 월드
+            if (manager.getArenas().size() == 1) {
+                return Bukkit.getOnlinePlayers();
+            }
+            List<Player> players = new ArrayList<>();
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                if (contains(player)) {
+                    players.add(player);
+                }
+            }
+            return players;
+        }
+
+        List<Player> players = new ArrayList<>();
+        for (UUID worldId : worldIds) {
+            World world = Bukkit.getWorld(worldId);
+            if (world != null) {
+                players.addAll(world.getPlayers());
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Returns the world whose time decides day and night (footprints vanish at night).
+     */
+    public World getDayWorld() {
+        for (String worldName : worldNames) {
+            World world = Bukkit.getWorld(worldName);
+            if (world != null) {
+                return world;
+            }
+        }
+        return Bukkit.getWorlds().get(0); // 기본 아레나와 월드가 모두 언로드된 아레나는 메인 월드 기준
+    }
+
+    public boolean isDefault() {
+        return worldNames.isEmpty();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getWorldNames() {
+        return worldNames;
+    }
+
+    /**
+     * Returns the owned worlds that are loaded.
+     */
+    public Set<UUID> getWorldIds() {
+        return Collections.unmodifiableSet(worldIds);
+    }
+
+    void bindWorld(UUID worldId) {
+        worldIds.add(worldId);
+    }
+
+    void unbindWorld(UUID worldId) {
+        worldIds.remove(worldId);
+    }
+
+    public boolean isGameActive() {
+        return gameActive;
+    }
+
+    /**
+     * Returns whether the saved game has been recovered (or there was none), so the arena's beacon
+     * blocks and game id are final for the chunks loaded so far.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getRemainingDays() {
+        if (!gameActive) return 0;
+        return gameClock.getRemainingDays();
+    }
+
+    public int getRemainingTicks() {
+        if (!gameActive) return 0;
+        return (int) gameClock.getRemainingTicks();
+    }
+
+    public String getGameStatus() {
+        if (!gameActive) {
+            return ChatColor.RED + "[" + name + "] 게임이 진행 중이 아닙니다.";
+        }
+
+        int days = getRemainingDays();
+        int hours = (getRemainingTicks() % GameClock.TICKS_PER_DAY) / 1000;
+
+        return ChatColor.YELLOW + "[" + name + "] 게임 진행 중 - 남은 시간: " + days + "일 " + hours + "시간";
+    }
+
+    /**
+     * Returns the rules of this race. The tracker feeds it holder and night observations.
+     */
+    public RaceStateMachine getRaceState() {
+        return raceState;
+    }
+
+    /**
+     * Returns the game time that has passed, or 0 when no game is running.
+     */
+    public long getElapsedTicks() {
+        return gameClock.getElapsedTicks();
+    }
+
+    /**
+     * Returns the per-player egg statistics of the current (or last) game.
+     */
+    public HoldLeaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    public LeaderboardSidebar getSidebar() {
+        return sidebar;
+    }
+
+    public DragonEggTracker getEggTracker() {
+        return eggTracker;
+    }
+
+    public GameStateJournal getJournal() {
+        return journal;
+    }
+
+    public UUID getGameId() {
+        return gameId;
+    }
+}
@@ -0,0 +1,297 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns all arenas, routes worlds to them and drives their tracking.
+ * <p>
+ * Event handlers find the arena of a world with one hash lookup by world UID; worlds that no
+ * named arena claims belong to the default arena. Arenas claim their worlds by name, and a world
+ * is bound to its arena by UID whenever it loads, so an arena keeps its worlds across world
+ * unloads and worlds that load after the plugin. A single task, instead of one scheduler task per
+ * arena, runs every tick and gives each arena what is due: its full tracking pass once per second,
+ * and adaptive holder samples in between.
+ */
+public class ArenaManager {
+
+    public static final String DEFAULT_ARENA = "default";
+
+    private final DragonEggRacePlugin plugin;
+    private final NamespacedKey eggKey;
+    private final Map<String, Arena> arenasByName = new LinkedHashMap<>();
+    // Configured world names (lower case); only changed while loading
+    private final Map<String, Arena> arenasByWorldName = new HashMap<>();
+    // Loaded worlds; bound and unbound on the main thread, read from region threads
+    private final Map<UUID, Arena> arenasByWorld = new ConcurrentHashMap<>();
+    private final TickHistogram trackingTimer;
+    private final TickHistogram sampleTimer;
+    private final TickHistogram trackingTickTimer;
+    private Arena defaultArena;
+    private TaskScheduler.Task trackingTask;
+
+    public ArenaManager(DragonEggRacePlugin plugin) {
+        this.plugin = plugin;
+        this.eggKey = new NamespacedKey(plugin, "arena");
+        this.trackingTimer = plugin.getMetrics().timer("tracking_pass");
+        this.sampleTimer = plugin.getMetrics().timer("tracking_sample");
+        this.trackingTickTimer = plugin.getMetrics().timer("tracking_tick");
+    }
+
+    /**
+     * Creates the default arena and every arena listed under {@code arenas} in the config.
+     */
+    public void load() {
+        defaultArena = new Arena(plugin, this, DEFAULT_ARENA, Collections.emptyList(),
+                plugin.getConfig().getBoolean("default-arena.auto-start", true));
+        arenasByName.put(DEFAULT_ARENA, defaultArena);
+
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("arenas");
+        if (section != null) {
+            loadArenas(section);
+        }
+        for (World world : plugin.getServer().getWorlds()) {
+            bindWorld(world);
+        }
+    }
+
+    private void loadArenas(ConfigurationSection section) {
+        for (String name : section.getKeys(false)) {
+            ConfigurationSection arena = section.getConfigurationSection(name);
+            if (arena == null) continue;
+
+            List<String> worldNames = arena.getStringList("worlds");
+            for (String worldName : worldNames) {
+                if (plugin.getServer().getWorld(worldName) == null) {
+                    plugin.getLogger().info("아레나 '" + name + "'의 월드 '" + worldName + "'가 아직 로드되지 않았습니다. 로드되면 연결합니다.");
+                }
+            }
+            createArena(name, worldNames, arena.getBoolean("auto-start", true));
+        }
+    }
+
+    /**
+     * Creates a named arena that owns the given worlds. Worlds that are loaded are bound right away,
+     * the others when they load.
+     *
+     * @param name Unique arena name, also used as the egg tag.
+     * @param worldNames The names of the arena's worlds. A world already owned by another arena is skipped.
+     * @param autoStart Whether a new game starts automatically when the arena is enabled without a saved game.
+     * @return The arena, or null if the name is taken or no world is left.
+     */
+    public Arena createArena(String name, List<String> worldNames, boolean autoStart) {
+        String key = name.toLowerCase(Locale.ROOT);
+        if (arenasByName.containsKey(key)) {
+            plugin.getLogger().warning("아레나 이름 '" + name + "'이(가) 중복되었습니다.");
+            return null;
+        }
+
+        List<String> owned = new ArrayList<>();
+        for (String worldName : worldNames) {
+            Arena owner = arenasByWorldName.get(worldName.toLowerCase(Locale.ROOT));
+            if (owner != null) {
+                plugin.getLogger().warning("월드 '" + worldName + "'는 이미 아레나 '" + owner.getName() + "'에 속해 있습니다.");
+            } else if (!owned.contains(worldName)) {
+                owned.add(worldName);
+            }
+        }
+        if (owned.isEmpty()) {
+            plugin.getLogger().warning("아레나 '" + name + "'에 사용할 월드가 없어 만들지 않았습니다.");
+            return null;
+        }
+
+        Arena arena = new Arena(plugin, this, key, owned, autoStart);
+        arenasByName.put(key, arena);
+        for (String worldName : owned) {
+            arenasByWorldName.put(worldName.toLowerCase(Locale.ROOT), arena);
+            World world = plugin.getServer().getWorld(worldName);
+            if (world != null) {
+                bindWorld(world);
+            }
+        }
+        return arena;
+    }
+
+    /**
+     * Binds a world that has just loaded to the arena that claims its name, or to the default arena.
+     */
+    public void bindWorld(World world) {
+        Arena arena = arenasByWorldName.get(world.getName().toLowerCase(Locale.ROOT));
+        if (arena == null) {
+            arenasByWorld.put(world.getUID(), defaultArena);
+            return;
+        }
+        arenasByWorld.put(world.getUID(), arena);
+        arena.bindWorld(world.getUID());
+    }
+
+    /**
+     * Unbinds a world that is unloading. Its arena keeps the world's name and binds it again when
+     * the world loads.
+     */
+    public void unbindWorld(World world) {
+        Arena arena = arenasByWorld.remove(world.getUID());
+        if (arena != null && !arena.isDefault()) {
+            arena.unbindWorld(world.getUID());
+        }
+    }
+
+    /**
+     * Recovers or starts every arena and starts the shared tracking task.
+     */
+    public void enableAll() {
+        for (Arena arena : arenasByName.values()) {
+            arena.enable();
+        }
+        trackingTask = plugin.getTaskScheduler().runGlobalTimer(this::runScheduledTick, 1L, 1L);
+    }
+
+    public void disableAll() {
+        if (trackingTask != null) {
+            trackingTask.cancel();
+            trackingTask = null;
+        }
+        for (Arena arena : arenasByName.values()) {
+            arena.disable();
+        }
+    }
+
+    /**
+     * Runs the full passes and holder samples that are due this tick.
+     */
+    private void runScheduledTick() {
+        long tickStart = System.nanoTime();
+        long now = Bukkit.getCurrentTick();
+        boolean ran = false;
+        for (Arena arena : arenasByName.values()) {
+            DragonEggTracker tracker = arena.getEggTracker();
+            if (!tracker.isTracking()) continue;
+
+            // 밤이 되면 발자국을 여러 틱에 나눠서 제거
+            if (tracker.isSweeping()) {
+                tracker.sweepFootprints();
+                ran = true;
+            }
+
+            long start = System.nanoTime();
+            if (tracker.isFullPassDue(now)) {
+                tracker.updateTracking();
+                trackingTimer.recordSince(start);
+                ran = true;
+            } else if (tracker.isSampleDue(now)) {
+                tracker.sampleHolder(now);
+                sampleTimer.recordSince(start);
+                ran = true;
+            }
+        }
+        // 아무 작업도 없던 틱은 기록하지 않음 (대부분의 틱)
+        if (ran) {
+            trackingTickTimer.recordSince(tickStart);
+        }
+    }
+
+    /**
+     * Runs one full tracking pass for every arena that is tracking, whether due or not.
+     * Package-private for the benchmarks module.
+     */
+    void runTrackingTick() {
+        long tickStart = System.nanoTime();
+        for (Arena arena : arenasByName.values()) {
+            DragonEggTracker tracker = arena.getEggTracker();
+            if (!tracker.isTracking()) continue;
+
+            long start = System.nanoTime();
+            tracker.updateTracking();
+            trackingTimer.recordSince(start);
+        }
+        trackingTickTimer.recordSince(tickStart);
+    }
+
+    /**
+     * Returns the shortest holder sample interval among the tracking arenas, or 0 if none is tracking.
+     */
+    public int getFastestSampleInterval() {
+        int fastest = 0;
+        for (Arena arena : arenasByName.values()) {
+            DragonEggTracker tracker = arena.getEggTracker();
+            if (tracker.isTracking() && (fastest == 0 || tracker.getSampleInterval() < fastest)) {
+                fastest = tracker.getSampleInterval();
+            }
+        }
+        return fastest;
+    }
+
+    /**
+     * Returns the arena a world belongs to.
+     *
+     * @param world The world.
+     * @return The arena owning the world, or the default arena.
+     */
+    public Arena arenaOf(World world) {
+        Arena arena = arenasByWorld.get(world.getUID());
+        if (arena != null) {
+            return arena;
+        }
+        // 로드 중이라 아직 연결되지 않은 월드 (월드 로드 이벤트 전에 청크가 먼저 로드됨)
+        arena = arenasByWorldName.get(world.getName().toLowerCase(Locale.ROOT));
+        return arena != null ? arena : defaultArena;
+    }
+
+    public Arena arenaOf(Player player) {
+        return arenaOf(player.getWorld());
+    }
+
+    /**
+     * Returns the arena with the given name, or null.
+     */
+    public Arena getArena(String name) {
+        return arenasByName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public Arena getDefaultArena() {
+        return defaultArena;
+    }
+
+    public Collection<Arena> getArenas() {
+        return Collections.unmodifiableCollection(arenasByName.values());
+    }
+
+    /**
+     * Returns the arena name stored on an egg item, or null for an untagged egg.
+     */
+    public String getEggTag(ItemStack item) {
+        if (!item.hasItemMeta()) {
+            return null;
+        }
+        return item.getItemMeta().getPersistentDataContainer().get(eggKey, PersistentDataType.STRING);
+    }
+
+    /**
+     * Tags an egg item with the arena it belongs to. Eggs of the default arena stay untagged.
+     *
+     * @param item The egg item; changed in place.
+     * @param arena The arena.
+     */
+    public void tagEgg(ItemStack item, Arena arena) {
+        if (arena.isDefault()) {
+            return;
+        }
+        item.editMeta(meta -> meta.getPersistentDataContainer().set(eggKey, PersistentDataType.STRING, arena.getName()));
+    }
+}
@@ -0,0 +1,353 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Bukkit;
+
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the plugin's disk work (journal, trail files, metrics export) on virtual threads.
+ * <p>
+ * At most {@code io.max-running-tasks} tasks run at once, each on its own virtual thread. When that
+ * limit is reached, {@link #execute(Runnable)} puts the task in an overflow queue of at most
+ * {@code io.max-waiting-tasks} tasks that the running threads work through before they finish. If the
+ * overflow queue is full too, the caller waits up to {@code io.max-wait-millis} for a free place and the
+ * task is then rejected and counted; this is the back-pressure of a disk that can't keep up.
+ * {@link #offer(Runnable)} drops the task as soon as no thread is free, for work that the next run
+ * replaces anyway. Work that must stay in order, like the records of one journal file, goes through a
+ * {@link SerialQueue}, which keeps at most one task in the service at a time.
+ * <p>
+ * {@link #shutdown()} is called last in onDisable: it stops accepting new tasks, waits for everything
+ * already queued and runs what is left in the overflow queue itself. Only tasks submitted after that
+ * run on the calling thread, so nothing is lost.
+ */
+public class AsyncIoService {
+
+    private final DragonEggRacePlugin plugin;
+    private final Logger logger;
+    private final ExecutorService executor;
+    private final int maxRunningTasks;
+    private final long maxWaitMillis;
+    private final Semaphore permits;
+    // Tasks waiting for a running thread to pick them up, in submission order
+    private final BlockingQueue<Runnable> overflow;
+    private final Executor mainThread;
+    private volatile boolean shutdown = false;
+
+    // Metrics
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong callerRunsCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    public AsyncIoService(DragonEggRacePlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        // io.max-queued-tasks는 이전 이름
+        this.maxRunningTasks = Math.max(1, plugin.getConfig().getInt("io.max-running-tasks",
+                plugin.getConfig().getInt("io.max-queued-tasks", 1024)));
+        this.maxWaitMillis = Math.max(0L, plugin.getConfig().getLong("io.max-wait-millis", 50L));
+        this.permits = new Semaphore(maxRunningTasks);
+        this.overflow = new LinkedBlockingQueue<>(Math.max(1, plugin.getConfig().getInt("io.max-waiting-tasks", 4096)));
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("DragonEggRace-IO-", 0).factory());
+        // 비활성화 중에는 스케줄러를 쓸 수 없으므로 호출한 스레드에서 바로 실행
+        this.mainThread = task -> {
+            if (plugin.isEnabled()) {
+                plugin.getTaskScheduler().runGlobal(task);
+            } else {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * Runs a task on a virtual thread. If the limit of running tasks is reached, the task waits in
+     * the overflow queue; it runs on the calling thread only once the service is shut down.
+     *
+     * @param task The task.
+     * @throws RejectedExecutionException If the overflow queue stayed full for {@code io.max-wait-millis}.
+     */
+    public void execute(Runnable task) {
+        if (shutdown) {
+            callerRunsCount.incrementAndGet();
+            run(task);
+            return;
+        }
+        if (permits.tryAcquire()) {
+            submitPermitted(task);
+            return;
+        }
+
+        if (!overflow.offer(task) && !awaitOverflowSpace(task)) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("I/O overflow queue is full");
+        }
+        overflowCount.incrementAndGet();
+        // 그 사이에 모든 작업이 끝났다면 대기열을 처리할 스레드가 없으므로 직접 시작
+        if (permits.tryAcquire()) {
+            Runnable next = overflow.poll();
+            if (next != null) {
+                submitPermitted(next);
+            } else {
+                permits.release();
+            }
+        }
+    }
+
+    // Waits a bounded time for a place in the full overflow queue
+    private boolean awaitOverflowSpace(Runnable task) {
+        try {
+            return overflow.offer(task, maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Runs a task on a virtual thread, or drops it if no thread is free or the service is shut down.
+     *
+     * @param task The task.
+     * @return False if the task was dropped.
+     */
+    public boolean offer(Runnable task) {
+        if (shutdown || !permits.tryAcquire()) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        submitPermitted(task);
+        return true;
+    }
+
+    /**
+     * Computes a value on a virtual thread, see {@link #execute(Runnable)}.
+     * Use {@link #mainThread()} to continue with Bukkit API calls, e.g.
+     * {@code io.supply(...).thenAcceptAsync(result -> ..., io.mainThread())}.
+     *
+     * @param supplier Computes the value; an exception completes the future exceptionally.
+     * @return The future result.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, this::execute);
+    }
+
+    /**
+     * Returns an executor that runs tasks on the server's main thread (directly while the plugin is disabling).
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Creates a queue whose tasks run one at a time, in submission order, on this service.
+     *
+     * @param name Name used in log messages.
+     */
+    public SerialQueue newSerialQueue(String name) {
+        return new SerialQueue(name);
+    }
+
+    /**
+     * Stops accepting tasks and waits until every queued task has finished.
+     * Called at the end of onDisable.
+     */
+    public void shutdown() {
+        shutdown = true;
+        try {
+            // 모든 허가가 돌아오면 실행 중인 작업이 없음
+            if (permits.tryAcquire(maxRunningTasks, 10, TimeUnit.SECONDS)) {
+                // 종료 직전에 추가 대기열에 들어간 작업은 여기서 실행
+                Runnable task;
+                while ((task = overflow.poll()) != null) {
+                    run(task);
+                }
+                permits.release(maxRunningTasks);
+            } else {
+                logger.warning("파일 작업 " + getQueuedCount() + "개가 시간 안에 끝나지 않았습니다.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Returns the number of tasks queued or running.
+     */
+    public int getQueuedCount() {
+        return maxRunningTasks - permits.availablePermits() + overflow.size();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Returns how many tasks ran on the calling thread because the service was already shut down.
+     */
+    public long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+
+    /**
+     * Returns how many tasks had to wait in the overflow queue because the limit was reached.
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * Returns how many tasks were rejected because the overflow queue stayed full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Returns how many droppable tasks were dropped because no thread was free.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    // Runs the task, then the overflow queue, on one virtual thread holding one permit
+    private void submitPermitted(Runnable task) {
+        executor.execute(() -> {
+            try {
+                Runnable next = task;
+                while (next != null) {
+                    run(next);
+                    next = overflow.poll();
+                }
+            } finally {
+                permits.release();
+            }
+            // 허가를 돌려준 직후에 추가 대기열에 들어온 작업
+            if (!overflow.isEmpty() && permits.tryAcquire()) {
+                Runnable late = overflow.poll();
+                if (late != null) {
+                    submitPermitted(late);
+                } else {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "파일 작업 중 오류가 발생했습니다.", e);
+        }
+        completedCount.incrementAndGet();
+    }
+
+    /**
+     * Runs its tasks one after another in submission order, on at most one virtual thread at a time.
+     * After {@link #close(long, TimeUnit)} new tasks run directly on the calling thread.
+     */
+    public final class SerialQueue implements Executor {
+
+        private final String name;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final Object idleLock = new Object();
+        private volatile boolean closed = false;
+
+        private SerialQueue(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (closed) {
+                run(task);
+                return;
+            }
+            tasks.add(task);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    AsyncIoService.this.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // 작업은 이 대기열에 남아 다음 작업이나 close 때 처리됨
+                    draining.set(false);
+                    logger.warning("파일 작업 대기열 '" + name + "'을 처리하지 못했습니다. 작업 " + tasks.size() + "개가 대기 중입니다.");
+                }
+            }
+        }
+
+        private void drain() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                run(task);
+            }
+            draining.set(false);
+            // 마지막 poll과 draining 해제 사이에 들어온 작업
+            if (!tasks.isEmpty()) {
+                scheduleDrain();
+                return;
+            }
+            synchronized (idleLock) {
+                idleLock.notifyAll();
+            }
+        }
+
+        /**
+         * Waits until every task queued so far has run; later tasks run on the calling thread.
+         * Tasks left behind by a rejected drain run on the calling thread here.
+         *
+         * @return False if the queue did not drain in time.
+         */
+        public boolean close(long timeout, TimeUnit unit) {
+            closed = true;
+            if (draining.compareAndSet(false, true)) {
+                drain();
+            }
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (idleLock) {
+                while (draining.get() || !tasks.isEmpty()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        logger.warning("파일 작업 대기열 '" + name + "'이 시간 안에 비워지지 않았습니다.");
+                        return false;
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(idleLock, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+}
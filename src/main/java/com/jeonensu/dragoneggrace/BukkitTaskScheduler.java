@@ -0,0 +1,79 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.scheduler.BukkitScheduler;
+
+/**
+ * Runs every task on the main thread through the Bukkit scheduler.
+ * Used on regular Bukkit and Paper servers.
+ */
+public class BukkitTaskScheduler implements TaskScheduler {
+
+    private final DragonEggRacePlugin plugin;
+    private final BukkitScheduler scheduler;
+
+    public BukkitTaskScheduler(DragonEggRacePlugin plugin) {
+        this.plugin = plugin;
+        this.scheduler = plugin.getServer().getScheduler();
+    }
+
+    @Override
+    public boolean isRegionThreaded() {
+        return false;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        scheduler.runTask(plugin, task);
+    }
+
+    @Override
+    public Task runGlobalLater(Runnable task, long delayTicks) {
+        return scheduler.runTaskLater(plugin, task, delayTicks)::cancel;
+    }
+
+    @Override
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return scheduler.runTaskTimer(plugin, task, delayTicks, periodTicks)::cancel;
+    }
+
+    @Override
+    public void executeAt(Location location, Runnable task) {
+        execute(task);
+    }
+
+    @Override
+    public void executeAt(World world, int chunkX, int chunkZ, Runnable task) {
+        execute(task);
+    }
+
+    @Override
+    public void executeOn(Entity entity, Runnable task) {
+        execute(() -> {
+            if (entity.isValid()) {
+                task.run();
+            }
+        });
+    }
+
+    @Override
+    public Task runOnLater(Entity entity, Runnable task, long delayTicks) {
+        return runGlobalLater(() -> {
+            if (entity.isValid()) {
+                task.run();
+            }
+        }, delayTicks);
+    }
+
+    // 메인 스레드에서 호출되면 바로 실행
+    private void execute(Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else {
+            scheduler.runTask(plugin, task);
+        }
+    }
+}
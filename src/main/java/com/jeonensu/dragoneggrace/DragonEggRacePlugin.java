@@ -1,253 +1,184 @@
 package com.jeonensu.dragoneggrace;
 
-import org.bukkit.Bukkit;
-import org.bukkit.Material;
-import org.bukkit.Particle;
-import org.bukkit.Sound;
-import org.bukkit.World;
-import org.bukkit.entity.EnderDragon;
-import org.bukkit.entity.EntityType;
-import org.bukkit.entity.Player;
 import net.md_5.bungee.api.ChatColor;
-import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
+
+import java.util.function.ToLongFunction;
 
 public class DragonEggRacePlugin extends JavaPlugin {
 
-    private boolean gameActive = false;
-    private int gameTicks = 0;
-    private final int GAME_DURATION = 24000 * 100; // 100일 (틱 단위)
-    private BukkitTask gameTask;
-    private DragonEggTracker eggTracker; // DragonEggTracker 필드
+    private ArenaManager arenas; // 아레나별 게임 (알, 트래커, 시계, 상태 기록)
+    private EggEffectTicker eggEffectTicker; // 떨어진 알 아이템의 파티클 효과
+    private MessagePipeline messages; // 틱 단위로 묶어서 보내는 브로드캐스트 메시지
+    private StructurePlacer structurePlacer; // 신호기 구조물 블록을 청크 단위로 나눠서 설치/제거
+    private PluginMetrics metrics; // 메인 스레드 사용 시간 측정
+    private AsyncIoService io; // 파일 저장/불러오기를 가상 스레드에서 실행
+    private TaskScheduler scheduler; // Bukkit 메인 스레드 또는 Folia 지역 스레드에서 작업 실행
+    private OrphanCleaner orphanCleaner; // 비정상 종료로 남은 발자국/신호기를 청크 로드 시 제거
 
     @Override
     public void onEnable() {
         getLogger().info("드래곤 알 경주 플러그인이 활성화되었습니다!");
 
-        // DragonEggTracker 초기화
-        eggTracker = new DragonEggTracker(this);
+        // 설정 파일 생성 및 로드
+        saveDefaultConfig();
+
+        // 모든 구성 요소가 작업 예약에 사용하므로 가장 먼저 생성 (Folia 서버면 지역별 스레드 사용)
+        scheduler = TaskScheduler.create(this);
+        if (scheduler.isRegionThreaded()) {
+            getLogger().info("Folia 서버: 블록, 엔티티 작업을 해당 지역의 스레드에서 실행합니다.");
+        }
+
+        // 파일 작업 서비스는 상태 기록과 측정값 내보내기가 사용하므로 먼저 생성
+        io = new AsyncIoService(this);
+
+        // 측정 도구는 아래 구성 요소들이 타이머를 가져가므로 그보다 먼저 생성 (내보내기는 파일 작업 서비스 사용)
+        metrics = new PluginMetrics(this);
+
+        // 언어 파일 로드 (메시지는 시작 시 한 번만 준비)
+        messages = new MessagePipeline(this);
+        messages.load();
+
+        structurePlacer = new StructurePlacer(this);
+
+        // 발자국 엔티티와 신호기 청크에 표시를 남기므로 아레나보다 먼저 생성
+        orphanCleaner = new OrphanCleaner(this);
+        FootprintDisplays.markWith(orphanCleaner::markFootprint);
+
+        // 설정에 있는 아레나 생성 (기본 아레나는 다른 아레나가 쓰지 않는 모든 월드)
+        arenas = new ArenaManager(this);
+        arenas.load();
+        eggEffectTicker = new EggEffectTicker(this);
 
         // 명령어 등록
         this.getCommand("dragongame").setExecutor(new GameCommand(this));
 
-        // 이벤트 리스너 등록
-        getServer().getPluginManager().registerEvents(new GameEventListener(this), this);
+        // 이벤트 리스너 등록 (핸들러마다 처리 시간 측정)
+        metrics.registerTimedEvents(new GameEventListener(this));
+        registerGauges();
+        metrics.startExport();
 
-        // 자동 게임 시작 (원하지 않으면 주석 처리)
-        startGame();
+        // 아레나마다 저장된 게임이 있으면 이어서 진행하고, 없으면 auto-start 설정에 따라 게임 시작
+        arenas.enableAll();
     }
 
-    @Override
-    public void onDisable() {
-        if (gameTask != null) {
-            gameTask.cancel();
-        }
-        // 플러그인 비활성화 시 트래커 정리
-        if (eggTracker != null) {
-            eggTracker.cleanup();
-        }
-        getLogger().info("드래곤 알 경주 플러그인이 비활성화되었습니다!");
+    // 기존 카운터들을 메트릭으로 노출 (조회/내보내기 시에만 읽음, 아레나 값은 합계)
+    private void registerGauges() {
+        metrics.gauge("arenas_active", () -> sumOverArenas(arena -> arena.isGameActive() ? 1 : 0));
+        metrics.gauge("holder_index_repairs", () -> sumOverArenas(arena -> arena.getEggTracker().getHolderIndex().getRepairCount()));
+        metrics.gauge("holder_index_mismatches", () -> sumOverArenas(arena -> arena.getEggTracker().getHolderIndex().getRepairMismatchCount()));
+        metrics.gauge("egg_cache_hits", () -> sumOverArenas(arena -> arena.getEggTracker().getHolderIndex().getCacheHitCount()));
+        metrics.gauge("egg_cache_misses", () -> sumOverArenas(arena -> arena.getEggTracker().getHolderIndex().getCacheMissCount()));
+        metrics.gauge("egg_cache_mismatches", () -> sumOverArenas(arena -> arena.getEggTracker().getHolderIndex().getCacheMismatchCount()));
+        metrics.gauge("tracking_samples", () -> sumOverArenas(arena -> arena.getEggTracker().getSampleCount()));
+        metrics.gauge("tracking_sample_interval_ticks", () -> arenas.getFastestSampleInterval());
+        metrics.gauge("footprints", () -> sumOverArenas(arena -> arena.getEggTracker().getFootprints().size()));
+        metrics.gauge("footprint_entities", () -> sumOverArenas(arena -> arena.getEggTracker().getFootprintRenderer().getLiveEntityCount()));
+        metrics.gauge("footprint_viewers", () -> sumOverArenas(arena -> arena.getEggTracker().getFootprintVisibility().getViewerCount()));
+        metrics.gauge("footprint_sweep_last_micros", () -> maxOverArenas(arena -> arena.getEggTracker().getNightSweep().getLastDurationNanos() / 1000));
+        metrics.gauge("footprint_sweep_worst_tick_micros", () -> maxOverArenas(arena -> arena.getEggTracker().getNightSweep().getLastWorstTickNanos() / 1000));
+        metrics.gauge("footprint_visibility_recomputes", () -> sumOverArenas(arena -> arena.getEggTracker().getFootprintVisibility().getRecomputeCount()));
+        metrics.gauge("leaderboard_players", () -> sumOverArenas(arena -> arena.getLeaderboard().size()));
+        metrics.gauge("leaderboard_sidebar_updates", () -> sumOverArenas(arena -> arena.getSidebar().getScoreUpdateCount()));
+        metrics.gauge("egg_locator_changes", () -> sumOverArenas(arena -> arena.getEggTracker().getLocator().getChangeCount()));
+        metrics.gauge("orphan_entities_removed", () -> orphanCleaner.getRemovedEntityCount());
+        metrics.gauge("orphan_blocks_removed", () -> orphanCleaner.getRemovedBlockCount());
+        metrics.gauge("beacon_blocks", () -> sumOverArenas(arena -> arena.getEggTracker().getBeaconBlocks().size()));
+        metrics.gauge("trail_samples", () -> sumOverArenas(arena -> arena.getEggTracker().getTrails().getRecordedSampleCount()));
+        metrics.gauge("trail_samples_dropped", () -> sumOverArenas(arena -> arena.getEggTracker().getTrails().getDroppedSampleCount()));
+        metrics.gauge("egg_effects_active", () -> eggEffectTicker.getActiveEffectCount());
+        metrics.gauge("structure_pending_edits", () -> structurePlacer.getPendingEditCount());
+        metrics.gauge("messages_total", () -> messages.getTotalMessageCount());
+        metrics.gauge("messages_suppressed", () -> messages.getSuppressedMessageCount());
+        metrics.gauge("messages_max_per_tick", () -> messages.getMaxTickMessageCount());
+        metrics.gauge("io_queued", () -> io.getQueuedCount());
+        metrics.gauge("io_completed", () -> io.getCompletedCount());
+        metrics.gauge("io_caller_runs", () -> io.getCallerRunsCount());
+        metrics.gauge("io_overflow", () -> io.getOverflowCount());
+        metrics.gauge("io_rejected", () -> io.getRejectedCount());
+        metrics.gauge("io_dropped", () -> io.getDroppedCount());
     }
 
-    public void startGame() {
-        if (gameActive) {
-            return;
+    private long maxOverArenas(ToLongFunction<Arena> value) {
+        long max = 0;
+        for (Arena arena : arenas.getArenas()) {
+            max = Math.max(max, value.applyAsLong(arena));
         }
-
-        gameActive = true;
-        gameTicks = 0;
-
-        // 트래킹 시작
-        eggTracker.startTracking();
-
-        // 모든 플레이어에게 게임 시작 알림
-        broadcastMessage(ChatColor.GOLD + "=== 🐉 드래곤 알 경주 시작! 🐉 ===");
-        broadcastMessage(ChatColor.YELLOW + "100일 후 드래곤 알을 가진 자가 승리!");
-        broadcastMessage(ChatColor.RED + "남은 시간: 100일");
-
-        // 게임 타이머 시작
-        gameTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                gameTicks++;
-
-                // 매일마다 (24000틱) 남은 시간 알림
-                if (gameTicks % 24000 == 0) {
-                    int daysLeft = 100 - (gameTicks / 24000);
-                    if (daysLeft > 0) {
-                        broadcastMessage(ChatColor.YELLOW + "남은 시간: " + daysLeft + "일");
-
-                        // 마지막 10일일 때 경고
-                        if (daysLeft <= 10) {
-                            broadcastMessage(ChatColor.RED + "⚠ 게임 종료까지 " + daysLeft + "일 남았습니다!");
-                            playSound(Sound.BLOCK_NOTE_BLOCK_BELL);
-                        }
-
-                        // 마지막 1일
-                        if (daysLeft == 1) {
-                            broadcastMessage(ChatColor.DARK_RED + "🚨 내일 게임이 종료됩니다! 🚨");
-                            playSound(Sound.ENTITY_WITHER_SPAWN);
-                        }
-                    }
-                }
-
-                // 100일 경과 시 게임 종료
-                if (gameTicks >= GAME_DURATION) {
-                    endGame();
-                    cancel();
-                }
-            }
-        }.runTaskTimer(this, 0L, 1L); // 매 틱마다 실행
+        return max;
     }
 
-    public void stopGame() {
-        if (!gameActive) {
-            return;
-        }
-
-        gameActive = false;
-        if (gameTask != null) {
-            gameTask.cancel();
+    private long sumOverArenas(ToLongFunction<Arena> value) {
+        long sum = 0;
+        for (Arena arena : arenas.getArenas()) {
+            sum += value.applyAsLong(arena);
         }
-        // 트래킹 중지 및 정리
-        eggTracker.stopTracking();
-
-        broadcastMessage(ChatColor.RED + "게임이 강제로 중단되었습니다!");
+        return sum;
     }
 
-    private void endGame() {
-        gameActive = false;
-        // 게임 종료 시 트래킹 중지 및 정리
-        eggTracker.stopTracking();
-
-        // 드래곤 알을 가진 플레이어 찾기 (DragonEggTracker의 메서드 사용)
-        Player winner = null;
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            if (eggTracker.hasDragonEgg(player)) { // DragonEggTracker의 메서드 사용
-                winner = player;
-                break;
-            }
+    @Override
+    public void onDisable() {
+        if (metrics != null) {
+            metrics.stopExport();
         }
-
-        if (winner != null) {
-            String winnerName = winner.getName();
-
-            // 승리자 발표
-            broadcastMessage("");
-            broadcastMessage(ChatColor.GOLD + "================================");
-            broadcastMessage(ChatColor.GOLD + "=== 🐉 게임 종료! 🐉 ===");
-            broadcastMessage(ChatColor.GREEN + "🏆 " + winnerName + " 승리! 🏆");
-            broadcastMessage(ChatColor.YELLOW + "🐲 드래곤이 소환됩니다! 🐲");
-            broadcastMessage(ChatColor.GOLD + "================================");
-            broadcastMessage("");
-
-            // 승리 사운드
-            playSound(Sound.UI_TOAST_CHALLENGE_COMPLETE);
-
-            // 승리자 위치에 엔더 드래곤 소환
-            spawnDragonAtPlayer(winner);
-
-            // 승리자에게 특별한 효과
-            winner.sendTitle(
-                    ChatColor.GOLD + "🏆 승리! 🏆",
-                    ChatColor.YELLOW + "드래곤 알 경주 우승자!",
-                    10, 70, 20
-            );
-
-            // 승리자에게 보상 효과
-            final Player finalPlayer = winner; // final로 복사
-            Bukkit.getScheduler().runTaskLater(this, () -> {
-                finalPlayer.getWorld().strikeLightningEffect(finalPlayer.getLocation());
-            }, 20L);
-        } else {
-            broadcastMessage("");
-            broadcastMessage(ChatColor.RED + "================================");
-            broadcastMessage(ChatColor.RED + "=== 게임 종료 ===");
-            broadcastMessage(ChatColor.RED + "❌ 아무도 드래곤 알을 가지고 있지 않습니다!");
-            broadcastMessage(ChatColor.RED + "💔 게임이 무승부로 종료되었습니다.");
-            broadcastMessage(ChatColor.RED + "================================");
-            broadcastMessage("");
+        // 아레나마다 경과 시간을 기록하고 시계, 트래커, 상태 기록 정리
+        if (arenas != null) {
+            arenas.disableAll();
         }
+        if (eggEffectTicker != null) {
+            eggEffectTicker.stop();
+        }
+        if (structurePlacer != null) {
+            structurePlacer.flushAll(); // 아직 적용되지 않은 블록 변경을 모두 적용
+        }
+        FootprintDisplays.markWith(null); // 다음 활성화 때 새 세션으로 다시 등록
+        if (messages != null) {
+            messages.flushNow(); // 대기 중인 메시지를 바로 전송
+        }
+        if (io != null) {
+            io.shutdown(); // 남은 파일 작업이 모두 끝날 때까지 대기
+        }
+        getLogger().info("드래곤 알 경주 플러그인이 비활성화되었습니다!");
     }
 
-    private void spawnDragonAtPlayer(Player player) {
-        World world = player.getWorld();
-
-        // 플레이어 위 15블록에 드래곤 소환
-        EnderDragon dragon = (EnderDragon) world.spawnEntity(
-                player.getLocation().add(0, 15, 0),
-                EntityType.ENDER_DRAGON
-        );
-
-        // 드래곤 이름 설정
-        dragon.setCustomName(ChatColor.GOLD + player.getName() + "의 승리 드래곤");
-        dragon.setCustomNameVisible(true);
-
-        // 드래곤 소환 효과
-        world.playSound(player.getLocation(), Sound.ENTITY_ENDER_DRAGON_GROWL, 2.0f, 1.0f);
-        world.playSound(player.getLocation(), Sound.ENTITY_LIGHTNING_BOLT_THUNDER, 1.0f, 1.0f);
-
-        // 파티클 효과
-        world.spawnParticle(
-                Particle.DRAGON_BREATH,
-                player.getLocation().add(0, 15, 0),
-                100, 3, 3, 3, 0.1
-        );
-
-        world.spawnParticle(
-                Particle.END_ROD,
-                player.getLocation().add(0, 10, 0),
-                50, 2, 2, 2, 0.1
-        );
-
-        // 번개 효과
-        world.strikeLightningEffect(player.getLocation());
-    }
-
+    // 언어 파일에 없는 메시지용 - 다른 메시지와 함께 다음 틱에 한 번에 전송됨
     public void broadcastMessage(String message) {
         if (message.isEmpty()) {
-            Bukkit.broadcastMessage("");
+            messages.broadcastRaw("");
         } else {
-            Bukkit.broadcastMessage(ChatColor.DARK_PURPLE + "[드래곤게임] " + message);
+            messages.broadcastRaw(ChatColor.DARK_PURPLE + "[드래곤게임] " + message);
         }
     }
 
-    private void playSound(Sound sound) {
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            player.playSound(player.getLocation(), sound, 1.0f, 1.0f);
-        }
+    // 아레나(독립된 게임) 목록과 월드별 라우팅
+    public ArenaManager getArenas() {
+        return arenas;
     }
 
-    // Getter 메소드들
-    public boolean isGameActive() {
-        return gameActive;
+    public EggEffectTicker getEggEffectTicker() {
+        return eggEffectTicker;
     }
 
-    public int getRemainingDays() {
-        if (!gameActive) return 0;
-        return Math.max(0, 100 - (gameTicks / 24000));
+    public MessagePipeline getMessages() {
+        return messages;
     }
 
-    public int getRemainingTicks() {
-        if (!gameActive) return 0;
-        return Math.max(0, GAME_DURATION - gameTicks);
+    public AsyncIoService getIo() {
+        return io;
     }
 
-    public String getGameStatus() {
-        if (!gameActive) {
-            return ChatColor.RED + "게임이 진행 중이 아닙니다.";
-        }
+    public TaskScheduler getTaskScheduler() {
+        return scheduler;
+    }
 
-        int days = getRemainingDays();
-        int hours = (getRemainingTicks() % 24000) / 1000;
+    public PluginMetrics getMetrics() {
+        return metrics;
+    }
 
-        return ChatColor.YELLOW + "게임 진행 중 - 남은 시간: " + days + "일 " + hours + "시간";
+    public OrphanCleaner getOrphanCleaner() {
+        return orphanCleaner;
     }
 
-    // DragonEggTracker 인스턴스에 접근하기 위한 getter 추가
-    public DragonEggTracker getEggTracker() {
-        return eggTracker;
+    public StructurePlacer getStructurePlacer() {
+        return structurePlacer;
     }
 }
\ No newline at end of file
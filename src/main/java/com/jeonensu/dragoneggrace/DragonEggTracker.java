@@ -1,121 +1,287 @@
 package com.jeonensu.dragoneggrace;
 
 import org.bukkit.*;
-import org.bukkit.block.Block;
-import org.bukkit.block.data.BlockData;
-import org.bukkit.entity.BlockDisplay;
-import org.bukkit.entity.Display;
-import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.util.Transformation;
 import org.bukkit.util.Vector;
-import org.joml.AxisAngle4f;
-import org.joml.Vector3f;
 
 import java.util.*;
 
 public class DragonEggTracker {
 
-    private final DragonEggRacePlugin plugin;
-    // Stores each player's footprints (BlockDisplay entities)
-    private final Map<UUID, List<BlockDisplay>> playerFootprints = new HashMap<>();
-    // Stores the locations of beacons and their base blocks in the game
-    private final Set<Location> beaconLocations = new HashSet<>();
+    // Run a full inventory scan every 30 tracking passes (30 seconds) to repair the holder index
+    private static final int HOLDER_REPAIR_INTERVAL = 30;
 
-    // Scheduled task for egg tracking and footprint generation
-    private BukkitRunnable trackingTask;
+    private final DragonEggRacePlugin plugin;
+    // The race this tracker belongs to
+    private final Arena arena;
+    // Event-driven index of the current egg holder
+    private final EggHolderIndex holderIndex;
+    // Where the egg is when no online player has it (offline holder, container, item...)
+    private final EggLocator locator;
+    // Minimum distance between two footprints of the same player
+    private static final double FOOTPRINT_SPACING = 5.0;
+    // Footprints disappear after 5 days (120000 ticks)
+    private static final long FOOTPRINT_LIFETIME_TICKS = 120000L;
+    // Upper bound of expired footprints removed per tracking pass, so a burst is spread over several passes
+    private static final int MAX_EXPIRATIONS_PER_PASS = 64;
+    // Full passes (holder changes, night, expiry, rendering) run at this fixed interval;
+    // the holder's position is sampled in between at an adaptive interval
+    static final long FULL_PASS_INTERVAL_TICKS = 20L;
+
+    // Spatial index of every player's footprints (coordinates kept apart from the BlockDisplay entities)
+    private final FootprintStore footprints = new FootprintStore();
+    // Shows the stored footprints in the world (real entities or virtual, see config.yml)
+    private final FootprintRenderer footprintRenderer;
+    // Which footprint entities each player is sent (distance, own trail, per-player cap)
+    private final FootprintVisibility footprintVisibility;
+    // Expiry schedule of all footprints, advanced by the tracking task
+    private final FootprintExpiryWheel footprintExpiry = new FootprintExpiryWheel();
+    private final FootprintExpiryWheel.ExpiryHandler expiryHandler = this::expireFootprint;
+    // Removes all footprints over a few ticks at nightfall instead of in one tick
+    private final FootprintSweep nightSweep;
+    // Block positions of beacons and their base blocks in the game, protected from breaking
+    private final ProtectedBlockIndex beaconBlocks = new ProtectedBlockIndex();
+    // Full path of every holder, kept for post-event review (footprints expire, the trail does not)
+    private final TrailRecorder trails;
+    // Block types the plugin places for a beacon structure
+    static final Set<Material> BEACON_BLOCK_TYPES = EnumSet.of(Material.BEACON, Material.DIAMOND_BLOCK);
+
+    // Whether the shared tracking task of the ArenaManager should run passes for this tracker
+    private boolean tracking = false;
     // The player currently holding the Dragon Egg
     private Player currentEggHolder = null;
-    // Tracks if it was night in the previous tick for day/night transition
-    private boolean wasNightLastTick = false;
-
-    public DragonEggTracker(DragonEggRacePlugin plugin) {
+    // The holder before the last observation, whose location the egg-lost handler uses
+    private Player previousEggHolder = null;
+    // Tracking passes since the last holder index repair
+    private int passesSinceRepair = 0;
+
+    // Adaptive holder sampling: bounds of the interval and the MSPT above which it is stretched
+    private final int minSampleInterval;
+    private final int maxSampleInterval;
+    private final double msptBudget;
+    private long lastFullPassTick;
+    private long nextSampleTick;
+    private int sampleInterval = (int) FULL_PASS_INTERVAL_TICKS;
+    private long sampleCount = 0;
+    // Holder position of the previous sample, to estimate their speed (reused, no allocation per sample)
+    private final Location sampleLocation = new Location(null, 0, 0, 0);
+    private World lastSampleWorld = null;
+    private double lastSampleX;
+    private double lastSampleY;
+    private double lastSampleZ;
+    private long lastSampleTick;
+
+    public DragonEggTracker(DragonEggRacePlugin plugin, Arena arena) {
         this.plugin = plugin;
+        this.arena = arena;
+        this.holderIndex = new EggHolderIndex(plugin, arena);
+        this.locator = new EggLocator(arena);
+        this.trails = new TrailRecorder(plugin, arena);
+        this.footprintVisibility = new FootprintVisibility(plugin, arena);
+        this.nightSweep = new FootprintSweep(plugin);
+        this.footprintRenderer = createFootprintRenderer(plugin.getConfig().getString("footprints.render-mode", EntityFootprintRenderer.MODE));
+        this.minSampleInterval = Math.max(1, plugin.getConfig().getInt("tracking.min-interval-ticks", 2));
+        this.maxSampleInterval = Math.max(minSampleInterval, plugin.getConfig().getInt("tracking.max-interval-ticks", 40));
+        this.msptBudget = plugin.getConfig().getDouble("tracking.mspt-budget", 40.0);
+    }
+
+    /**
+     * Creates the footprint renderer selected in the config.
+     *
+     * @param mode "entity" or "virtual".
+     * @return The renderer.
+     */
+    private FootprintRenderer createFootprintRenderer(String mode) {
+        if (VirtualFootprintRenderer.MODE.equalsIgnoreCase(mode)) {
+            return new VirtualFootprintRenderer(footprintVisibility, arena);
+        }
+        if (!EntityFootprintRenderer.MODE.equalsIgnoreCase(mode)) {
+            plugin.getLogger().warning("알 수 없는 발자국 표시 방식 '" + mode + "', entity 방식을 사용합니다.");
+        }
+        return new EntityFootprintRenderer(footprintVisibility, plugin.getTaskScheduler());
     }
 
     /**
      * Starts tracking the Dragon Egg.
-     * Schedules a task to check the current egg holder and create footprints every second.
+     * From now on the shared tracking task of the {@link ArenaManager} runs a full pass every second
+     * and samples the holder's position in between, see {@link #isSampleDue(long)}.
      */
     public void startTracking() {
-        if (trackingTask != null) {
-            trackingTask.cancel(); // Cancel any existing task
-        }
+        holderIndex.rebuild(); // Seed the holder index with one full scan
+        currentEggHolder = null; // The race state machine starts without a confirmed holder
+        passesSinceRepair = 0;
+        lastFullPassTick = -FULL_PASS_INTERVAL_TICKS; // First full pass on the next tick
+        lastSampleWorld = null;
+        tracking = true;
+    }
 
-        trackingTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                updateTracking(); // Execute tracking update logic
-            }
-        };
-        trackingTask.runTaskTimer(plugin, 0L, 20L); // Run immediately, then every 20 ticks (1 second)
+    /**
+     * Returns whether the next full tracking pass is due.
+     *
+     * @param now The current server tick.
+     */
+    boolean isFullPassDue(long now) {
+        return now - lastFullPassTick >= FULL_PASS_INTERVAL_TICKS;
+    }
+
+    /**
+     * Returns whether the holder's position should be sampled between two full passes.
+     * The interval follows the holder's speed so that consecutive samples are about one footprint
+     * spacing apart, between {@code tracking.min-interval-ticks} and {@code tracking.max-interval-ticks},
+     * and is stretched when the server's MSPT is over {@code tracking.mspt-budget}.
+     *
+     * @param now The current server tick.
+     */
+    boolean isSampleDue(long now) {
+        return now >= nextSampleTick;
+    }
+
+    /**
+     * Returns whether tracking passes should run for this tracker.
+     */
+    public boolean isTracking() {
+        return tracking;
     }
 
     /**
      * Stops Dragon Egg tracking and cleans up all footprints and beacons.
      */
     public void stopTracking() {
-        if (trackingTask != null) {
-            trackingTask.cancel();
-        }
+        tracking = false;
+        holderIndex.reset();
+        trails.endSession();
         clearAllFootprints(); // Remove all players' footprints
+        footprintVisibility.clear();
         clearAllBeacons();    // Remove all beacons
     }
 
     /**
      * Called periodically to update the Dragon Egg holder and manage footprints.
+     * Package-private so the benchmarks module can drive single passes.
      */
-    private void updateTracking() {
+    void updateTracking() {
+        long now = Bukkit.getCurrentTick();
+        lastFullPassTick = now;
         Player newEggHolder = findDragonEggHolder(); // Find the current egg holder
 
-        // If the egg holder has changed
-        if (newEggHolder != currentEggHolder) {
-            if (currentEggHolder != null && newEggHolder == null) {
-                // If the previous holder lost the egg (death, dropping it, etc.)
-                onEggLost(currentEggHolder);
+        // The race state machine decides whether this is a pickup, a loss or a hand-over
+        // and calls back onEggLost/onEggPickedUp through the arena
+        RaceStateMachine race = arena.getRaceState();
+        long elapsed = arena.getElapsedTicks();
+        UUID newHolderId;
+        if (newEggHolder != null) {
+            locator.atPlayer(newEggHolder);
+            newHolderId = newEggHolder.getUniqueId();
+        } else {
+            // The egg left the holder's inventory without an event that says where it went
+            EggLocator.Position position = locator.getPosition();
+            Player lastHolder = position.kind() == EggLocator.Kind.PLAYER ? Bukkit.getPlayer(position.playerId()) : null;
+            if (lastHolder != null) {
+                locator.lostTrack(lastHolder);
             }
+            // A holder who logged out with the egg still holds it
+            newHolderId = locator.getOfflineHolderId();
+        }
 
-            if (newEggHolder != null && currentEggHolder == null) {
-                // If a new player picked up the egg
-                onEggPickedUp(newEggHolder);
-            }
+        previousEggHolder = currentEggHolder;
+        if (newEggHolder != null || currentEggHolder == null || !currentEggHolder.getUniqueId().equals(newHolderId)) {
+            currentEggHolder = newEggHolder;
+        }
+        race.observeHolder(elapsed, newHolderId);
+        arena.updateLeaderboard(currentEggHolder); // Hold time of the holder, sidebar
+
+        // Check if it's currently night in the arena's main world (usually its Overworld);
+        // the transition from day to night clears all footprints (onNightStarted)
+        race.observeNight(elapsed, isNight(arena.getDayWorld()));
+
+        sampleHolder(now);
 
-            currentEggHolder = newEggHolder; // Update the current egg holder
+        expireFootprints(); // Remove footprints older than 5 days
+        footprintRenderer.tick(footprints);
+        footprintVisibility.tick(footprints);
+    }
+
+    /**
+     * Records the current holder's position in the trail and leaves a footprint if it's not night,
+     * then schedules the next sample. Runs as part of every full pass and on its own in between.
+     *
+     * @param now The current server tick.
+     */
+    void sampleHolder(long now) {
+        Player holder = currentEggHolder;
+        if (holder == null || !holder.isOnline()) {
+            trails.endSession();
+            lastSampleWorld = null;
+            sampleInterval = (int) FULL_PASS_INTERVAL_TICKS;
+            nextSampleTick = now + FULL_PASS_INTERVAL_TICKS; // Nothing to sample until the next full pass
+            return;
         }
 
-        // Check if it's currently night in the main world (usually Overworld)
-        World mainWorld = Bukkit.getWorlds().get(0);
-        boolean isCurrentNight = isNight(mainWorld);
+        // Record the holder's path day and night; a new holder starts a new trail session
+        trails.record(holder, now);
 
-        // If it transitions from day to night, clear all footprints
-        if (!wasNightLastTick && isCurrentNight) {
-            clearAllFootprints();
-            plugin.broadcastMessage(ChatColor.DARK_GRAY + "🌙 밤이 되어 모든 발자국이 사라졌습니다.");
+        holder.getLocation(sampleLocation);
+        // Create footprints only if it's not night
+        if (!arena.getRaceState().isNight()) {
+            createFootprint(holder, sampleLocation);
+        }
+        sampleCount++;
+
+        sampleInterval = nextSampleInterval(now);
+        nextSampleTick = now + sampleInterval;
+    }
+
+    /**
+     * Picks the ticks until the next sample from the holder's speed since the previous sample and the server load.
+     */
+    private int nextSampleInterval(long now) {
+        int interval = maxSampleInterval; // 멈춰 있거나 처음 샘플이면 가장 느리게
+        World world = sampleLocation.getWorld();
+        if (world == lastSampleWorld && now > lastSampleTick) {
+            double dx = sampleLocation.getX() - lastSampleX;
+            double dy = sampleLocation.getY() - lastSampleY;
+            double dz = sampleLocation.getZ() - lastSampleZ;
+            double blocksPerTick = Math.sqrt(dx * dx + dy * dy + dz * dz) / (now - lastSampleTick);
+            if (blocksPerTick > 0) {
+                // 다음 샘플까지 발자국 간격만큼 이동하도록 (겉날개, 말 등 빠른 이동도 발자국이 끊기지 않게)
+                interval = (int) Math.min(maxSampleInterval, Math.ceil(FOOTPRINT_SPACING / blocksPerTick));
+            }
         }
+        interval = Math.max(minSampleInterval, interval);
 
-        // Create footprints only if the current egg holder is online AND it's not night
-        if (currentEggHolder != null && currentEggHolder.isOnline() && !isCurrentNight) {
-            createFootprint(currentEggHolder);
+        // 서버가 느려지면 간격을 부하에 비례해 늘림
+        double mspt = Bukkit.getAverageTickTime();
+        if (mspt > msptBudget) {
+            interval = (int) Math.min(maxSampleInterval, Math.ceil(interval * mspt / msptBudget));
         }
 
-        cleanupOldFootprints(); // Periodically remove old footprints for performance
-        wasNightLastTick = isCurrentNight; // Save current night status for the next tick
+        lastSampleWorld = world;
+        lastSampleX = sampleLocation.getX();
+        lastSampleY = sampleLocation.getY();
+        lastSampleZ = sampleLocation.getZ();
+        lastSampleTick = now;
+        return interval;
     }
 
     /**
      * Finds and returns the online player who currently holds the Dragon Egg.
+     * Only players marked dirty by inventory events are re-checked; a periodic
+     * full scan repairs the index in case an event was missed.
      *
      * @return The player holding the Dragon Egg, or null if no one has it.
      */
     private Player findDragonEggHolder() {
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            if (hasDragonEgg(player)) {
-                return player;
+        if (++passesSinceRepair >= HOLDER_REPAIR_INTERVAL) {
+            passesSinceRepair = 0;
+            if (holderIndex.repair()) {
+                plugin.getLogger().warning("드래곤 알 보유자 인덱스가 실제 인벤토리와 달라 복구했습니다. (누적 "
+                        + holderIndex.getRepairMismatchCount() + "회)");
             }
+        } else {
+            holderIndex.refresh();
         }
-        return null;
+        return holderIndex.getHolder();
     }
 
     /**
@@ -125,20 +291,13 @@ public class DragonEggTracker {
      * @return True if the player has the egg, false otherwise.
      */
     public boolean hasDragonEgg(Player player) {
-        for (ItemStack item : player.getInventory().getContents()) {
-            if (item != null && item.getType() == Material.DRAGON_EGG) {
-                return true;
-            }
-        }
-        return false;
+        return holderIndex.hasDragonEgg(player);
     }
 
     /**
      * Creates a footprint if conditions are met (no recent footprint nearby)
      */
-    private void createFootprint(Player player) {
-        Location loc = player.getLocation();
-
+    private void createFootprint(Player player, Location loc) {
         // 5블록 내에 발자국이 있으면 생성하지 않음
         if (hasRecentFootprintNearby(player, loc)) {
             return;
@@ -161,24 +320,20 @@ public class DragonEggTracker {
 
     /**
      * Checks if the player's last footprint is too close to the current location.
+     * Reads the stored coordinates without touching any entity.
      *
      * @param player The player to check.
      * @param loc The current location.
-     * @return True if a recent footprint is nearby, false otherwise.
+     * @return True if a footprint is nearby, false otherwise.
      */
     private boolean hasRecentFootprintNearby(Player player, Location loc) {
-        List<BlockDisplay> footprints = playerFootprints.get(player.getUniqueId());
-        if (footprints == null || footprints.isEmpty()) {
-            return false;
-        }
-
-        // 마지막 발자국과의 거리 확인 (5블록 이내면 생성하지 않음)
-        BlockDisplay lastFootprint = footprints.get(footprints.size() - 1);
-        return lastFootprint.getLocation().distance(loc) < 5.0;
+        return footprints.isLastFootprintWithin(player.getUniqueId(), loc.getWorld(),
+                loc.getX(), loc.getY(), loc.getZ(), FOOTPRINT_SPACING);
     }
 
     /**
-     * Creates an arrow-shaped BlockDisplay entity indicating the player's movement direction.
+     * Records an arrow-shaped footprint indicating the player's movement direction
+     * and lets the renderer show it.
      *
      * @param player The player leaving the footprint.
      * @param loc The location where the footprint will be created.
@@ -193,7 +348,7 @@ public class DragonEggTracker {
 
         // 플레이어가 멈춰있을 때는 바라보는 방향 사용
         if (velocity.lengthSquared() < 0.01) {
-            directionYaw = player.getLocation().getYaw();
+            directionYaw = loc.getYaw();
         } else {
             // 속도 벡터를 기반으로 방향 계산
             directionYaw = (float) Math.toDegrees(Math.atan2(-velocity.getX(), velocity.getZ()));
@@ -203,92 +358,115 @@ public class DragonEggTracker {
         while (directionYaw < -180) directionYaw += 360;
         while (directionYaw > 180) directionYaw -= 360;
 
-        // Create a BlockDisplay entity (arrow shape)
-        BlockDisplay arrow = (BlockDisplay) world.spawnEntity(
-                loc.clone().add(0, 0.1, 0), // Slightly above the player's feet to prevent clipping
-                EntityType.BLOCK_DISPLAY
-        );
-
-        // Set the block data for the arrow (purple concrete)
-        BlockData arrowBlock = Material.PURPLE_CONCRETE.createBlockData();
-        arrow.setBlock(arrowBlock);
-
-        // Configure the transformation (position, rotation, scale) for the arrow
-        Transformation transformation = new Transformation(
-                new Vector3f(0, 0, 0), // translation: Entity's pivot point (fixed at 0,0,0)
-                new AxisAngle4f(0, (float) Math.toRadians(directionYaw), 0, 1), // rotation: Rotate around Y-axis based on movement direction
-                new Vector3f(0.3f, 0.05f, 0.8f), // scale: X, Y, Z axis scale (creates a thin, long arrow shape)
-                new AxisAngle4f(0, 0, 0, 1) // left rotation: Not used here
-        );
-        arrow.setTransformation(transformation);
-
-        // Apply glowing effect and color
-        arrow.setGlowing(true);
-        // If your server is older than 1.17, comment out the line below:
-        arrow.setGlowColorOverride(Color.RED);
-
-        // Display settings: brightness and view range (10블록 내에서만 보이도록)
-        arrow.setBrightness(new Display.Brightness(15, 15)); // Maximum brightness
-        arrow.setViewRange(10.0f); // 10블록 내에서만 보임
-
-        // Add the footprint to the player's list of footprints
-        playerFootprints.computeIfAbsent(player.getUniqueId(), k -> new ArrayList<>()).add(arrow);
+        // Add the footprint to the spatial index, slightly above the player's feet to prevent clipping
+        long now = Bukkit.getCurrentTick();
+        int slot = footprints.add(player.getUniqueId(), world, loc.getX(), loc.getY() + 0.1, loc.getZ(), directionYaw, now);
+        footprintRenderer.onAdded(footprints, slot, world);
 
         // Remove the footprint after 5 days (120000 ticks)
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            if (!arrow.isDead()) { // Only remove if it hasn't been removed already
-                arrow.remove();
-                // 리스트에서도 제거
-                List<BlockDisplay> footprints = playerFootprints.get(player.getUniqueId());
-                if (footprints != null) {
-                    footprints.remove(arrow);
-                }
-            }
-        }, 120000L); // 5일 후 자동 제거
+        footprintExpiry.schedule(slot, footprints.getId(slot), now + FOOTPRINT_LIFETIME_TICKS);
     }
 
     /**
-     * Cleans up old (dead or invalid) footprint entities from the list.
+     * Advances the expiry wheel and removes footprints whose lifetime has passed.
      */
-    private void cleanupOldFootprints() {
-        for (UUID playerId : new ArrayList<>(playerFootprints.keySet())) {
-            List<BlockDisplay> footprints = playerFootprints.get(playerId);
-            if (footprints != null) {
-                // Remove entities that are dead or no longer valid
-                footprints.removeIf(display -> !display.isValid() || display.isDead());
+    private void expireFootprints() {
+        footprintExpiry.advance(Bukkit.getCurrentTick(), MAX_EXPIRATIONS_PER_PASS, expiryHandler);
+    }
 
-                // 빈 리스트는 맵에서 제거
-                if (footprints.isEmpty()) {
-                    playerFootprints.remove(playerId);
-                }
-            }
+    private void expireFootprint(int slot, long id) {
+        // 이미 지워진 발자국(밤, 알 분실 등)이면 슬롯이 재사용되었을 수 있으므로 id로 확인
+        if (footprints.isCurrent(slot, id)) {
+            removeFootprint(slot);
         }
     }
 
     /**
-     * Logic executed when a player loses the Dragon Egg.
-     * Creates a purple beacon at their location and clears their footprints.
+     * Removes one footprint from the renderer and the index.
      *
-     * @param player The player who lost the egg.
+     * @param slot The footprint slot in the index.
      */
-    private void onEggLost(Player player) {
+    private void removeFootprint(int slot) {
+        footprintRenderer.onRemoved(footprints, slot);
+        footprints.remove(slot);
+    }
+
+    /**
+     * Forwards loaded chunk entities to the footprint renderer.
+     * Called by `GameEventListener` when a chunk's entities are loaded.
+     *
+     * @param chunk The chunk whose entities were loaded.
+     * @param entities The loaded entities.
+     */
+    public void onEntitiesLoad(Chunk chunk, List<Entity> entities) {
+        footprintRenderer.onEntitiesLoad(footprints, chunk, entities);
+        footprintVisibility.onEntitiesLoad(footprints, entities);
+    }
+
+    /**
+     * Logic executed when the previous holder lost the Dragon Egg (death, dropping it, etc.).
+     * Creates a purple beacon at their location and clears their footprints.
+     * Called by the race state machine while the tracking pass observes the holder.
+     */
+    void onEggLost(UUID playerId) {
+        Player player = previousEggHolder;
+        if (player == null) {
+            // Restored as an offline holder and never seen since: no location for a beacon
+            arena.broadcast("egg-lost", "player", playerName(playerId));
+            return;
+        }
         createBeacon(player.getLocation()); // Create a purple beacon at the location
         clearPlayerFootprints(player);      // Clear the player's footprints
 
-        plugin.broadcastMessage("💀 " + player.getName() + "이(가) 드래곤 알을 잃었습니다!");
-        plugin.broadcastMessage("🔮 보라색 신호기가 설치되었습니다!");
+        arena.broadcast("egg-lost", "player", player.getName());
     }
 
     /**
-     * Logic executed when a player picks up the Dragon Egg.
+     * Logic executed when a new player picked up the Dragon Egg.
      * Removes all active beacons in the world.
-     *
-     * @param player The player who picked up the egg.
+     * Called by the race state machine while the tracking pass observes the holder.
      */
-    private void onEggPickedUp(Player player) {
+    void onEggPickedUp(UUID playerId) {
         clearAllBeacons(); // Remove all previously generated beacons
-        plugin.broadcastMessage("✨ " + player.getName() + "이(가) 드래곤 알을 획득했습니다!");
-        plugin.broadcastMessage("✨ 신호기가 사라졌습니다!");
+        arena.broadcast("egg-picked-up", "player", playerName(playerId));
+    }
+
+    // Name of a holder who may be offline
+    private String playerName(UUID playerId) {
+        if (currentEggHolder != null && currentEggHolder.getUniqueId().equals(playerId)) {
+            return currentEggHolder.getName();
+        }
+        EggLocator.Position position = locator.getPosition();
+        if (playerId.equals(position.playerId()) && position.playerName() != null) {
+            return position.playerName();
+        }
+        String name = Bukkit.getOfflinePlayer(playerId).getName();
+        return name != null ? name : playerId.toString();
+    }
+
+    /**
+     * Logic executed when day turns into night: all footprints vanish.
+     * Called by the race state machine.
+     */
+    void onNightStarted() {
+        nightSweep.start(footprints); // Removed over the next ticks, see sweepFootprints()
+        footprintExpiry.clear(); // Nothing left to expire
+        arena.broadcast("night-footprints-cleared");
+    }
+
+    /**
+     * Returns whether the nightfall sweep still has footprints to remove.
+     */
+    boolean isSweeping() {
+        return nightSweep.isActive();
+    }
+
+    /**
+     * Removes the next footprints of the nightfall sweep. Called by the shared tracking task
+     * on every tick while {@link #isSweeping()}.
+     */
+    void sweepFootprints() {
+        nightSweep.tick(footprints, this::removeFootprint);
     }
 
     /**
@@ -300,56 +478,67 @@ public class DragonEggTracker {
         World world = loc.getWorld();
         if (world == null) return;
 
-        // Center base location for the beacon (1 block below player's feet)
-        Location beaconBaseCenter = loc.clone().subtract(0, 1, 0);
+        int blockX = loc.getBlockX();
+        int blockY = loc.getBlockY();
+        int blockZ = loc.getBlockZ();
+        // All blocks of the structure are queued as one job and applied in the next tick
+        StructurePlacer.Job job = plugin.getStructurePlacer().newJob("beacon-place", null);
+        // Each placed block is recorded in its chunk, so it can be found again after a crash
+        UUID gameId = arena.getGameId();
+        job.markIn((chunk, x, y, z) -> plugin.getOrphanCleaner().markBeaconBlock(chunk, gameId, x, y, z));
 
-        // Place 3x3 diamond block base for the beacon
+        // Place 3x3 diamond block base for the beacon (1 block below player's feet)
         for (int x = -1; x <= 1; x++) {
             for (int z = -1; z <= 1; z++) {
-                Block baseBlock = beaconBaseCenter.clone().add(x, 0, z).getBlock();
-                baseBlock.setType(Material.DIAMOND_BLOCK);
-                beaconLocations.add(baseBlock.getLocation()); // Store base block location for cleanup
+                job.set(world, blockX + x, blockY - 1, blockZ + z, Material.DIAMOND_BLOCK);
+                beaconBlocks.add(world, blockX + x, blockY - 1, blockZ + z); // Store base block position for cleanup
+                arena.getJournal().beaconPlaced(new Location(world, blockX + x, blockY - 1, blockZ + z));
             }
         }
 
-        // Place the beacon block at the player's feet location
-        Location beaconLoc = loc.clone();
-        beaconLoc.setY(Math.floor(beaconLoc.getY())); // 정확한 블록 위치로 조정
-        Block beaconBlock = beaconLoc.getBlock();
-        beaconBlock.setType(Material.BEACON);
-        beaconLocations.add(beaconLoc); // Store beacon block location
-
-        // Purple particle effect around the beacon
-        world.spawnParticle(
-                Particle.WITCH, // Witch particles (purple-ish)
-                beaconLoc.clone().add(0.5, 1, 0.5), // Center of the beacon, slightly above
-                50, 1, 1, 1, 0.1 // Amount, spread, speed
-        );
-
-        // Beacon activation sound
-        world.playSound(beaconLoc, Sound.BLOCK_BEACON_ACTIVATE, 1.0f, 1.0f);
+        // Place the beacon block at the player's feet location (block-aligned, so it is protected like the base)
+        Location beaconLoc = new Location(world, blockX, blockY, blockZ);
+        job.set(world, blockX, blockY, blockZ, Material.BEACON);
+        beaconBlocks.add(world, blockX, blockY, blockZ); // Store beacon block position
+        arena.getJournal().beaconPlaced(beaconLoc);
+        plugin.getStructurePlacer().submit(job);
+
+        // Effects run on the region that owns the beacon (right away on a Bukkit server)
+        plugin.getTaskScheduler().executeAt(beaconLoc, () -> {
+            // Purple particle effect around the beacon
+            world.spawnParticle(
+                    Particle.WITCH, // Witch particles (purple-ish)
+                    beaconLoc.clone().add(0.5, 1, 0.5), // Center of the beacon, slightly above
+                    50, 1, 1, 1, 0.1 // Amount, spread, speed
+            );
+
+            // Beacon activation sound
+            world.playSound(beaconLoc, Sound.BLOCK_BEACON_ACTIVATE, 1.0f, 1.0f);
+        });
     }
 
     /**
      * Removes all beacons and their base blocks created by the plugin in the world.
      */
     private void clearAllBeacons() {
-        for (Location beaconLoc : new HashSet<>(beaconLocations)) {
-            Block block = beaconLoc.getBlock();
-
-            // Only remove if it's a beacon or a diamond block
-            if (block.getType() == Material.BEACON || block.getType() == Material.DIAMOND_BLOCK) {
-                block.setType(Material.AIR); // Set block to air
-
-                // Smoke particle effect when removed
-                beaconLoc.getWorld().spawnParticle(
-                        Particle.LARGE_SMOKE,
-                        beaconLoc.clone().add(0.5, 0.5, 0.5), // Center of the block
-                        20, 0.5, 0.5, 0.5, 0.1
-                );
+        if (beaconBlocks.isEmpty()) return;
+
+        // The blocks stay protected until the job has removed them, which may take several chunk loads
+        List<Location> cleared = new ArrayList<>(beaconBlocks.size());
+        StructurePlacer.Job job = plugin.getStructurePlacer().newJob("beacon-clear", done -> {
+            for (Location location : cleared) {
+                beaconBlocks.remove(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
             }
-        }
-        beaconLocations.clear(); // Clear the list of beacon locations
+        });
+        job.markIn(plugin.getOrphanCleaner()::unmarkBeaconBlock);
+        // Removed chunk by chunk over the next ticks; chunks that are not loaded are loaded asynchronously
+        // Only remove if it's still a beacon or a diamond block; one smoke burst per beacon structure
+        beaconBlocks.forEach((world, x, y, z) -> {
+            job.remove(world, x, y, z, BEACON_BLOCK_TYPES, Material.BEACON);
+            cleared.add(new Location(world, x, y, z));
+        });
+        plugin.getStructurePlacer().submit(job);
+        arena.getJournal().beaconsCleared();
     }
 
     /**
@@ -358,47 +547,131 @@ public class DragonEggTracker {
      * @param player The player whose footprints to clear.
      */
     private void clearPlayerFootprints(Player player) {
-        List<BlockDisplay> footprints = playerFootprints.get(player.getUniqueId());
-        if (footprints != null) {
-            for (BlockDisplay footprint : new ArrayList<>(footprints)) {
-                if (!footprint.isDead()) { // Only remove if it hasn't been removed already
-                    footprint.remove(); // Remove the entity
-                }
-            }
-            footprints.clear(); // Clear the list
-        }
+        footprints.forEachOfOwner(player.getUniqueId(), this::removeFootprint);
     }
 
     /**
      * Removes all footprint entities left by all players.
      */
     private void clearAllFootprints() {
-        for (List<BlockDisplay> footprints : playerFootprints.values()) {
-            for (BlockDisplay footprint : footprints) {
-                if (!footprint.isDead()) {
-                    footprint.remove();
-                }
-            }
-        }
-        playerFootprints.clear(); // Clear the entire map
+        nightSweep.cancel();
+        footprints.forEach(this::removeFootprint);
+        footprintExpiry.clear(); // Nothing left to expire
     }
 
     /**
-     * Cleans up all tracking-related elements when the plugin is disabled.
+     * Cleans up tracking-related elements when the plugin is disabled.
+     * Beacons stay in the world: they are persisted by the game state journal
+     * and handed back through {@link #restore(GameStateJournal.State)} when the game resumes.
      */
     public void cleanup() {
-        stopTracking();
+        tracking = false;
+        holderIndex.reset();
+        trails.close(); // Write the rest of the trail to disk
         clearAllFootprints();
-        clearAllBeacons();
+        footprintVisibility.clear();
+    }
+
+    /**
+     * Restores the beacon locations of a game recovered from the journal; the recorded holder is
+     * handed to the race state machine by the arena. Must be called before {@link #startTracking()}.
+     *
+     * @param state The recovered game state.
+     */
+    public void restore(GameStateJournal.State state) {
+        beaconBlocks.clear();
+        for (GameStateJournal.BeaconBlock beacon : state.getBeacons()) {
+            World world = Bukkit.getWorld(beacon.worldId());
+            if (world != null) {
+                beaconBlocks.add(world, beacon.x(), beacon.y(), beacon.z());
+            }
+        }
+    }
+
+    /**
+     * Returns the positions of beacon and base blocks created in the game.
+     * `GameEventListener` uses it to keep these blocks from being broken, blown up or moved.
+     *
+     * @return The protected block index. Callers must not modify it.
+     */
+    public ProtectedBlockIndex getBeaconBlocks() {
+        return beaconBlocks;
+    }
+
+    /**
+     * Returns the footprint index. Package-private for the benchmarks module.
+     *
+     * @return The footprint store.
+     */
+    FootprintStore getFootprints() {
+        return footprints;
+    }
+
+    /**
+     * Returns the event-driven index of the current egg holder.
+     * `GameEventListener` marks players dirty in it when their inventory may have changed.
+     *
+     * @return The holder index.
+     */
+    public EggHolderIndex getHolderIndex() {
+        return holderIndex;
+    }
+
+    /**
+     * Returns where the egg is, including when no online player holds it.
+     * `GameEventListener` reports the events that move the egg to it.
+     *
+     * @return The egg locator.
+     */
+    public EggLocator getLocator() {
+        return locator;
+    }
+
+    /**
+     * Returns the nightfall sweep, e.g. for its metrics.
+     */
+    public FootprintSweep getNightSweep() {
+        return nightSweep;
+    }
+
+    /**
+     * Returns the current ticks between two holder samples.
+     */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Returns how many times the holder's position has been sampled.
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Returns the per-player footprint visibility, e.g. for its metrics.
+     *
+     * @return The footprint visibility manager.
+     */
+    public FootprintVisibility getFootprintVisibility() {
+        return footprintVisibility;
+    }
+
+    /**
+     * Returns the recorder of the holders' paths, e.g. to export a heatmap.
+     *
+     * @return The trail recorder.
+     */
+    public TrailRecorder getTrails() {
+        return trails;
     }
 
     /**
-     * Returns an unmodifiable set of beacon and base block locations created in the game.
-     * This list is used by `GameEventListener` to prevent breaking these blocks.
+     * Returns the active footprint renderer, e.g. to check how many footprint entities exist.
      *
-     * @return An unmodifiable set of beacon and base block locations.
+     * @return The footprint renderer.
      */
-    public Set<Location> getBeaconLocations() {
-        return Collections.unmodifiableSet(beaconLocations); // Return an unmodifiable set to prevent external modification
+    public FootprintRenderer getFootprintRenderer() {
+        return footprintRenderer;
     }
 }
\ No newline at end of file
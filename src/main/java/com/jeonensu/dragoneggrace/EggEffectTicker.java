@@ -0,0 +1,100 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.entity.Item;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Emits the purple particle effect for every dropped Dragon Egg item from a single task.
+ * <p>
+ * Items are held weakly and dropped as soon as they are picked up, despawn or stop being an egg.
+ * The task only runs while at least one item is tracked. On a region-threaded server the particles
+ * of each item are spawned by the region that owns it.
+ */
+public class EggEffectTicker {
+
+    // Every 0.5 seconds (10 ticks)
+    private static final long PERIOD_TICKS = 10L;
+
+    private final DragonEggRacePlugin plugin;
+    private final Set<Item> trackedItems = Collections.newSetFromMap(new WeakHashMap<>());
+    // Reused for every particle location so a pass doesn't allocate
+    private final Location scratch = new Location(null, 0, 0, 0);
+    private TaskScheduler.Task task;
+
+    public EggEffectTicker(DragonEggRacePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Starts emitting particles for a dropped egg item.
+     *
+     * @param item The egg item entity.
+     */
+    public void track(Item item) {
+        trackedItems.add(item);
+        if (task == null) {
+            task = plugin.getTaskScheduler().runGlobalTimer(this::tick, 1L, PERIOD_TICKS);
+        }
+    }
+
+    /**
+     * Stops all effects and the task.
+     */
+    public void stop() {
+        trackedItems.clear();
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Returns the number of egg items that currently get particles.
+     *
+     * @return The number of active effects.
+     */
+    public int getActiveEffectCount() {
+        return trackedItems.size();
+    }
+
+    private void tick() {
+        TaskScheduler scheduler = plugin.getTaskScheduler();
+        Iterator<Item> iterator = trackedItems.iterator();
+        while (iterator.hasNext()) {
+            Item item = iterator.next();
+            if (item.isDead() || !item.isValid() || item.getItemStack().getType() != Material.DRAGON_EGG) {
+                iterator.remove(); // 주워졌거나 사라진 아이템은 더 이상 추적하지 않음
+                continue;
+            }
+
+            if (scheduler.isRegionThreaded()) {
+                scheduler.executeOn(item, () -> emit(item, new Location(null, 0, 0, 0)));
+            } else {
+                emit(item, scratch);
+            }
+        }
+
+        if (trackedItems.isEmpty()) {
+            task.cancel(); // 추적할 아이템이 없으면 작업 중지
+            task = null;
+        }
+    }
+
+    private void emit(Item item, Location location) {
+        item.getLocation(location).add(0, 0.5, 0); // Adjust height
+        item.getWorld().spawnParticle(
+                Particle.REVERSE_PORTAL,
+                location,
+                5, // amount
+                0.2, 0.2, 0.2, // offset (spread)
+                0.0 // extra (speed)
+        );
+    }
+}
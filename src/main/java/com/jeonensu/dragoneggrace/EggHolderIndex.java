@@ -0,0 +1,225 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Keeps track of which player holds the Dragon Egg without scanning every online inventory.
+ * <p>
+ * Inventory-related events only mark the involved player as dirty. Because Bukkit fires those
+ * events before the inventory actually changes, the dirty players are resolved lazily on the
+ * next tracking pass, so only their inventories are scanned. Looking up the holder is O(1).
+ * A low-frequency full scan ({@link #repair()}) corrects anything the events missed
+ * (commands, other plugins) and counts how often that happened.
+ * <p>
+ * The index also caches, per player, whether they carry the egg, so {@link #hasDragonEgg(Player)}
+ * usually returns a stored boolean without copying the inventory. A player's entry is only
+ * trusted again after the refresh that follows their last inventory event. With
+ * {@code debug.verify-egg-cache} every cache hit is checked against a real scan and mismatches
+ * are logged and counted.
+ * <p>
+ * Each arena has its own index that only looks at the arena's players and eggs.
+ */
+public class EggHolderIndex {
+
+    private final Arena arena;
+    private final Logger logger;
+    private final boolean verifyCache;
+
+    // Players whose inventory may have changed since the last refresh
+    private final Set<UUID> dirtyPlayers = new HashSet<>();
+    // Whether each clean player carries this arena's egg
+    private final Map<UUID, Boolean> eggCache = new HashMap<>();
+    // The player currently holding the egg, or null
+    private UUID holderId = null;
+
+    // Number of repair scans and how many of them found the index out of date
+    private long repairCount = 0;
+    private long repairMismatchCount = 0;
+    // Cache statistics
+    private long cacheHitCount = 0;
+    private long cacheMissCount = 0;
+    private long cacheMismatchCount = 0;
+
+    public EggHolderIndex(DragonEggRacePlugin plugin, Arena arena) {
+        this.arena = arena;
+        this.logger = plugin.getLogger();
+        this.verifyCache = plugin.getConfig().getBoolean("debug.verify-egg-cache", false);
+    }
+
+    /**
+     * Marks a player whose inventory may have changed. Their cached egg state is not used until the next refresh.
+     *
+     * @param player The player to re-check on the next refresh.
+     */
+    public void markDirty(Player player) {
+        dirtyPlayers.add(player.getUniqueId());
+    }
+
+    /**
+     * Re-checks only the players marked dirty since the last call.
+     */
+    public void refresh() {
+        if (dirtyPlayers.isEmpty()) {
+            return;
+        }
+
+        for (UUID playerId : dirtyPlayers) {
+            Player player = Bukkit.getPlayer(playerId);
+            // 다른 아레나의 월드로 이동한 플레이어는 이 아레나의 보유자가 아님
+            boolean hasEgg = false;
+            if (player != null && player.isOnline() && arena.contains(player)) {
+                hasEgg = scan(player);
+                eggCache.put(playerId, hasEgg);
+            } else {
+                eggCache.remove(playerId);
+            }
+
+            if (hasEgg) {
+                holderId = playerId;
+            } else if (playerId.equals(holderId)) {
+                holderId = null; // 알을 잃었거나 접속을 종료함
+            }
+        }
+        dirtyPlayers.clear();
+    }
+
+    /**
+     * Scans every player of the arena and fixes the index and the cache if they disagree with the real inventories.
+     *
+     * @return True if the holder was out of date.
+     */
+    public boolean repair() {
+        refresh(); // 이벤트로 이미 알고 있는 변경은 불일치로 세지 않음
+        repairCount++;
+
+        UUID scannedHolder = scanHolder();
+        if (scannedHolder == null ? holderId == null : scannedHolder.equals(holderId)) {
+            return false;
+        }
+
+        repairMismatchCount++;
+        holderId = scannedHolder;
+        return true;
+    }
+
+    /**
+     * Rebuilds the index from scratch with a full scan, e.g. when tracking starts.
+     */
+    public void rebuild() {
+        dirtyPlayers.clear();
+        eggCache.clear();
+        holderId = scanHolder();
+    }
+
+    // Scans every player (refilling the cache on the way) and returns the first one with the egg
+    private UUID scanHolder() {
+        UUID holder = null;
+        for (Player player : arena.getPlayers()) {
+            boolean hasEgg = scan(player);
+            Boolean cached = eggCache.put(player.getUniqueId(), hasEgg);
+            if (cached != null && cached != hasEgg) {
+                cacheMismatchCount++; // 이벤트로 알 수 없었던 인벤토리 변경
+            }
+            if (hasEgg && holder == null) {
+                holder = player.getUniqueId();
+            }
+        }
+        return holder;
+    }
+
+    /**
+     * Returns the online player holding the egg according to the index.
+     *
+     * @return The holder, or null if no one has it.
+     */
+    public Player getHolder() {
+        return holderId == null ? null : Bukkit.getPlayer(holderId);
+    }
+
+    /**
+     * Forgets the current holder and all pending dirty marks.
+     */
+    public void reset() {
+        dirtyPlayers.clear();
+        eggCache.clear();
+        holderId = null;
+    }
+
+    public long getRepairCount() {
+        return repairCount;
+    }
+
+    public long getRepairMismatchCount() {
+        return repairMismatchCount;
+    }
+
+    public long getCacheHitCount() {
+        return cacheHitCount;
+    }
+
+    public long getCacheMissCount() {
+        return cacheMissCount;
+    }
+
+    /**
+     * Returns how often a cached egg state turned out to be wrong, found by a repair scan or by the debug check.
+     */
+    public long getCacheMismatchCount() {
+        return cacheMismatchCount;
+    }
+
+    /**
+     * Checks if a specific player has this arena's Dragon Egg in their inventory.
+     * Uses the cached state unless the player's inventory may have changed since the last refresh.
+     *
+     * @param player The player to check.
+     * @return True if the player has the egg, false otherwise.
+     */
+    public boolean hasDragonEgg(Player player) {
+        UUID playerId = player.getUniqueId();
+        if (dirtyPlayers.contains(playerId)) {
+            cacheMissCount++;
+            return scan(player); // 이벤트 직후라 인벤토리가 아직 바뀌지 않았을 수 있으므로 저장하지 않음
+        }
+
+        Boolean cached = eggCache.get(playerId);
+        if (cached == null) {
+            cacheMissCount++;
+            boolean hasEgg = scan(player);
+            eggCache.put(playerId, hasEgg);
+            return hasEgg;
+        }
+
+        cacheHitCount++;
+        if (verifyCache) {
+            boolean actual = scan(player);
+            if (actual != cached) {
+                cacheMismatchCount++;
+                logger.warning("드래곤 알 캐시가 실제 인벤토리와 다릅니다: " + player.getName()
+                        + " (캐시 " + cached + ", 실제 " + actual + ")");
+                eggCache.put(playerId, actual);
+                return actual;
+            }
+        }
+        return cached;
+    }
+
+    // Copies and scans the whole inventory
+    private boolean scan(Player player) {
+        for (ItemStack item : player.getInventory().getContents()) {
+            if (arena.isEgg(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,259 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Knows where the arena's one Dragon Egg is: with an online or offline player, in a container block
+ * or a player's ender chest, as an item entity, or carried by another entity (hopper minecart, fox).
+ * <p>
+ * The position is an immutable {@link Position} replaced by the events that move the egg (pickup,
+ * item spawn, hopper moves, closing a container, quit and join) and by the tracking pass, which
+ * confirms online holders. Nothing scans loaded containers or entities; looking up the position is
+ * a field read. Every change is saved in the journal, so the position survives a restart.
+ * <p>
+ * An egg that leaves a player's inventory without any of these events (another plugin, an egg nested
+ * in a shulker box item) is reported as {@link Kind#UNKNOWN}, last seen with that player.
+ */
+public class EggLocator {
+
+    /**
+     * Where the egg is.
+     */
+    public enum Kind {
+        /** Not seen in this game yet, or lost track of; the coordinates are the last known ones. */
+        UNKNOWN,
+        /** In an online player's inventory. */
+        PLAYER,
+        /** In the inventory of a player who logged out with it. */
+        OFFLINE_PLAYER,
+        /** In a container block (chest, barrel, shulker box, hopper...). */
+        CONTAINER,
+        /** In a player's ender chest. */
+        ENDER_CHEST,
+        /** A dropped item entity. */
+        ITEM,
+        /** In the inventory of a non-player entity (hopper minecart, fox, allay...). */
+        ENTITY
+    }
+
+    /**
+     * One known position of the egg.
+     *
+     * @param kind Where the egg is.
+     * @param playerId The player of {@code PLAYER}, {@code OFFLINE_PLAYER}, {@code ENDER_CHEST}
+     *                 (and the last one seen with it for {@code UNKNOWN}), otherwise null.
+     * @param playerName That player's name.
+     * @param entityId The item entity or carrying entity, otherwise null.
+     * @param worldId World of the coordinates, null if never seen.
+     */
+    public record Position(Kind kind, UUID playerId, String playerName, UUID entityId,
+                           UUID worldId, double x, double y, double z) {
+    }
+
+    private static final Position NOWHERE = new Position(Kind.UNKNOWN, null, null, null, null, 0, 0, 0);
+
+    private final Arena arena;
+    private Position position = NOWHERE;
+    private long changeCount = 0;
+
+    public EggLocator(Arena arena) {
+        this.arena = arena;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the player who has the egg in their inventory, online or not, or null.
+     */
+    public UUID getHolderId() {
+        Kind kind = position.kind();
+        return kind == Kind.PLAYER || kind == Kind.OFFLINE_PLAYER ? position.playerId() : null;
+    }
+
+    /**
+     * Returns the player who logged out with the egg, or null.
+     */
+    public UUID getOfflineHolderId() {
+        return position.kind() == Kind.OFFLINE_PLAYER ? position.playerId() : null;
+    }
+
+    /**
+     * Records that an online player has the egg. Cheap when nothing changed, since the tracking
+     * pass calls it for the holder every second.
+     */
+    public void atPlayer(Player player) {
+        if (position.kind() == Kind.PLAYER && position.playerId().equals(player.getUniqueId())) {
+            return;
+        }
+        set(Kind.PLAYER, player.getUniqueId(), player.getName(), null, player.getLocation());
+    }
+
+    /**
+     * Records that the holder logged out with the egg.
+     */
+    public void onQuit(Player player) {
+        if (position.kind() == Kind.PLAYER && position.playerId().equals(player.getUniqueId())) {
+            set(Kind.OFFLINE_PLAYER, player.getUniqueId(), player.getName(), null, player.getLocation());
+        }
+    }
+
+    /**
+     * Records that the player who logged out with the egg is back.
+     */
+    public void onJoin(Player player) {
+        if (player.getUniqueId().equals(getOfflineHolderId())) {
+            set(Kind.PLAYER, player.getUniqueId(), player.getName(), null, player.getLocation());
+        }
+    }
+
+    /**
+     * Records that the egg went into an inventory: a container block, an ender chest, a player or another entity.
+     *
+     * @param inventory The inventory now holding the egg.
+     * @param viewer The player who put it there, used for ender chests; may be null.
+     */
+    public void inInventory(Inventory inventory, Player viewer) {
+        if (inventory.getType() == InventoryType.ENDER_CHEST && viewer != null) {
+            set(Kind.ENDER_CHEST, viewer.getUniqueId(), viewer.getName(), null, viewer.getLocation());
+        } else if (inventory.getHolder() instanceof Player player) {
+            atPlayer(player);
+        } else if (inventory.getHolder() instanceof Entity entity) {
+            set(Kind.ENTITY, null, null, entity.getUniqueId(), entity.getLocation());
+        } else if (inventory.getLocation() != null) {
+            set(Kind.CONTAINER, null, null, null, inventory.getLocation());
+        }
+    }
+
+    /**
+     * Records that a non-player entity picked up the egg (fox, allay...).
+     */
+    public void carriedBy(Entity entity) {
+        set(Kind.ENTITY, null, null, entity.getUniqueId(), entity.getLocation());
+    }
+
+    /**
+     * Records that the egg is an item entity now (dropped, thrown out of a container, death drop).
+     */
+    public void asItem(Item item) {
+        if (position.kind() == Kind.ITEM && item.getUniqueId().equals(position.entityId())) {
+            return;
+        }
+        set(Kind.ITEM, null, null, item.getUniqueId(), item.getLocation());
+    }
+
+    /**
+     * Records that the egg left a player's inventory without an event that says where to,
+     * e.g. when the holder index no longer finds it with the player the locator knows.
+     */
+    public void lostTrack(Player lastSeenWith) {
+        set(Kind.UNKNOWN, lastSeenWith.getUniqueId(), lastSeenWith.getName(), null, lastSeenWith.getLocation());
+    }
+
+    /**
+     * Records that the item entity carrying the egg is gone (despawned, destroyed).
+     */
+    public void onItemGone(Item item) {
+        if (position.kind() == Kind.ITEM && item.getUniqueId().equals(position.entityId())) {
+            set(Kind.UNKNOWN, null, null, null, item.getLocation());
+        }
+    }
+
+    /**
+     * Checks whether an inventory is where the locator thinks the egg is.
+     */
+    public boolean isIn(Inventory inventory, Player viewer) {
+        return switch (position.kind()) {
+            case ENDER_CHEST -> inventory.getType() == InventoryType.ENDER_CHEST && viewer != null
+                    && viewer.getUniqueId().equals(position.playerId());
+            case CONTAINER -> isAtBlock(inventory.getLocation());
+            case ENTITY -> inventory.getHolder() instanceof Entity entity && entity.getUniqueId().equals(position.entityId());
+            default -> false;
+        };
+    }
+
+    /**
+     * Checks whether the egg is in the container at a block.
+     */
+    public boolean isAtBlock(Location location) {
+        return position.kind() == Kind.CONTAINER && location != null && location.getWorld() != null
+                && location.getWorld().getUID().equals(position.worldId())
+                && location.getBlockX() == (int) Math.floor(position.x())
+                && location.getBlockY() == (int) Math.floor(position.y())
+                && location.getBlockZ() == (int) Math.floor(position.z());
+    }
+
+    /**
+     * Returns where the egg is now: the live location of a player or entity if it is loaded,
+     * otherwise the last known coordinates.
+     *
+     * @return The location, or null if the egg was never seen.
+     */
+    public Location resolve() {
+        if (position.kind() == Kind.PLAYER) {
+            Player player = Bukkit.getPlayer(position.playerId());
+            if (player != null) {
+                return player.getLocation();
+            }
+        } else if (position.entityId() != null) {
+            Entity entity = Bukkit.getEntity(position.entityId());
+            if (entity != null && entity.isValid()) {
+                return entity.getLocation();
+            }
+        }
+        World world = position.worldId() != null ? Bukkit.getWorld(position.worldId()) : null;
+        return world != null ? new Location(world, position.x(), position.y(), position.z()) : null;
+    }
+
+    /**
+     * Restores the position saved in the journal. An online holder recorded before a crash who is not
+     * online anymore counts as offline.
+     */
+    public void restore(Position saved) {
+        position = saved != null ? saved : NOWHERE;
+        if (position.kind() == Kind.PLAYER && Bukkit.getPlayer(position.playerId()) == null) {
+            position = new Position(Kind.OFFLINE_PLAYER, position.playerId(), position.playerName(), null,
+                    position.worldId(), position.x(), position.y(), position.z());
+        }
+    }
+
+    /**
+     * Forgets the position, e.g. when a new game starts.
+     */
+    public void clear() {
+        position = NOWHERE;
+    }
+
+    /**
+     * Returns how often the egg's position changed.
+     */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    private void set(Kind kind, UUID playerId, String playerName, UUID entityId, Location location) {
+        World world = location != null ? location.getWorld() : null;
+        Position next = world == null
+                ? new Position(kind, playerId, playerName, entityId, position.worldId(), position.x(), position.y(), position.z())
+                : new Position(kind, playerId, playerName, entityId, world.getUID(), location.getX(), location.getY(), location.getZ());
+        if (Objects.equals(next, position)) {
+            return;
+        }
+        position = next;
+        changeCount++;
+        if (arena.isGameActive()) {
+            arena.getJournal().eggLocated(next);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Entity;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Renders every footprint as a real, persistent BlockDisplay entity for its whole lifetime.
+ * This is the original behavior: the entities are saved with their chunk and ticked by the server.
+ * <p>
+ * On a region-threaded server the entities are spawned and removed by the region that owns them;
+ * a spawned entity is attached to its footprint back on the global region, or removed again if the
+ * footprint is gone by then (e.g. cleared at nightfall).
+ */
+public class EntityFootprintRenderer implements FootprintRenderer {
+
+    public static final String MODE = "entity";
+
+    // Footprint entities that could not be removed because their chunk was unloaded, by chunk key
+    private final Map<Long, Set<UUID>> pendingRemovals = new HashMap<>();
+    private int liveEntities = 0;
+    private final FootprintVisibility visibility;
+    private final TaskScheduler scheduler;
+
+    public EntityFootprintRenderer(FootprintVisibility visibility, TaskScheduler scheduler) {
+        this.visibility = visibility;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void onAdded(FootprintStore store, int slot, World world) {
+        if (scheduler.isRegionThreaded()) {
+            spawnInRegion(store, slot, world);
+            return;
+        }
+        BlockDisplay arrow = FootprintDisplays.spawnArrow(world,
+                store.getX(slot), store.getY(slot), store.getZ(slot), store.getYaw(slot), true, !visibility.isEnabled());
+        store.attachDisplay(slot, arrow);
+        visibility.onSpawned(store, slot, arrow);
+        liveEntities++;
+    }
+
+    /**
+     * Removes the footprint entity.
+     * If the entity's chunk is not loaded, the removal is deferred until the chunk loads again.
+     */
+    @Override
+    public void onRemoved(FootprintStore store, int slot) {
+        BlockDisplay display = store.getDisplay(slot);
+        UUID entityId = store.getEntityId(slot);
+        if (entityId == null) {
+            return;
+        }
+
+        if (display != null && display.isValid()) {
+            scheduler.executeOn(display, display::remove);
+        } else {
+            // 청크가 다시 로드되면서 엔티티 객체가 바뀌었을 수 있으므로 UUID로 다시 찾음
+            Entity entity = Bukkit.getEntity(entityId);
+            if (entity != null) {
+                scheduler.executeOn(entity, entity::remove);
+            } else {
+                pendingRemovals.computeIfAbsent(store.getChunkKey(slot), k -> new HashSet<>()).add(entityId);
+            }
+        }
+        store.detachDisplay(slot);
+        liveEntities--;
+    }
+
+    // Folia: spawn in the region of the footprint, attach on the global region
+    private void spawnInRegion(FootprintStore store, int slot, World world) {
+        long id = store.getId(slot);
+        double x = store.getX(slot);
+        double y = store.getY(slot);
+        double z = store.getZ(slot);
+        float yaw = store.getYaw(slot);
+        scheduler.executeAt(world, (int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4, () -> {
+            BlockDisplay arrow = FootprintDisplays.spawnArrow(world, x, y, z, yaw, true, !visibility.isEnabled());
+            scheduler.runGlobal(() -> {
+                if (!store.isCurrent(slot, id)) {
+                    scheduler.executeOn(arrow, arrow::remove); // 그 사이에 지워진 발자국
+                    return;
+                }
+                store.attachDisplay(slot, arrow);
+                visibility.onSpawned(store, slot, arrow);
+                liveEntities++;
+            });
+        });
+    }
+
+    @Override
+    public void tick(FootprintStore store) {
+        // Entities live for the footprint's whole lifetime, nothing to update
+    }
+
+    /**
+     * Removes footprint entities whose removal was deferred while their chunk was unloaded.
+     */
+    @Override
+    public void onEntitiesLoad(FootprintStore store, Chunk chunk, List<Entity> entities) {
+        if (pendingRemovals.isEmpty()) {
+            return;
+        }
+
+        Set<UUID> pending = pendingRemovals.remove(store.findChunkKey(chunk.getWorld(), chunk.getX(), chunk.getZ()));
+        if (pending == null) {
+            return;
+        }
+        for (Entity entity : entities) {
+            if (pending.contains(entity.getUniqueId())) {
+                entity.remove();
+            }
+        }
+    }
+
+    @Override
+    public int getLiveEntityCount() {
+        return liveEntities;
+    }
+
+    @Override
+    public String getMode() {
+        return MODE;
+    }
+}
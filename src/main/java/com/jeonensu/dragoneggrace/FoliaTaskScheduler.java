@@ -0,0 +1,98 @@
+package com.jeonensu.dragoneggrace;
+
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.util.function.Predicate;
+
+/**
+ * Runs tasks on a region-threaded server (Folia): global tasks on the global region, region tasks
+ * on the region that owns the location or chunk, and entity tasks on the entity's scheduler, which
+ * follows the entity when it moves to another region.
+ */
+public class FoliaTaskScheduler implements TaskScheduler {
+
+    private final DragonEggRacePlugin plugin;
+    private final GlobalRegionScheduler global;
+    private final RegionScheduler regions;
+    private final Predicate<Location> ownsLocation;
+    private final Predicate<Entity> ownsEntity;
+
+    public FoliaTaskScheduler(DragonEggRacePlugin plugin) {
+        this(plugin, Bukkit.getGlobalRegionScheduler(), Bukkit.getRegionScheduler(),
+                Bukkit::isOwnedByCurrentRegion, Bukkit::isOwnedByCurrentRegion);
+    }
+
+    /**
+     * Creates a scheduler on the given region schedulers. Package-private for tests, which stub
+     * the schedulers and decide which locations and entities the current thread owns.
+     */
+    FoliaTaskScheduler(DragonEggRacePlugin plugin, GlobalRegionScheduler global, RegionScheduler regions,
+                       Predicate<Location> ownsLocation, Predicate<Entity> ownsEntity) {
+        this.plugin = plugin;
+        this.global = global;
+        this.regions = regions;
+        this.ownsLocation = ownsLocation;
+        this.ownsEntity = ownsEntity;
+    }
+
+    @Override
+    public boolean isRegionThreaded() {
+        return true;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        global.execute(plugin, task);
+    }
+
+    // Folia rejects delays below one tick
+    @Override
+    public Task runGlobalLater(Runnable task, long delayTicks) {
+        return global.runDelayed(plugin, scheduled -> task.run(), Math.max(1L, delayTicks))::cancel;
+    }
+
+    @Override
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return global.runAtFixedRate(plugin, scheduled -> task.run(), Math.max(1L, delayTicks), Math.max(1L, periodTicks))::cancel;
+    }
+
+    @Override
+    public void executeAt(Location location, Runnable task) {
+        if (ownsLocation.test(location)) {
+            task.run();
+        } else {
+            regions.execute(plugin, location, task);
+        }
+    }
+
+    @Override
+    public void executeAt(World world, int chunkX, int chunkZ, Runnable task) {
+        if (ownsLocation.test(new Location(world, chunkX << 4, 0, chunkZ << 4))) {
+            task.run();
+        } else {
+            regions.execute(plugin, world, chunkX, chunkZ, task);
+        }
+    }
+
+    @Override
+    public void executeOn(Entity entity, Runnable task) {
+        if (ownsEntity.test(entity)) {
+            task.run();
+        } else {
+            entity.getScheduler().execute(plugin, task, null, 1L);
+        }
+    }
+
+    @Override
+    public Task runOnLater(Entity entity, Runnable task, long delayTicks) {
+        ScheduledTask scheduled = entity.getScheduler().runDelayed(plugin, t -> task.run(), null, Math.max(1L, delayTicks));
+        // null: the entity was already removed
+        return scheduled != null ? scheduled::cancel : () -> { };
+    }
+}
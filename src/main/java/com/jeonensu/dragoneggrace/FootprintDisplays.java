@@ -0,0 +1,136 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Color;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Display;
+import org.bukkit.util.Transformation;
+import org.joml.AxisAngle4f;
+import org.joml.Vector3f;
+
+import java.util.function.Consumer;
+
+/**
+ * Spawns the arrow-shaped BlockDisplay entity used to draw a footprint.
+ * Shared by every {@link FootprintRenderer} that uses real entities.
+ * <p>
+ * Every arrow is built from shared, immutable templates: one block state, one brightness and one
+ * transformation per step of a precomputed yaw table ({@value #YAW_STEPS} directions). All properties
+ * are set by the spawn callback before the entity is added to the world, so clients receive it with
+ * its final metadata in one go, and spawning a footprint allocates nothing but the entity itself.
+ */
+public final class FootprintDisplays {
+
+    // 10블록 내에서만 보임
+    public static final float VIEW_RANGE = 10.0f;
+
+    // Arrow directions: 64 steps of 5.625 degrees, finer than anyone can tell apart on a footprint
+    static final int YAW_STEPS = 64;
+    private static final float DEGREES_PER_STEP = 360.0f / YAW_STEPS;
+
+    private static final Display.Brightness BRIGHTNESS = new Display.Brightness(15, 15); // Maximum brightness
+    private static final Transformation[] ROTATIONS = new Transformation[YAW_STEPS];
+    // Purple concrete. Creating block data needs a running server; this class is first used after startup
+    private static final BlockData ARROW_BLOCK;
+
+    static {
+        Vector3f translation = new Vector3f(0, 0, 0); // Entity's pivot point (fixed at 0,0,0)
+        Vector3f scale = new Vector3f(0.3f, 0.05f, 0.8f); // Thin, long arrow shape
+        AxisAngle4f noRotation = new AxisAngle4f(0, 0, 1, 0); // Right rotation: not used
+        for (int step = 0; step < YAW_STEPS; step++) {
+            // Rotate the arrow (long along +Z) around the Y axis towards the movement direction.
+            // Minecraft yaw turns clockwise seen from above, JOML angles counterclockwise, hence the minus.
+            AxisAngle4f rotation = new AxisAngle4f((float) Math.toRadians(-step * DEGREES_PER_STEP), 0, 1, 0);
+            ROTATIONS[step] = new Transformation(translation, rotation, scale, noRotation);
+        }
+        ARROW_BLOCK = Material.PURPLE_CONCRETE.createBlockData();
+    }
+
+    // One reusable spawn callback and location per thread (region threads spawn in parallel on Folia)
+    private static final ThreadLocal<ArrowSetup> SETUP = ThreadLocal.withInitial(ArrowSetup::new);
+
+    // Tags persistent arrows so ones left behind by a crash can be recognized later
+    private static volatile Consumer<? super BlockDisplay> marker;
+
+    /**
+     * Applies every property of a footprint arrow before it is added to the world.
+     */
+    private static final class ArrowSetup implements Consumer<BlockDisplay> {
+        final Location location = new Location(null, 0, 0, 0);
+        Transformation rotation;
+        boolean persistent;
+        boolean visibleByDefault;
+
+        @Override
+        public void accept(BlockDisplay arrow) {
+            arrow.setBlock(ARROW_BLOCK);
+            arrow.setTransformation(rotation);
+            arrow.setGlowing(true);
+            arrow.setGlowColorOverride(Color.RED);
+            arrow.setBrightness(BRIGHTNESS);
+            arrow.setViewRange(VIEW_RANGE);
+            arrow.setPersistent(persistent);
+            arrow.setVisibleByDefault(visibleByDefault);
+            Consumer<? super BlockDisplay> persistentMarker = marker;
+            if (persistent && persistentMarker != null) {
+                persistentMarker.accept(arrow);
+            }
+        }
+    }
+
+    private FootprintDisplays() {
+    }
+
+    /**
+     * Sets the callback that tags every persistent arrow before it is added to the world, or null for none.
+     */
+    static void markWith(Consumer<? super BlockDisplay> persistentMarker) {
+        marker = persistentMarker;
+    }
+
+    /**
+     * Returns the step of the yaw table closest to a direction.
+     *
+     * @param directionYaw Direction in degrees, any range.
+     */
+    static int yawStep(float directionYaw) {
+        return Math.floorMod(Math.round(directionYaw / DEGREES_PER_STEP), YAW_STEPS);
+    }
+
+    /**
+     * Returns the shared transformation of one step of the yaw table.
+     */
+    static Transformation rotation(int step) {
+        return ROTATIONS[step];
+    }
+
+    /**
+     * Creates an arrow-shaped BlockDisplay entity pointing in the given direction.
+     *
+     * @param world The world to spawn in.
+     * @param x Footprint X.
+     * @param y Footprint Y (already slightly above the player's feet).
+     * @param z Footprint Z.
+     * @param directionYaw Movement direction in degrees, -180 to 180; rounded to the yaw table.
+     * @param persistent Whether the entity is saved with its chunk.
+     * @param visibleByDefault False to send it only to players it is explicitly shown to.
+     * @return The spawned entity.
+     */
+    public static BlockDisplay spawnArrow(World world, double x, double y, double z, float directionYaw,
+                                          boolean persistent, boolean visibleByDefault) {
+        ArrowSetup setup = SETUP.get();
+        setup.location.setWorld(world);
+        setup.location.setX(x);
+        setup.location.setY(y);
+        setup.location.setZ(z);
+        setup.rotation = ROTATIONS[yawStep(directionYaw)];
+        setup.persistent = persistent;
+        setup.visibleByDefault = visibleByDefault;
+        BlockDisplay arrow = world.spawn(setup.location, BlockDisplay.class, setup);
+        setup.location.setWorld(null); // 월드를 붙잡아 두지 않음
+        return arrow;
+    }
+}
@@ -0,0 +1,150 @@
+package com.jeonensu.dragoneggrace;
+
+import java.util.Arrays;
+
+/**
+ * Timing wheel that expires footprints without one scheduler task per footprint.
+ * <p>
+ * Entries are (slot, footprint id, deadline) triples kept in primitive arrays, one bucket per
+ * {@link #RESOLUTION} ticks. The tracking task advances the wheel; a bucket is only drained once its
+ * whole time span has passed, and never more than a fixed number of entries per call, so a burst of
+ * expirations is spread over several passes. Deadlines further away than one rotation simply stay
+ * in their bucket until a later rotation reaches them.
+ * <p>
+ * No entity or player references are kept: the caller checks the footprint id against
+ * {@link FootprintStore#isCurrent(int, long)} before removing anything.
+ */
+public class FootprintExpiryWheel {
+
+    /** Ticks covered by one bucket. Footprints expire at most this much later than requested. */
+    public static final int RESOLUTION = 256;
+    // 512 buckets * 256 ticks = 131072 ticks, more than the 5-day footprint lifetime
+    private static final int BUCKET_COUNT = 512;
+    private static final int BUCKET_MASK = BUCKET_COUNT - 1;
+
+    /**
+     * Receives expired entries.
+     */
+    @FunctionalInterface
+    public interface ExpiryHandler {
+        void expire(int slot, long id);
+    }
+
+    private final Bucket[] buckets = new Bucket[BUCKET_COUNT];
+    // Start tick of the next bucket to drain, or -1 before the first use
+    private long cursorTick = -1;
+    // Scan position inside the bucket currently being drained
+    private int scanIndex = 0;
+    private int size = 0;
+
+    /**
+     * Schedules a footprint to expire at the given tick.
+     */
+    public void schedule(int slot, long id, long deadlineTick) {
+        if (cursorTick < 0) {
+            cursorTick = align(deadlineTick);
+        }
+        // Overdue entries go into the bucket that is drained next
+        long bucketTick = Math.max(deadlineTick, cursorTick);
+        Bucket bucket = bucketAt(bucketTick);
+        if (bucket == null) {
+            bucket = new Bucket();
+            buckets[(int) (bucketTick / RESOLUTION) & BUCKET_MASK] = bucket;
+        }
+        bucket.add(slot, id, deadlineTick);
+        size++;
+    }
+
+    /**
+     * Drains every bucket whose time span has fully passed, expiring at most {@code maxExpirations} entries.
+     *
+     * @param nowTick The current tick.
+     * @param maxExpirations Upper bound of entries handed to the handler in this call.
+     * @param handler Called for each expired entry.
+     * @return The number of expired entries.
+     */
+    public int advance(long nowTick, int maxExpirations, ExpiryHandler handler) {
+        if (size == 0) {
+            // Nothing scheduled, so the cursor can jump straight to the present
+            cursorTick = align(nowTick);
+            scanIndex = 0;
+            return 0;
+        }
+
+        int expired = 0;
+        while (cursorTick + RESOLUTION - 1 <= nowTick) {
+            Bucket bucket = bucketAt(cursorTick);
+            if (bucket != null) {
+                while (scanIndex < bucket.size) {
+                    if (expired >= maxExpirations) {
+                        return expired; // 다음 패스에서 이어서 처리
+                    }
+                    if (bucket.deadlines[scanIndex] <= nowTick) {
+                        int slot = bucket.slots[scanIndex];
+                        long id = bucket.ids[scanIndex];
+                        bucket.removeAt(scanIndex); // swaps the last entry in, so don't advance
+                        size--;
+                        expired++;
+                        handler.expire(slot, id);
+                    } else {
+                        scanIndex++; // due in a later rotation
+                    }
+                }
+            }
+            scanIndex = 0;
+            cursorTick += RESOLUTION;
+        }
+        return expired;
+    }
+
+    /**
+     * Forgets every scheduled entry.
+     */
+    public void clear() {
+        Arrays.fill(buckets, null);
+        cursorTick = -1;
+        scanIndex = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of scheduled entries, including ones whose footprint was already removed.
+     */
+    public int size() {
+        return size;
+    }
+
+    private Bucket bucketAt(long tick) {
+        return buckets[(int) (tick / RESOLUTION) & BUCKET_MASK];
+    }
+
+    private static long align(long tick) {
+        return tick - Math.floorMod(tick, RESOLUTION);
+    }
+
+    private static final class Bucket {
+        int[] slots = new int[8];
+        long[] ids = new long[8];
+        long[] deadlines = new long[8];
+        int size = 0;
+
+        void add(int slot, long id, long deadline) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                deadlines = Arrays.copyOf(deadlines, size * 2);
+            }
+            slots[size] = slot;
+            ids[size] = id;
+            deadlines[size] = deadline;
+            size++;
+        }
+
+        void removeAt(int index) {
+            int last = --size;
+            slots[index] = slots[last];
+            ids[index] = ids[last];
+            deadlines[index] = deadlines[last];
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.util.List;
+
+/**
+ * Decides how footprints stored in a {@link FootprintStore} are shown in the world.
+ * The tracker only adds and removes footprints in the store and notifies the renderer.
+ */
+public interface FootprintRenderer {
+
+    /**
+     * Called right after a footprint was added to the store.
+     *
+     * @param store The footprint store.
+     * @param slot The new footprint's slot.
+     * @param world The world the footprint is in.
+     */
+    void onAdded(FootprintStore store, int slot, World world);
+
+    /**
+     * Called right before a footprint is removed from the store.
+     *
+     * @param store The footprint store.
+     * @param slot The footprint's slot.
+     */
+    void onRemoved(FootprintStore store, int slot);
+
+    /**
+     * Called once per tracking pass.
+     *
+     * @param store The footprint store.
+     */
+    void tick(FootprintStore store);
+
+    /**
+     * Called when a chunk's entities are loaded.
+     *
+     * @param store The footprint store.
+     * @param chunk The chunk.
+     * @param entities The loaded entities.
+     */
+    void onEntitiesLoad(FootprintStore store, Chunk chunk, List<Entity> entities);
+
+    /**
+     * Returns how many footprint entities currently exist in the worlds.
+     *
+     * @return The number of live footprint entities.
+     */
+    int getLiveEntityCount();
+
+    /**
+     * Returns the name used in the config for this renderer.
+     *
+     * @return The render mode name.
+     */
+    String getMode();
+}
@@ -0,0 +1,477 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.World;
+import org.bukkit.entity.BlockDisplay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * Spatial index of all footprints, bucketed by chunk.
+ * <p>
+ * Each footprint lives in a numbered slot. Coordinates, yaw and spawn tick are kept in primitive
+ * arrays so proximity checks, radius queries and per-chunk walks never touch the entity.
+ * Entity handles are stored separately and managed by the active {@link FootprintRenderer}.
+ * Slots are linked both into their chunk bucket and into their owner's trail (newest first).
+ * <p>
+ * Not thread-safe; only used from the main thread.
+ */
+public class FootprintStore {
+
+    /** Returned when there is no slot. */
+    public static final int NONE = -1;
+    // Returned by findChunkKey for a world without footprints; no real key has all world bits set
+    public static final long NO_CHUNK = -1L;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // World and owner tables: the slot arrays only store small indexes into these
+    private final Map<UUID, Integer> worldIndexes = new HashMap<>();
+    private final Map<UUID, Integer> ownerIndexes = new HashMap<>();
+    private final List<UUID> owners = new ArrayList<>();
+    private int[] ownerHeads = new int[8]; // newest footprint of each owner
+    private int[] ownerSizes = new int[8];
+
+    // Chunk key -> first slot in that chunk
+    private final LongIntMap chunkHeads = new LongIntMap(NONE);
+
+    // Per-slot primitive data
+    private long[] ids; // unique per footprint, so a reused slot can be told apart
+    private double[] xs;
+    private double[] ys;
+    private double[] zs;
+    private float[] yaws;
+    private long[] spawnTicks;
+    private int[] ownerOf;
+    private long[] chunkOf;
+    private int[] chunkNext;
+    private int[] chunkPrev;
+    private int[] ownerNext; // older footprint of the same owner
+    private int[] ownerPrev; // newer footprint of the same owner
+    private boolean[] used;
+
+    // Entity handles, kept apart from the coordinates
+    private BlockDisplay[] displays;
+    private UUID[] entityIds;
+    private final Map<UUID, Integer> slotsByEntity = new HashMap<>();
+
+    private int[] freeSlots;
+    private int freeCount = 0;
+    private int highWater = 0; // slots below this index have been handed out at least once
+    private int size = 0;
+    private long nextId = 1;
+
+    public FootprintStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds a footprint and returns its slot. No entity is attached yet.
+     */
+    public int add(UUID owner, World world, double x, double y, double z, float yaw, long spawnTick) {
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : nextFreshSlot();
+        int ownerIndex = ownerIndexOf(owner, true);
+        long chunkKey = chunkKey(worldIndexOf(world, true), (int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4);
+
+        ids[slot] = nextId++;
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+        yaws[slot] = yaw;
+        spawnTicks[slot] = spawnTick;
+        ownerOf[slot] = ownerIndex;
+        chunkOf[slot] = chunkKey;
+        used[slot] = true;
+        displays[slot] = null;
+        entityIds[slot] = null;
+
+        // Link at the head of the chunk bucket
+        int chunkHead = chunkHeads.get(chunkKey);
+        chunkPrev[slot] = NONE;
+        chunkNext[slot] = chunkHead;
+        if (chunkHead != NONE) {
+            chunkPrev[chunkHead] = slot;
+        }
+        chunkHeads.put(chunkKey, slot);
+
+        // Link at the head (newest end) of the owner's trail
+        int ownerHead = ownerHeads[ownerIndex];
+        ownerPrev[slot] = NONE;
+        ownerNext[slot] = ownerHead;
+        if (ownerHead != NONE) {
+            ownerPrev[ownerHead] = slot;
+        }
+        ownerHeads[ownerIndex] = slot;
+        ownerSizes[ownerIndex]++;
+
+        size++;
+        return slot;
+    }
+
+    /**
+     * Removes a footprint from the index. The entity itself is not touched.
+     */
+    public void remove(int slot) {
+        if (slot < 0 || slot >= highWater || !used[slot]) {
+            return;
+        }
+
+        // Unlink from the chunk bucket
+        int prev = chunkPrev[slot];
+        int next = chunkNext[slot];
+        if (prev != NONE) {
+            chunkNext[prev] = next;
+        } else if (next != NONE) {
+            chunkHeads.put(chunkOf[slot], next);
+        } else {
+            chunkHeads.remove(chunkOf[slot]);
+        }
+        if (next != NONE) {
+            chunkPrev[next] = prev;
+        }
+
+        // Unlink from the owner's trail
+        int ownerIndex = ownerOf[slot];
+        prev = ownerPrev[slot];
+        next = ownerNext[slot];
+        if (prev != NONE) {
+            ownerNext[prev] = next;
+        } else {
+            ownerHeads[ownerIndex] = next;
+        }
+        if (next != NONE) {
+            ownerPrev[next] = prev;
+        }
+        ownerSizes[ownerIndex]--;
+
+        detachDisplay(slot);
+        used[slot] = false;
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    /**
+     * Attaches the entity that renders a footprint.
+     */
+    public void attachDisplay(int slot, BlockDisplay display) {
+        detachDisplay(slot);
+        displays[slot] = display;
+        entityIds[slot] = display.getUniqueId();
+        slotsByEntity.put(entityIds[slot], slot);
+    }
+
+    /**
+     * Forgets the entity attached to a footprint, if any. The entity itself is not touched.
+     */
+    public void detachDisplay(int slot) {
+        if (entityIds[slot] != null) {
+            slotsByEntity.remove(entityIds[slot]);
+        }
+        displays[slot] = null;
+        entityIds[slot] = null;
+    }
+
+    /**
+     * Checks whether the owner's newest footprint is closer than the given radius.
+     * Only the newest one counts, so walking back along an old trail still leaves footprints.
+     */
+    public boolean isLastFootprintWithin(UUID owner, World world, double x, double y, double z, double radius) {
+        int ownerIndex = ownerIndexOf(owner, false);
+        if (ownerIndex == NONE || ownerHeads[ownerIndex] == NONE) {
+            return false;
+        }
+
+        int slot = ownerHeads[ownerIndex];
+        int worldIndex = worldIndexOf(world, false);
+        if (worldIndex == NONE || chunkOf[slot] >>> 56 != worldIndex) {
+            return false; // 다른 월드의 발자국
+        }
+        return distanceSquared(slot, x, y, z) < radius * radius;
+    }
+
+    /**
+     * Calls the action for every footprint within the radius of the given point.
+     * The action may remove the slot it is given, but no other slot.
+     *
+     * @return The number of footprints visited.
+     */
+    public int forEachWithin(World world, double x, double y, double z, double radius, IntConsumer action) {
+        int worldIndex = worldIndexOf(world, false);
+        if (worldIndex == NONE) {
+            return 0; // 이 월드에는 발자국이 없음
+        }
+        double radiusSquared = radius * radius;
+        int minChunkX = (int) Math.floor(x - radius) >> 4;
+        int maxChunkX = (int) Math.floor(x + radius) >> 4;
+        int minChunkZ = (int) Math.floor(z - radius) >> 4;
+        int maxChunkZ = (int) Math.floor(z + radius) >> 4;
+
+        int count = 0;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                int slot = chunkHeads.get(chunkKey(worldIndex, chunkX, chunkZ));
+                while (slot != NONE) {
+                    int next = chunkNext[slot];
+                    if (distanceSquared(slot, x, y, z) <= radiusSquared) {
+                        action.accept(slot);
+                        count++;
+                    }
+                    slot = next;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Calls the action for every footprint in one chunk.
+     * The action may remove the slot it is given, but no other slot.
+     */
+    public void forEachInChunk(World world, int chunkX, int chunkZ, IntConsumer action) {
+        long chunkKey = findChunkKey(world, chunkX, chunkZ);
+        if (chunkKey == NO_CHUNK) {
+            return;
+        }
+        int slot = chunkHeads.get(chunkKey);
+        while (slot != NONE) {
+            int next = chunkNext[slot];
+            action.accept(slot);
+            slot = next;
+        }
+    }
+
+    /**
+     * Calls the action for every footprint, chunk by chunk.
+     * The action must not add or remove slots.
+     */
+    public void forEachByChunk(IntConsumer action) {
+        chunkHeads.forEachKey(key -> {
+            int slot = chunkHeads.get(key);
+            while (slot != NONE) {
+                action.accept(slot);
+                slot = chunkNext[slot];
+            }
+        });
+    }
+
+    /**
+     * Calls the action for every footprint of one owner, newest first.
+     * The action may remove the slot it is given, but no other slot.
+     */
+    public void forEachOfOwner(UUID owner, IntConsumer action) {
+        int ownerIndex = ownerIndexOf(owner, false);
+        if (ownerIndex == NONE) {
+            return;
+        }
+
+        int slot = ownerHeads[ownerIndex];
+        while (slot != NONE) {
+            int next = ownerNext[slot];
+            action.accept(slot);
+            slot = next;
+        }
+    }
+
+    /**
+     * Calls the action for every footprint.
+     * The action may remove the slot it is given, but no other slot.
+     */
+    public void forEach(IntConsumer action) {
+        for (int slot = 0; slot < highWater; slot++) {
+            if (used[slot]) {
+                action.accept(slot);
+            }
+        }
+    }
+
+    /**
+     * Forgets every footprint. Entities are not touched.
+     */
+    public void clear() {
+        chunkHeads.clear();
+        slotsByEntity.clear();
+        Arrays.fill(ownerHeads, NONE);
+        Arrays.fill(ownerSizes, 0);
+        Arrays.fill(displays, 0, highWater, null);
+        Arrays.fill(entityIds, 0, highWater, null);
+        Arrays.fill(used, 0, highWater, false);
+        freeCount = 0;
+        highWater = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the key of a chunk as stored by {@link #getChunkKey(int)}, without registering the world.
+     *
+     * @return The key, or {@link #NO_CHUNK} if no footprint was ever added in the world.
+     */
+    public long findChunkKey(World world, int chunkX, int chunkZ) {
+        int worldIndex = worldIndexOf(world, false);
+        return worldIndex == NONE ? NO_CHUNK : chunkKey(worldIndex, chunkX, chunkZ);
+    }
+
+    // Packs a world index and chunk position into one key
+    private static long chunkKey(long worldIndex, int chunkX, int chunkZ) {
+        return (worldIndex << 56) | ((chunkX & 0xFFFFFFFL) << 28) | (chunkZ & 0xFFFFFFFL);
+    }
+
+    public int slotOf(UUID entityId) {
+        Integer slot = slotsByEntity.get(entityId);
+        return slot != null ? slot : NONE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int sizeOf(UUID owner) {
+        int ownerIndex = ownerIndexOf(owner, false);
+        return ownerIndex == NONE ? 0 : ownerSizes[ownerIndex];
+    }
+
+    /**
+     * Returns the unique id of the footprint in a slot. Slots are reused, ids are not.
+     */
+    public long getId(int slot) {
+        return ids[slot];
+    }
+
+    /**
+     * Checks whether a slot still holds the footprint with the given id.
+     */
+    public boolean isCurrent(int slot, long id) {
+        return isUsed(slot) && ids[slot] == id;
+    }
+
+    public double getX(int slot) {
+        return xs[slot];
+    }
+
+    public double getY(int slot) {
+        return ys[slot];
+    }
+
+    public double getZ(int slot) {
+        return zs[slot];
+    }
+
+    public float getYaw(int slot) {
+        return yaws[slot];
+    }
+
+    public long getSpawnTick(int slot) {
+        return spawnTicks[slot];
+    }
+
+    public long getChunkKey(int slot) {
+        return chunkOf[slot];
+    }
+
+    public UUID getOwner(int slot) {
+        return owners.get(ownerOf[slot]);
+    }
+
+    public BlockDisplay getDisplay(int slot) {
+        return displays[slot];
+    }
+
+    public UUID getEntityId(int slot) {
+        return entityIds[slot];
+    }
+
+    public boolean isUsed(int slot) {
+        return slot >= 0 && slot < highWater && used[slot];
+    }
+
+    private double distanceSquared(int slot, double x, double y, double z) {
+        double dx = xs[slot] - x;
+        double dy = ys[slot] - y;
+        double dz = zs[slot] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private int worldIndexOf(World world, boolean create) {
+        Integer index = worldIndexes.get(world.getUID());
+        if (index != null) {
+            return index;
+        }
+        if (!create) {
+            return NONE;
+        }
+        index = worldIndexes.size();
+        worldIndexes.put(world.getUID(), index);
+        return index;
+    }
+
+    private int ownerIndexOf(UUID owner, boolean create) {
+        Integer index = ownerIndexes.get(owner);
+        if (index != null) {
+            return index;
+        }
+        if (!create) {
+            return NONE;
+        }
+
+        index = owners.size();
+        owners.add(owner);
+        ownerIndexes.put(owner, index);
+        if (index >= ownerHeads.length) {
+            int oldLength = ownerHeads.length;
+            ownerHeads = Arrays.copyOf(ownerHeads, oldLength * 2);
+            ownerSizes = Arrays.copyOf(ownerSizes, oldLength * 2);
+            Arrays.fill(ownerHeads, oldLength, ownerHeads.length, NONE);
+        }
+        return index;
+    }
+
+    private int nextFreshSlot() {
+        if (highWater == used.length) {
+            grow(used.length * 2);
+        }
+        return highWater++;
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        zs = new double[capacity];
+        yaws = new float[capacity];
+        spawnTicks = new long[capacity];
+        ownerOf = new int[capacity];
+        chunkOf = new long[capacity];
+        chunkNext = new int[capacity];
+        chunkPrev = new int[capacity];
+        ownerNext = new int[capacity];
+        ownerPrev = new int[capacity];
+        used = new boolean[capacity];
+        displays = new BlockDisplay[capacity];
+        entityIds = new UUID[capacity];
+        freeSlots = new int[capacity];
+        Arrays.fill(ownerHeads, NONE);
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        zs = Arrays.copyOf(zs, capacity);
+        yaws = Arrays.copyOf(yaws, capacity);
+        spawnTicks = Arrays.copyOf(spawnTicks, capacity);
+        ownerOf = Arrays.copyOf(ownerOf, capacity);
+        chunkOf = Arrays.copyOf(chunkOf, capacity);
+        chunkNext = Arrays.copyOf(chunkNext, capacity);
+        chunkPrev = Arrays.copyOf(chunkPrev, capacity);
+        ownerNext = Arrays.copyOf(ownerNext, capacity);
+        ownerPrev = Arrays.copyOf(ownerPrev, capacity);
+        used = Arrays.copyOf(used, capacity);
+        displays = Arrays.copyOf(displays, capacity);
+        entityIds = Arrays.copyOf(entityIds, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+}
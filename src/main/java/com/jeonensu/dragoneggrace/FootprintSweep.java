@@ -0,0 +1,146 @@
+package com.jeonensu.dragoneggrace;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+
+/**
+ * Removes every footprint over several ticks instead of all at once, as at nightfall.
+ * <p>
+ * Starting a sweep takes a snapshot of the footprints ordered chunk by chunk, so consecutive removals
+ * touch the same chunk. Each tick then removes footprints until {@code footprints.night-sweep.max-per-tick}
+ * are gone or {@code footprints.night-sweep.tick-budget-micros} have been spent. Footprints removed
+ * otherwise in the meantime (expired, the holder lost the egg) are skipped, since slots are checked by id.
+ * <p>
+ * Each tick's cost goes to the {@code footprint_night_sweep} timer; the duration and worst tick of the
+ * last finished sweep are kept for the metrics.
+ */
+public class FootprintSweep {
+
+    private final DragonEggRacePlugin plugin;
+    private final int maxPerTick;
+    private final long tickBudgetNanos;
+    private final TickHistogram tickTimer;
+
+    // Snapshot of the footprints to remove, in chunk order
+    private int[] slots = new int[256];
+    private long[] ids = new long[256];
+    private int size = 0;
+    private int next = 0;
+
+    private long startNanos;
+    private long worstTickNanos;
+    private int ticks;
+    private long lastDurationNanos = 0;
+    private long lastWorstTickNanos = 0;
+    private int lastRemovedCount = 0;
+
+    public FootprintSweep(DragonEggRacePlugin plugin) {
+        this.plugin = plugin;
+        this.maxPerTick = Math.max(1, plugin.getConfig().getInt("footprints.night-sweep.max-per-tick", 250));
+        this.tickBudgetNanos = Math.max(50L, plugin.getConfig().getLong("footprints.night-sweep.tick-budget-micros", 1000L)) * 1000L;
+        this.tickTimer = plugin.getMetrics().timer("footprint_night_sweep");
+    }
+
+    /**
+     * Starts sweeping every footprint currently in the store, replacing a sweep that is still running.
+     * Nothing is removed before the next {@link #tick(FootprintStore, IntConsumer)}.
+     */
+    public void start(FootprintStore store) {
+        size = 0;
+        next = 0;
+        store.forEachByChunk(slot -> {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            slots[size] = slot;
+            ids[size] = store.getId(slot);
+            size++;
+        });
+        startNanos = System.nanoTime();
+        worstTickNanos = 0;
+        ticks = 0;
+    }
+
+    /**
+     * Returns whether footprints are left to remove.
+     */
+    public boolean isActive() {
+        return next < size;
+    }
+
+    /**
+     * Removes the next footprints within this tick's budget.
+     *
+     * @param store The footprint store.
+     * @param remover Removes one footprint from the renderer and the store.
+     */
+    public void tick(FootprintStore store, IntConsumer remover) {
+        long start = System.nanoTime();
+        long deadline = start + tickBudgetNanos;
+        int removed = 0;
+        while (next < size && removed < maxPerTick) {
+            int slot = slots[next];
+            long id = ids[next];
+            next++;
+            if (!store.isCurrent(slot, id)) {
+                continue; // 그 사이에 이미 지워진 발자국
+            }
+            remover.accept(slot);
+            removed++;
+            // 시간 확인은 몇 개마다 한 번만
+            if ((removed & 15) == 0 && System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        long tickNanos = System.nanoTime() - start;
+        tickTimer.record(tickNanos);
+        worstTickNanos = Math.max(worstTickNanos, tickNanos);
+        ticks++;
+        if (next >= size) {
+            finish();
+        }
+    }
+
+    /**
+     * Drops the rest of the sweep, e.g. when all footprints are being removed at once anyway.
+     */
+    public void cancel() {
+        size = 0;
+        next = 0;
+    }
+
+    private void finish() {
+        lastDurationNanos = System.nanoTime() - startNanos;
+        lastWorstTickNanos = worstTickNanos;
+        lastRemovedCount = size;
+        size = 0;
+        next = 0;
+        plugin.getLogger().log(Level.FINE, () -> String.format(
+                "밤 발자국 정리: %d개, %d틱, 전체 %.1fms, 가장 긴 틱 %.2fms",
+                lastRemovedCount, ticks, lastDurationNanos / 1_000_000.0, lastWorstTickNanos / 1_000_000.0));
+    }
+
+    /**
+     * Returns the wall time from the start to the end of the last finished sweep, in nanoseconds.
+     */
+    public long getLastDurationNanos() {
+        return lastDurationNanos;
+    }
+
+    /**
+     * Returns the longest single tick of the last finished sweep, in nanoseconds.
+     */
+    public long getLastWorstTickNanos() {
+        return lastWorstTickNanos;
+    }
+
+    /**
+     * Returns how many footprints the last finished sweep covered.
+     */
+    public int getLastRemovedCount() {
+        return lastRemovedCount;
+    }
+}
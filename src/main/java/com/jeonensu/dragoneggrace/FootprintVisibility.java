@@ -0,0 +1,281 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * Decides which footprint entities each player is sent.
+ * <p>
+ * Footprint entities are spawned hidden by default ({@code setVisibleByDefault(false)}), so the
+ * server sends their spawn and metadata packets only to players they are shown to. A player is
+ * shown the footprints within {@code footprints.visibility.range} blocks, nearest first and at most
+ * {@code footprints.visibility.max-per-player}; the egg holder is never shown their own trail.
+ * <p>
+ * A player's set is only recomputed when they enter another chunk or world, or when a footprint
+ * entity appears near their chunk, and the result is applied as a diff of
+ * {@link Player#showEntity}/{@link Player#hideEntity} calls. With the feature disabled every
+ * footprint stays visible to everyone, limited only by the display view range.
+ */
+public class FootprintVisibility {
+
+    /**
+     * The footprints currently selected for one player.
+     */
+    private static final class Viewer {
+        World world;
+        int chunkX;
+        int chunkZ;
+        boolean dirty = true;
+        int seenPass;
+        // Selected footprints: slot, footprint id and the entity id shown for it (0 = no entity yet)
+        final int[] slots;
+        final long[] ids;
+        final int[] entityIds;
+        int count = 0;
+
+        Viewer(int capacity) {
+            slots = new int[capacity];
+            ids = new long[capacity];
+            entityIds = new int[capacity];
+        }
+    }
+
+    private final DragonEggRacePlugin plugin;
+    private final Arena arena;
+    private final boolean enabled;
+    private final double range;
+    private final int maxPerPlayer;
+    // Chunks around a new footprint entity whose viewers are re-checked
+    private final int chunkRadius;
+
+    private final Map<UUID, Viewer> viewers = new HashMap<>();
+    private int pass = 0;
+    private long recomputeCount = 0;
+
+    // Scratch state of the current recompute, kept in fields so the visitor doesn't allocate
+    private final Location scratch = new Location(null, 0, 0, 0);
+    private final IntConsumer candidateVisitor = this::addCandidate;
+    private final LongIntMap previousIndex = new LongIntMap(FootprintStore.NONE);
+    private long[] candidates = new long[64]; // squared distance bits << 32 | slot
+    private int candidateCount;
+    private final int[] nextSlots;
+    private final long[] nextIds;
+    private final int[] nextEntityIds;
+    private final boolean[] kept;
+    private FootprintStore currentStore;
+    private UUID currentViewerId;
+
+    public FootprintVisibility(DragonEggRacePlugin plugin, Arena arena) {
+        this.plugin = plugin;
+        this.arena = arena;
+        this.enabled = plugin.getConfig().getBoolean("footprints.visibility.enabled", true);
+        this.range = Math.max(1.0, plugin.getConfig().getDouble("footprints.visibility.range", 24.0));
+        this.maxPerPlayer = Math.max(1, plugin.getConfig().getInt("footprints.visibility.max-per-player", 48));
+        this.chunkRadius = (int) Math.ceil(range / 16.0) + 1;
+        this.nextSlots = new int[maxPerPlayer];
+        this.nextIds = new long[maxPerPlayer];
+        this.nextEntityIds = new int[maxPerPlayer];
+        this.kept = new boolean[maxPerPlayer];
+    }
+
+    /**
+     * Returns whether footprints are only sent to the players they are shown to.
+     * Renderers then spawn footprint entities hidden by default.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Re-checks the players near a newly spawned footprint entity, which was spawned hidden by default.
+     * Renderers call this right after attaching the entity to the store.
+     *
+     * @param store The footprint store.
+     * @param slot The footprint's slot.
+     * @param display The new entity.
+     */
+    public void onSpawned(FootprintStore store, int slot, BlockDisplay display) {
+        if (!enabled) {
+            return;
+        }
+
+        World world = display.getWorld();
+        int chunkX = (int) Math.floor(store.getX(slot)) >> 4;
+        int chunkZ = (int) Math.floor(store.getZ(slot)) >> 4;
+        for (Viewer viewer : viewers.values()) {
+            if (viewer.world == world
+                    && Math.abs(viewer.chunkX - chunkX) <= chunkRadius
+                    && Math.abs(viewer.chunkZ - chunkZ) <= chunkRadius) {
+                viewer.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Re-attaches persistent footprint entities loaded back from chunk data; the hidden-by-default
+     * flag is not saved with the entity.
+     *
+     * @param store The footprint store.
+     * @param entities The loaded entities.
+     */
+    public void onEntitiesLoad(FootprintStore store, List<Entity> entities) {
+        if (!enabled || store.size() == 0) {
+            return;
+        }
+        for (Entity entity : entities) {
+            if (!(entity instanceof BlockDisplay display)) continue;
+            int slot = store.slotOf(entity.getUniqueId());
+            if (slot != FootprintStore.NONE) {
+                display.setVisibleByDefault(false); // 엔티티와 함께 저장되지 않는 값
+                store.attachDisplay(slot, display);
+                onSpawned(store, slot, display);
+            }
+        }
+    }
+
+    /**
+     * Updates the players whose chunk changed or who were marked dirty. Called once per tracking pass.
+     *
+     * @param store The footprint store.
+     */
+    public void tick(FootprintStore store) {
+        if (!enabled) {
+            return;
+        }
+        pass++;
+        currentStore = store;
+
+        for (Player player : arena.getPlayers()) {
+            Viewer viewer = viewers.get(player.getUniqueId());
+            if (viewer == null) {
+                viewer = new Viewer(maxPerPlayer);
+                viewers.put(player.getUniqueId(), viewer);
+            }
+            viewer.seenPass = pass;
+
+            player.getLocation(scratch);
+            World world = scratch.getWorld();
+            int chunkX = scratch.getBlockX() >> 4;
+            int chunkZ = scratch.getBlockZ() >> 4;
+            if (world != viewer.world || chunkX != viewer.chunkX || chunkZ != viewer.chunkZ) {
+                viewer.world = world;
+                viewer.chunkX = chunkX;
+                viewer.chunkZ = chunkZ;
+                viewer.dirty = true;
+            }
+
+            if (viewer.dirty && (viewer.count > 0 || store.size() > 0)) {
+                recompute(store, player, viewer);
+            }
+            viewer.dirty = false;
+        }
+
+        // 접속을 종료했거나 다른 아레나로 간 플레이어 정리 (보이기 상태는 클라이언트와 함께 사라짐)
+        Iterator<Viewer> it = viewers.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().seenPass != pass) {
+                it.remove();
+            }
+        }
+        currentStore = null;
+    }
+
+    /**
+     * Forgets every player, e.g. when tracking stops and all footprints are removed.
+     */
+    public void clear() {
+        viewers.clear();
+    }
+
+    public int getViewerCount() {
+        return viewers.size();
+    }
+
+    public long getRecomputeCount() {
+        return recomputeCount;
+    }
+
+    private void recompute(FootprintStore store, Player player, Viewer viewer) {
+        recomputeCount++;
+
+        // Nearest footprints of other players within range
+        candidateCount = 0;
+        currentViewerId = player.getUniqueId();
+        store.forEachWithin(scratch.getWorld(), scratch.getX(), scratch.getY(), scratch.getZ(), range, candidateVisitor);
+        if (candidateCount > maxPerPlayer) {
+            Arrays.sort(candidates, 0, candidateCount);
+        }
+        int selected = Math.min(candidateCount, maxPerPlayer);
+
+        previousIndex.clear();
+        for (int i = 0; i < viewer.count; i++) {
+            previousIndex.put(viewer.ids[i], i);
+            kept[i] = false;
+        }
+
+        // Show what is new (or was re-spawned as a different entity)
+        for (int j = 0; j < selected; j++) {
+            int slot = (int) candidates[j];
+            long id = store.getId(slot);
+            BlockDisplay display = store.getDisplay(slot);
+            int entityId = display != null && display.isValid() ? display.getEntityId() : 0;
+
+            int previous = previousIndex.get(id);
+            int shownEntityId = 0;
+            if (previous != FootprintStore.NONE) {
+                kept[previous] = true;
+                shownEntityId = viewer.entityIds[previous];
+            }
+            if (entityId != 0 && entityId != shownEntityId) {
+                player.showEntity(plugin, display);
+            }
+            nextSlots[j] = slot;
+            nextIds[j] = id;
+            nextEntityIds[j] = entityId;
+        }
+
+        // Hide what dropped out; removed footprints took their entity with them
+        for (int i = 0; i < viewer.count; i++) {
+            if (kept[i] || viewer.entityIds[i] == 0 || !store.isCurrent(viewer.slots[i], viewer.ids[i])) continue;
+            BlockDisplay display = store.getDisplay(viewer.slots[i]);
+            if (display != null && display.isValid() && display.getEntityId() == viewer.entityIds[i]) {
+                player.hideEntity(plugin, display);
+            }
+        }
+
+        System.arraycopy(nextSlots, 0, viewer.slots, 0, selected);
+        System.arraycopy(nextIds, 0, viewer.ids, 0, selected);
+        System.arraycopy(nextEntityIds, 0, viewer.entityIds, 0, selected);
+        viewer.count = selected;
+        currentViewerId = null;
+    }
+
+    private void addCandidate(int slot) {
+        FootprintStore store = currentStore;
+        if (currentViewerId.equals(store.getOwner(slot))) {
+            return; // 알 보유자에게는 자신의 발자국을 보여주지 않음
+        }
+
+        double dx = store.getX(slot) - scratch.getX();
+        double dy = store.getY(slot) - scratch.getY();
+        double dz = store.getZ(slot) - scratch.getZ();
+        float distanceSquared = (float) (dx * dx + dy * dy + dz * dz);
+
+        if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+        }
+        // Non-negative float bits sort like the floats themselves
+        candidates[candidateCount++] = ((long) Float.floatToIntBits(distanceSquared) << 32) | slot;
+    }
+}
@@ -0,0 +1,103 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Bukkit;
+
+/**
+ * Measures game time on the server tick counter and feeds it to the race's {@link RaceStateMachine},
+ * which decides when a day is announced and when the game ends.
+ * <p>
+ * Instead of a task that runs every tick to increment a counter, exactly one task is scheduled
+ * for the next milestone. When it fires, the elapsed time is read again from the tick counter
+ * and the following milestone is scheduled from there, so the clock never drifts.
+ * <p>
+ * The server tick counter is not affected by {@code /time set}, and under lag it advances exactly
+ * as fast as the game does, so a game day is always 24000 real server ticks.
+ */
+public class GameClock {
+
+    public static final int TICKS_PER_DAY = RaceStateMachine.TICKS_PER_DAY;
+
+    private final DragonEggRacePlugin plugin;
+    // Decides the milestones; started by the arena before the clock
+    private final RaceStateMachine race;
+    private final long durationTicks;
+
+    // Server tick at which the game (virtually) started, or -1 when not running
+    private long startTick = -1;
+    private TaskScheduler.Task milestoneTask;
+    private final TickHistogram milestoneTimer;
+
+    public GameClock(DragonEggRacePlugin plugin, RaceStateMachine race) {
+        this.plugin = plugin;
+        this.milestoneTimer = plugin.getMetrics().timer("game_clock");
+        this.race = race;
+        this.durationTicks = race.getDurationTicks();
+    }
+
+    /**
+     * Starts the clock. The race state machine must already be started with the same elapsed time.
+     *
+     * @param elapsedTicks Game time that has already passed, e.g. when resuming a game.
+     */
+    public void start(long elapsedTicks) {
+        stop();
+        startTick = Bukkit.getCurrentTick() - elapsedTicks;
+        scheduleNextMilestone();
+    }
+
+    /**
+     * Stops the clock and cancels the pending milestone.
+     */
+    public void stop() {
+        if (milestoneTask != null) {
+            milestoneTask.cancel();
+            milestoneTask = null;
+        }
+        startTick = -1;
+    }
+
+    public boolean isRunning() {
+        return startTick >= 0;
+    }
+
+    public long getElapsedTicks() {
+        if (!isRunning()) return 0;
+        return Math.min(durationTicks, Math.max(0, Bukkit.getCurrentTick() - startTick));
+    }
+
+    public long getRemainingTicks() {
+        if (!isRunning()) return 0;
+        return durationTicks - getElapsedTicks();
+    }
+
+    public int getRemainingDays() {
+        if (!isRunning()) return 0;
+        return (int) Math.max(0, durationTicks / TICKS_PER_DAY - getElapsedTicks() / TICKS_PER_DAY);
+    }
+
+    private void scheduleNextMilestone() {
+        // The next milestone is the next day boundary, capped at the end of the game
+        long delay = Math.max(1L, race.getNextMilestone() - getElapsedTicks());
+        milestoneTask = plugin.getTaskScheduler().runGlobalLater(this::onMilestone, delay);
+    }
+
+    private void onMilestone() {
+        long start = System.nanoTime();
+        runMilestone();
+        milestoneTimer.recordSince(start);
+    }
+
+    private void runMilestone() {
+        milestoneTask = null;
+        // 날짜 알림과 게임 종료는 상태 기계가 결정 (지연으로 여러 날이 지나도 알림은 한 번만)
+        race.advanceTo(getElapsedTicks());
+
+        if (!race.isRunning()) {
+            stop(); // 게임이 끝남
+            return;
+        }
+        if (isRunning()) {
+            scheduleNextMilestone();
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.jeonensu.dragoneggrace;
 
 import org.bukkit.ChatColor;
+import org.bukkit.Location;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
 public class GameCommand implements CommandExecutor {
 
     private final DragonEggRacePlugin plugin;
@@ -23,40 +29,197 @@ public class GameCommand implements CommandExecutor {
 
         if (args.length == 0) {
             sender.sendMessage(ChatColor.YELLOW + "사용법:");
-            sender.sendMessage(ChatColor.YELLOW + "/dragongame start - 게임 시작");
-            sender.sendMessage(ChatColor.YELLOW + "/dragongame stop - 게임 중단");
-            sender.sendMessage(ChatColor.YELLOW + "/dragongame status - 게임 상태 확인");
+            sender.sendMessage(ChatColor.YELLOW + "/dragongame start [아레나] - 게임 시작");
+            sender.sendMessage(ChatColor.YELLOW + "/dragongame stop [아레나] - 게임 중단");
+            sender.sendMessage(ChatColor.YELLOW + "/dragongame status [아레나] - 게임 상태 확인");
+            sender.sendMessage(ChatColor.YELLOW + "/dragongame arenas - 모든 아레나 상태 확인");
+            sender.sendMessage(ChatColor.YELLOW + "/dragongame top [아레나] - 알 보유 시간 순위");
+            sender.sendMessage(ChatColor.YELLOW + "/dragongame where [아레나] - 드래곤 알의 현재 위치");
+            sender.sendMessage(ChatColor.YELLOW + "/dragongame trail <png|csv> [아레나] - 알 보유자 이동 경로 내보내기");
+            sender.sendMessage(ChatColor.YELLOW + "/dragongame metrics [reset] - 플러그인 처리 시간 확인");
             return true;
         }
 
         switch (args[0].toLowerCase()) {
-            case "start":
-                if (plugin.isGameActive()) {
+            case "start": {
+                Arena arena = findArena(sender, args, 1);
+                if (arena == null) break;
+                if (arena.isGameActive()) {
                     sender.sendMessage(ChatColor.RED + "게임이 이미 진행 중입니다!");
                 } else {
-                    plugin.startGame();
-                    sender.sendMessage(ChatColor.GREEN + "드래곤 알 게임을 시작했습니다!");
+                    arena.startGame();
+                    sender.sendMessage(ChatColor.GREEN + "드래곤 알 게임을 시작했습니다! (" + arena.getName() + ")");
                 }
                 break;
+            }
 
-            case "stop":
-                if (!plugin.isGameActive()) {
+            case "stop": {
+                Arena arena = findArena(sender, args, 1);
+                if (arena == null) break;
+                if (!arena.isGameActive()) {
                     sender.sendMessage(ChatColor.RED + "게임이 진행 중이 아닙니다!");
                 } else {
-                    plugin.stopGame();
-                    sender.sendMessage(ChatColor.GREEN + "드래곤 알 게임을 중단했습니다!");
+                    arena.stopGame();
+                    sender.sendMessage(ChatColor.GREEN + "드래곤 알 게임을 중단했습니다! (" + arena.getName() + ")");
+                }
+                break;
+            }
+
+            case "status": {
+                Arena arena = findArena(sender, args, 1);
+                if (arena != null) {
+                    sender.sendMessage(arena.getGameStatus());
                 }
                 break;
+            }
+
+            case "arenas":
+                for (Arena arena : plugin.getArenas().getArenas()) {
+                    sender.sendMessage(arena.getGameStatus());
+                }
+                break;
+
+            case "top":
+                showTop(sender, args);
+                break;
+
+            case "where":
+                showEggPosition(sender, args);
+                break;
 
-            case "status":
-                sender.sendMessage(plugin.getGameStatus());
+            case "trail":
+                exportTrail(sender, args);
+                break;
+
+            case "metrics":
+                showMetrics(sender, args);
                 break;
 
             default:
-                sender.sendMessage(ChatColor.YELLOW + "사용법: /dragongame <start|stop|status>");
+                sender.sendMessage(ChatColor.YELLOW + "사용법: /dragongame <start|stop|status|arenas|top|where|trail|metrics>");
                 break;
         }
 
         return true;
     }
+
+    // index 위치의 인자로 아레나 이름을 받고, 없으면 기본 아레나
+    private Arena findArena(CommandSender sender, String[] args, int index) {
+        if (args.length <= index) {
+            return plugin.getArenas().getDefaultArena();
+        }
+        Arena arena = plugin.getArenas().getArena(args[index]);
+        if (arena == null) {
+            sender.sendMessage(ChatColor.RED + "아레나 '" + args[index] + "'을(를) 찾을 수 없습니다!");
+        }
+        return arena;
+    }
+
+    // 순위표는 보유자가 바뀔 때마다 정렬된 상태로 유지되므로 그대로 상위 10명을 보여줌
+    private void showTop(CommandSender sender, String[] args) {
+        Arena arena = findArena(sender, args, 1);
+        if (arena == null) return;
+        HoldLeaderboard leaderboard = arena.getLeaderboard();
+        if (leaderboard.size() == 0) {
+            sender.sendMessage(ChatColor.RED + "아직 알을 가졌던 플레이어가 없습니다!");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "=== 알 보유 시간 순위 (" + arena.getName() + ") ===");
+        int count = Math.min(10, leaderboard.size());
+        for (int rank = 0; rank < count; rank++) {
+            HoldLeaderboard.Entry entry = leaderboard.getRanked(rank);
+            sender.sendMessage(ChatColor.YELLOW + "#" + (rank + 1) + " " + entry.name()
+                    + " - " + formatTicks(entry.holdTicks())
+                    + ChatColor.GRAY + " (최장 " + formatTicks(entry.longestStreakTicks())
+                    + ", 뺏은 횟수 " + entry.steals() + ")");
+        }
+    }
+
+    private static String formatTicks(long ticks) {
+        long minutes = ticks / 1200;
+        return minutes >= 60 ? (minutes / 60) + "시간 " + (minutes % 60) + "분" : minutes + "분";
+    }
+
+    // 알의 위치는 이벤트로 갱신되어 있으므로 상자나 엔티티를 찾아보지 않고 바로 보여줌
+    private void showEggPosition(CommandSender sender, String[] args) {
+        Arena arena = findArena(sender, args, 1);
+        if (arena == null) return;
+        if (!arena.isGameActive()) {
+            sender.sendMessage(ChatColor.RED + "게임이 진행 중이 아닙니다!");
+            return;
+        }
+
+        EggLocator.Position position = arena.getEggTracker().getLocator().getPosition();
+        String player = position.playerName() != null ? position.playerName() : "?";
+        String where = switch (position.kind()) {
+            case PLAYER -> player + " 님이 가지고 있음";
+            case OFFLINE_PLAYER -> player + " 님이 가진 채 접속을 종료함";
+            case CONTAINER -> "상자 등 컨테이너 안";
+            case ENDER_CHEST -> player + " 님의 엔더 상자 안";
+            case ITEM -> "바닥에 떨어진 아이템";
+            case ENTITY -> "엔티티가 가지고 있음";
+            case UNKNOWN -> position.playerName() != null ? "알 수 없음 (마지막으로 " + player + " 님에게 있었음)" : "알 수 없음";
+        };
+        sender.sendMessage(ChatColor.GOLD + "드래곤 알 (" + arena.getName() + "): " + ChatColor.YELLOW + where);
+
+        Location location = arena.getEggTracker().getLocator().resolve();
+        if (location != null) {
+            sender.sendMessage(ChatColor.GRAY + location.getWorld().getName() + " " + location.getBlockX()
+                    + ", " + location.getBlockY() + ", " + location.getBlockZ());
+        }
+    }
+
+    // 알 보유자 경로를 히트맵(PNG) 또는 CSV로 내보냄 (파일 작업은 백그라운드 스레드에서)
+    private void exportTrail(CommandSender sender, String[] args) {
+        if (args.length < 2 || !(args[1].equalsIgnoreCase("png") || args[1].equalsIgnoreCase("csv"))) {
+            sender.sendMessage(ChatColor.YELLOW + "사용법: /dragongame trail <png|csv> [아레나]");
+            return;
+        }
+        TrailRecorder.Format format = TrailRecorder.Format.valueOf(args[1].toUpperCase());
+        Arena arena = findArena(sender, args, 2);
+        if (arena == null) return;
+        if (arena.getGameId() == null) {
+            sender.sendMessage(ChatColor.RED + "기록된 게임이 없습니다!");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.GRAY + "경로 기록을 내보내는 중...");
+        arena.getEggTracker().getTrails().export(format).whenComplete((files, error) ->
+                plugin.getTaskScheduler().runGlobal(() -> {
+                    if (error != null) {
+                        plugin.getLogger().log(Level.WARNING, "경로 기록을 내보내지 못했습니다.", error);
+                        sender.sendMessage(ChatColor.RED + "경로 기록을 내보내지 못했습니다. 서버 로그를 확인하세요.");
+                    } else if (files.isEmpty()) {
+                        sender.sendMessage(ChatColor.RED + "기록된 경로가 없습니다!");
+                    } else {
+                        for (File file : files) {
+                            sender.sendMessage(ChatColor.GREEN + "저장됨: " + file.getPath());
+                        }
+                    }
+                }));
+    }
+
+    private void showMetrics(CommandSender sender, String[] args) {
+        PluginMetrics metrics = plugin.getMetrics();
+        if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+            metrics.resetTimers();
+            sender.sendMessage(ChatColor.GREEN + "처리 시간 기록을 초기화했습니다.");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "=== 처리 시간 (p50 / p99 / 최대) ===");
+        List<String> timers = metrics.formatTimers();
+        if (timers.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "아직 기록된 값이 없습니다.");
+        }
+        for (String line : timers) {
+            sender.sendMessage(ChatColor.YELLOW + line);
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "=== 상태 ===");
+        for (Map.Entry<String, Long> gauge : metrics.readGauges().entrySet()) {
+            sender.sendMessage(ChatColor.YELLOW + gauge.getKey() + ": " + gauge.getValue());
+        }
+    }
 }
\ No newline at end of file
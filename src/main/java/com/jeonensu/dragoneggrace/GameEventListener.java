@@ -8,19 +8,45 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.Item; // Item 엔티티 import 추가
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockDropItemEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.ItemDespawnEvent;
 import org.bukkit.event.entity.ItemMergeEvent; // ItemMergeEvent import 추가
 import org.bukkit.event.entity.ItemSpawnEvent; // ItemSpawnEvent import 추가
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.Color; // org.bukkit.Color import 추가
 import org.bukkit.Particle;
+import org.bukkit.World;
+
+import java.util.List;
+
 public class GameEventListener implements Listener {
 
     private final DragonEggRacePlugin plugin;
@@ -31,9 +57,10 @@ public class GameEventListener implements Listener {
     // 플레이어가 블록을 우클릭 또는 좌클릭했을 때
     @EventHandler
     public void onPlayerInteract(PlayerInteractEvent event) {
-        if (!plugin.isGameActive()) return; // 게임이 활성화 상태일 때만
-
         Player player = event.getPlayer();
+        Arena arena = plugin.getArenas().arenaOf(player);
+        if (!arena.isGameActive()) return; // 게임이 활성화 상태일 때만
+
         Block clickedBlock = event.getClickedBlock();
 
         // 클릭한 블록이 없거나, 드래곤 알이 아니면 리턴
@@ -47,8 +74,10 @@ public class GameEventListener implements Listener {
 
             // 플레이어 인벤토리에 알 추가
             ItemStack dragonEgg = new ItemStack(Material.DRAGON_EGG);
+            plugin.getArenas().tagEgg(dragonEgg, arena); // 이 아레나의 알로 표시
             if (player.getInventory().addItem(dragonEgg).isEmpty()) { // 인벤토리에 공간이 있으면 추가
                 clickedBlock.setType(Material.AIR); // 월드의 알 블록 제거
+                markHolderDirty(player);
                 player.sendMessage(ChatColor.GREEN + "드래곤 알을 인벤토리로 가져왔습니다!");
                 player.playSound(player.getLocation(), Sound.ENTITY_ITEM_PICKUP, 1.0f, 1.0f);
             } else { // 인벤토리에 공간이 없으면
@@ -59,40 +88,40 @@ public class GameEventListener implements Listener {
     }
     @EventHandler
     public void onItemSpawn(ItemSpawnEvent event) {
-        if (!plugin.isGameActive()) return;
-
         Item spawnedItem = event.getEntity();
-        if (spawnedItem.getItemStack().getType() == Material.DRAGON_EGG) {
+        Arena arena = plugin.getArenas().arenaOf(spawnedItem.getWorld());
+        if (!arena.isGameActive()) return;
+
+        ItemStack stack = spawnedItem.getItemStack();
+        if (stack.getType() == Material.DRAGON_EGG) {
+            // 아레나 월드에서 새로 생긴 알(드래곤 처치 등)은 그 아레나의 알로 표시
+            if (!arena.isDefault() && plugin.getArenas().getEggTag(stack) == null) {
+                plugin.getArenas().tagEgg(stack, arena);
+                spawnedItem.setItemStack(stack);
+            }
+
             // 발광 효과 적용 (glow color override는 1.17+에서만 사용 가능)
             spawnedItem.setGlowing(true);
             // If you are on Minecraft 1.16.5 or older, remove or comment out the line below:
             // spawnedItem.setGlowColorOverride(Color.PURPLE);
 
             // For older versions, you can add a particle effect to simulate a purple glow
-            // This task will run repeatedly to keep the particles visible
-            plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
-                if (!spawnedItem.isDead() && spawnedItem.isValid() && spawnedItem.getItemStack().getType() == Material.DRAGON_EGG) {
-                    spawnedItem.getWorld().spawnParticle(
-                            Particle.REVERSE_PORTAL, // Or another particle like END_ROD, SPELL_MOB, etc.
-                            spawnedItem.getLocation().add(0, 0.5, 0), // Adjust height
-                            5, // amount
-                            0.2, 0.2, 0.2, // offset (spread)
-                            0.0 // extra (speed)
-                    );
-                }
-            }, 0L, 10L); // Every 0.5 seconds (10 ticks)
+            // 모든 알 아이템의 파티클은 하나의 공용 작업에서 처리 (아이템이 사라지면 자동으로 제외)
+            plugin.getEggEffectTicker().track(spawnedItem);
         }
     }
 
     @EventHandler
     public void onItemPickup(EntityPickupItemEvent event) {
-        if (!plugin.isGameActive()) return;
         if (!(event.getEntity() instanceof Player)) return;
+        Player player = (Player) event.getEntity();
+        Arena arena = plugin.getArenas().arenaOf(player);
+        if (!arena.isGameActive()) return;
 
         ItemStack item = event.getItem().getItemStack();
-        if (item.getType() == Material.DRAGON_EGG) {
-            Player player = (Player) event.getEntity();
-
+        if (isDragonEgg(item)) {
+            markHolderDirty(player);
+            if (!arena.isEgg(item)) return; // 다른 아레나의 알
 
             // 획득 사운드
             player.playSound(player.getLocation(), Sound.ENTITY_PLAYER_LEVELUP, 1.0f, 1.0f);
@@ -108,19 +137,89 @@ public class GameEventListener implements Listener {
 
     @EventHandler
     public void onInventoryClick(InventoryClickEvent event) {
-        if (!plugin.isGameActive()) return;
         if (!(event.getWhoClicked() instanceof Player)) return;
+        if (!isGameActive(event.getWhoClicked().getWorld())) return;
+
+        // 알을 클릭했거나, 커서에 알을 들고 있거나, 숫자키로 핫바와 교환한 경우 보유자 재확인
+        if (isDragonEgg(event.getCurrentItem()) || isDragonEgg(event.getCursor())
+                || event.getClick() == ClickType.NUMBER_KEY || event.getClick() == ClickType.SWAP_OFFHAND) {
+            markHolderDirty((Player) event.getWhoClicked());
+        }
+    }
+
+    @EventHandler
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (!(event.getWhoClicked() instanceof Player)) return;
+        if (!isGameActive(event.getWhoClicked().getWorld())) return;
+
+        if (isDragonEgg(event.getOldCursor())) {
+            markHolderDirty((Player) event.getWhoClicked());
+        }
+    }
+
+    @EventHandler
+    public void onInventoryClose(InventoryCloseEvent event) {
+        if (!(event.getPlayer() instanceof Player)) return;
+        if (!isGameActive(event.getPlayer().getWorld())) return;
+
+        // 상자 등을 닫을 때 한 번 더 확인 (놓친 클릭 보정)
+        markHolderDirty((Player) event.getPlayer());
+    }
+
+    // 호퍼 등이 아이템을 옮길 때 발생하는 이벤트
+    @EventHandler
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        if (!isDragonEgg(event.getItem())) return;
+        // 게임 진행 여부는 markHolderDirty에서 플레이어의 아레나 기준으로 확인
+
+        if (event.getSource().getHolder() instanceof Player) {
+            markHolderDirty((Player) event.getSource().getHolder());
+        }
+        if (event.getDestination().getHolder() instanceof Player) {
+            markHolderDirty((Player) event.getDestination().getHolder());
+        }
+    }
+
+    @EventHandler
+    public void onPlayerDeath(PlayerDeathEvent event) {
+        markHolderDirty(event.getEntity());
+    }
+
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        markHolderDirty(event.getPlayer());
+        // 알을 가진 채 접속을 종료했던 플레이어가 돌아옴 (다른 월드에서 접속했을 수 있으므로 모든 아레나 확인)
+        for (Arena arena : plugin.getArenas().getArenas()) {
+            if (arena.isGameActive()) {
+                arena.getEggTracker().getLocator().onJoin(event.getPlayer());
+            }
+        }
+    }
 
-        ItemStack item = event.getCurrentItem();
-        if (item != null && item.getType() == Material.DRAGON_EGG) {
-            Player player = (Player) event.getWhoClicked();
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        markHolderDirty(event.getPlayer());
+        Arena arena = plugin.getArenas().arenaOf(event.getPlayer());
+        if (arena.isGameActive()) {
+            arena.getEggTracker().getLocator().onQuit(event.getPlayer()); // 알을 가진 채 나가도 보유자로 유지
+        }
+    }
 
+    // 다른 아레나의 월드로 이동하면 이전 아레나에서는 보유자가 아니게 되고, 새 아레나에서 다시 확인
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        Arena from = plugin.getArenas().arenaOf(event.getFrom());
+        Arena to = plugin.getArenas().arenaOf(player);
+        if (from != to && from.isGameActive()) {
+            from.getEggTracker().getHolderIndex().markDirty(player);
         }
+        markHolderDirty(player);
     }
 
     @EventHandler
     public void onBlockPlace(BlockPlaceEvent event) {
-        if (plugin.isGameActive()) {
+        if (isGameActive(event.getBlock().getWorld())) {
             Block placedBlock = event.getBlockPlaced();
             if (placedBlock != null && placedBlock.getType() == Material.DRAGON_EGG) {
                 event.setCancelled(true);
@@ -131,37 +230,223 @@ public class GameEventListener implements Listener {
     // 플레이어가 아이템을 던질 때 발생하는 이벤트
     @EventHandler
     public void onPlayerDropItem(PlayerDropItemEvent event) {
-        // 게임이 활성화 상태일 때만 적용
-        if (plugin.isGameActive()) {
+        // 플레이어가 있는 아레나의 게임이 활성화 상태일 때만 적용
+        if (isGameActive(event.getPlayer().getWorld())) {
             // 던진 아이템이 드래곤 알인지 확인
             if (event.getItemDrop().getItemStack().getType() == Material.DRAGON_EGG) {
                 event.setCancelled(true); // 아이템 던지기 취소
                 event.getPlayer().sendMessage(ChatColor.RED + "드래곤 알은 던질 수 없습니다!");
+                markHolderDirty(event.getPlayer()); // 다른 플러그인이 취소를 되돌릴 수 있으므로 재확인
             }
         }
     }
     // 플레이어가 블록을 파괴할 때 발생하는 이벤트
     @EventHandler
     public void onBlockBreak(BlockBreakEvent event) {
-        // 게임이 활성화 상태일 때만 적용
-        if (plugin.isGameActive()) {
-            // 파괴하려는 블록이 신호기 추적 목록에 있는지 확인
-            // DragonEggTracker 인스턴스에 접근해야 하므로, GameEventListener 생성자에 plugin을 넘겨줘야 합니다.
-            // DragonEggRacePlugin에 eggTracker getter를 추가하는 것이 더 깔끔합니다. (아래 플러그인 코드에 추가 예정)
-            if (plugin.getEggTracker().getBeaconLocations().contains(event.getBlock().getLocation())) {
+        // 블록이 있는 아레나의 게임이 활성화 상태일 때만 적용
+        Arena arena = plugin.getArenas().arenaOf(event.getBlock().getWorld());
+        if (arena.isGameActive()) {
+            // 파괴하려는 블록이 신호기 블록인지 확인 (대부분의 청크는 배열 한 번 조회로 끝남)
+            if (arena.getEggTracker().getBeaconBlocks().contains(event.getBlock())) {
                 event.setCancelled(true); // 블록 파괴 취소
                 event.getPlayer().sendMessage(ChatColor.RED + "신호기 관련 블록은 파괴할 수 없습니다!");
             }
         }
     }
 
+    // 폭발로 신호기 블록이 파괴되지 않도록 폭발 목록에서 제외
+    @EventHandler
+    public void onEntityExplode(EntityExplodeEvent event) {
+        Arena arena = plugin.getArenas().arenaOf(event.getEntity().getWorld());
+        if (arena.isGameActive()) {
+            removeProtectedBlocks(arena, event.blockList());
+        }
+    }
+
+    @EventHandler
+    public void onBlockExplode(BlockExplodeEvent event) {
+        Arena arena = plugin.getArenas().arenaOf(event.getBlock().getWorld());
+        if (arena.isGameActive()) {
+            removeProtectedBlocks(arena, event.blockList());
+        }
+    }
 
-    private boolean hasPlayerDragonEgg(Player player) {
-        for (ItemStack item : player.getInventory().getContents()) {
-            if (item != null && item.getType() == Material.DRAGON_EGG) {
+    // 피스톤으로 신호기 블록을 밀거나 당길 수 없도록 함
+    @EventHandler
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        Arena arena = plugin.getArenas().arenaOf(event.getBlock().getWorld());
+        if (arena.isGameActive() && containsProtectedBlock(arena, event.getBlocks())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        Arena arena = plugin.getArenas().arenaOf(event.getBlock().getWorld());
+        if (arena.isGameActive() && containsProtectedBlock(arena, event.getBlocks())) {
+            event.setCancelled(true);
+        }
+    }
+
+    // ---- 알의 위치 추적 (EggLocator): 취소되지 않은 이동만 반영하도록 MONITOR 우선순위 ----
+
+    // 알이 아이템으로 떨어짐 (사망, 상자 파괴, 디스펜서 등)
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void locateEggOnItemSpawn(ItemSpawnEvent event) {
+        Item item = event.getEntity();
+        Arena arena = plugin.getArenas().arenaOf(item.getWorld());
+        if (arena.isGameActive() && arena.isEgg(item.getItemStack())) {
+            arena.getEggTracker().getLocator().asItem(item);
+        }
+    }
+
+    // 플레이어나 다른 엔티티(여우, 알레이 등)가 알을 주움
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void locateEggOnPickup(EntityPickupItemEvent event) {
+        Item item = event.getItem();
+        Arena arena = plugin.getArenas().arenaOf(item.getWorld());
+        if (!arena.isGameActive()) return;
+
+        EggLocator locator = arena.getEggTracker().getLocator();
+        // 알이 든 셜커 상자 아이템도 주운 엔티티를 따라감
+        if (!arena.isEgg(item.getItemStack()) && !item.getUniqueId().equals(locator.getPosition().entityId())) return;
+
+        if (event.getEntity() instanceof Player player) {
+            locator.atPlayer(player);
+        } else {
+            locator.carriedBy(event.getEntity());
+        }
+    }
+
+    // 호퍼 등이 알을 다른 인벤토리로 옮김
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void locateEggOnMove(InventoryMoveItemEvent event) {
+        if (!isDragonEgg(event.getItem()) || event.getSource().getLocation() == null) return;
+        Arena arena = plugin.getArenas().arenaOf(event.getSource().getLocation().getWorld());
+        if (arena.isGameActive() && arena.isEgg(event.getItem())) {
+            arena.getEggTracker().getLocator().inInventory(event.getDestination(), null);
+        }
+    }
+
+    // 호퍼(호퍼 카트)가 바닥의 알 아이템을 빨아들임
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void locateEggOnInventoryPickup(InventoryPickupItemEvent event) {
+        Item item = event.getItem();
+        Arena arena = plugin.getArenas().arenaOf(item.getWorld());
+        if (arena.isGameActive() && arena.isEgg(item.getItemStack())) {
+            arena.getEggTracker().getLocator().inInventory(event.getInventory(), null);
+        }
+    }
+
+    // 상자, 엔더 상자 등을 닫을 때 알을 넣었는지(또는 꺼냈는지) 확인
+    // 위치와 관계있는 인벤토리만 확인하므로 평소에는 비교 몇 번으로 끝남
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void locateEggOnInventoryClose(InventoryCloseEvent event) {
+        if (!(event.getPlayer() instanceof Player player)) return;
+        Arena arena = plugin.getArenas().arenaOf(player);
+        if (!arena.isGameActive()) return;
+
+        EggLocator locator = arena.getEggTracker().getLocator();
+        Inventory top = event.getView().getTopInventory();
+        if (top.getType() == InventoryType.CRAFTING) return; // 자기 인벤토리만 열었음
+        boolean lastSeenWithPlayer = player.getUniqueId().equals(locator.getPosition().playerId());
+        if (!lastSeenWithPlayer && !locator.isIn(top, player)) return;
+
+        for (ItemStack item : top.getContents()) {
+            if (item != null && arena.isEgg(item)) {
+                locator.inInventory(top, player);
+                return;
+            }
+        }
+        // 꺼냈다면 다음 트래킹에서 보유자 인덱스가 찾아냄
+    }
+
+    // 알이 든 컨테이너를 부숨: 알은 아이템으로 떨어지고, 셜커 상자라면 상자 아이템 안에 남음
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void locateEggOnBlockDrop(BlockDropItemEvent event) {
+        Arena arena = plugin.getArenas().arenaOf(event.getBlock().getWorld());
+        if (!arena.isGameActive()) return;
+
+        EggLocator locator = arena.getEggTracker().getLocator();
+        if (!locator.isAtBlock(event.getBlock().getLocation()) || event.getItems().isEmpty()) return;
+        for (Item item : event.getItems()) {
+            if (arena.isEgg(item.getItemStack())) {
+                locator.asItem(item);
+                return;
+            }
+        }
+        locator.asItem(event.getItems().get(0)); // 셜커 상자 아이템
+    }
+
+    // 알 아이템이 사라짐 (시간이 지나 소멸)
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void locateEggOnDespawn(ItemDespawnEvent event) {
+        Arena arena = plugin.getArenas().arenaOf(event.getEntity().getWorld());
+        if (arena.isGameActive()) {
+            arena.getEggTracker().getLocator().onItemGone(event.getEntity());
+        }
+    }
+
+    // 청크의 엔티티가 로드될 때, 언로드 중이라 지우지 못했던 발자국 제거
+    // (게임이 끝난 뒤에도 남은 발자국을 치워야 하므로 게임 상태와 관계없이 처리)
+    @EventHandler
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        plugin.getOrphanCleaner().onEntitiesLoad(event.getEntities()); // 이전 실행에서 남은 발자국
+        plugin.getArenas().arenaOf(event.getWorld()).getEggTracker().onEntitiesLoad(event.getChunk(), event.getEntities());
+    }
+
+    // 비정상 종료 전에 설치된 신호기 블록이 남은 청크인지 확인
+    @EventHandler
+    public void onChunkLoad(ChunkLoadEvent event) {
+        plugin.getOrphanCleaner().onChunkLoad(event.getChunk());
+    }
+
+    // 아레나 월드가 나중에 로드되거나 다시 로드되면 아레나에 연결
+    @EventHandler
+    public void onWorldLoad(WorldLoadEvent event) {
+        plugin.getArenas().bindWorld(event.getWorld());
+    }
+
+    // 언로드된 월드는 연결만 해제 (아레나는 월드 이름을 유지)
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        plugin.getArenas().unbindWorld(event.getWorld());
+    }
+
+    // 월드가 속한 아레나의 게임이 진행 중인지 확인
+    private boolean isGameActive(World world) {
+        return plugin.getArenas().arenaOf(world).isGameActive();
+    }
+
+    // 인벤토리가 바뀌었을 수 있는 플레이어를 다음 트래킹 때 다시 확인하도록 표시 (플레이어가 있는 아레나 기준)
+    private void markHolderDirty(Player player) {
+        Arena arena = plugin.getArenas().arenaOf(player);
+        if (arena.isGameActive()) {
+            arena.getEggTracker().getHolderIndex().markDirty(player);
+        }
+    }
+
+    private void removeProtectedBlocks(Arena arena, List<Block> blocks) {
+        ProtectedBlockIndex protectedBlocks = arena.getEggTracker().getBeaconBlocks();
+        if (!protectedBlocks.isEmpty()) {
+            blocks.removeIf(protectedBlocks::contains);
+        }
+    }
+
+    private boolean containsProtectedBlock(Arena arena, List<Block> blocks) {
+        ProtectedBlockIndex protectedBlocks = arena.getEggTracker().getBeaconBlocks();
+        if (protectedBlocks.isEmpty()) {
+            return false;
+        }
+        for (Block block : blocks) {
+            if (protectedBlocks.contains(block)) {
                 return true;
             }
         }
         return false;
     }
+
+    private boolean isDragonEgg(ItemStack item) {
+        return item != null && item.getType() == Material.DRAGON_EGG;
+    }
 }
\ No newline at end of file
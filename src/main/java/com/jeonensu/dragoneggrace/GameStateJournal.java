@@ -0,0 +1,637 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Location;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe persistence of the game state as a binary append-only journal plus periodic snapshots.
+ * <p>
+ * Every state change is encoded on the main thread into a small record and appended to
+ * {@code state/journal.bin} through a serial queue of the plugin's {@link AsyncIoService}, so the
+ * main thread never blocks on disk and records are written in order. Records appended while an earlier
+ * write is still waiting in the queue join its batch, so a burst of changes costs one write and one fsync.
+ * Each record is {@code [length][type][payload][crc32]}; a torn or corrupted tail left by a crash is
+ * detected by its length or checksum and cut off during recovery.
+ * <p>
+ * After {@link #COMPACT_AFTER_RECORDS} records the current state is written to {@code state/snapshot.bin}
+ * (temp file + atomic rename) and the journal is truncated. Every record type only sets state, so replaying
+ * a journal that was already folded into the snapshot (crash between rename and truncate) gives the same result.
+ */
+public class GameStateJournal {
+
+    private static final int SNAPSHOT_MAGIC_V1 = 0x44455231; // "DER1", without hold statistics
+    private static final int SNAPSHOT_MAGIC_V2 = 0x44455232; // "DER2", without the egg position
+    private static final int SNAPSHOT_MAGIC = 0x44455233; // "DER3"
+    private static final int MAX_RECORD_LENGTH = 1 << 16;
+    // Fold the journal into a new snapshot after this many records
+    private static final int COMPACT_AFTER_RECORDS = 1000;
+
+    private static final byte GAME_STARTED = 1;
+    private static final byte GAME_ENDED = 2;
+    private static final byte CLOCK = 3;
+    private static final byte DAY_ELAPSED = 4;
+    private static final byte HOLDER_CHANGED = 5;
+    private static final byte BEACON_PLACED = 6;
+    private static final byte BEACONS_CLEARED = 7;
+    private static final byte HOLD_STATS = 8;
+    private static final byte EGG_LOCATED = 9;
+
+    /**
+     * A beacon or beacon base block, by world and block position.
+     */
+    public record BeaconBlock(UUID worldId, int x, int y, int z) {
+    }
+
+    /**
+     * The persisted game state.
+     */
+    public static final class State {
+        private boolean active;
+        private UUID gameId;
+        private long elapsedTicks;
+        private int elapsedDays;
+        private UUID holderId;
+        private final Set<BeaconBlock> beacons = new LinkedHashSet<>();
+        private final Map<UUID, HoldLeaderboard.Entry> holdStats = new LinkedHashMap<>();
+        private EggLocator.Position eggPosition;
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public UUID getGameId() {
+            return gameId;
+        }
+
+        public long getElapsedTicks() {
+            return elapsedTicks;
+        }
+
+        public int getElapsedDays() {
+            return elapsedDays;
+        }
+
+        public UUID getHolderId() {
+            return holderId;
+        }
+
+        public Set<BeaconBlock> getBeacons() {
+            return Collections.unmodifiableSet(beacons);
+        }
+
+        /**
+         * Returns the leaderboard rows of the game, as of their last save.
+         */
+        public Collection<HoldLeaderboard.Entry> getHoldStats() {
+            return Collections.unmodifiableCollection(holdStats.values());
+        }
+
+        /**
+         * Returns the last known position of the egg, or null.
+         */
+        public EggLocator.Position getEggPosition() {
+            return eggPosition;
+        }
+
+        private State copy() {
+            State copy = new State();
+            copy.copyFrom(this);
+            return copy;
+        }
+
+        private void copyFrom(State other) {
+            active = other.active;
+            gameId = other.gameId;
+            elapsedTicks = other.elapsedTicks;
+            elapsedDays = other.elapsedDays;
+            holderId = other.holderId;
+            beacons.clear();
+            beacons.addAll(other.beacons);
+            holdStats.clear();
+            holdStats.putAll(other.holdStats);
+            eggPosition = other.eggPosition;
+        }
+
+        private void reset() {
+            active = false;
+            gameId = null;
+            elapsedTicks = 0;
+            elapsedDays = 0;
+            holderId = null;
+            beacons.clear();
+            holdStats.clear();
+            eggPosition = null;
+        }
+
+        private void apply(byte type, DataInputStream in) throws IOException {
+            switch (type) {
+                case GAME_STARTED -> {
+                    reset();
+                    active = true;
+                    gameId = readUuid(in);
+                }
+                case GAME_ENDED -> reset();
+                case CLOCK -> elapsedTicks = in.readLong();
+                case DAY_ELAPSED -> {
+                    elapsedDays = in.readInt();
+                    elapsedTicks = in.readLong();
+                }
+                case HOLDER_CHANGED -> holderId = in.readBoolean() ? readUuid(in) : null;
+                case BEACON_PLACED -> beacons.add(new BeaconBlock(readUuid(in), in.readInt(), in.readInt(), in.readInt()));
+                case BEACONS_CLEARED -> beacons.clear();
+                case HOLD_STATS -> {
+                    HoldLeaderboard.Entry entry = readHoldStats(in);
+                    holdStats.put(entry.playerId(), entry);
+                }
+                case EGG_LOCATED -> eggPosition = readEggPosition(in);
+                default -> throw new IOException("Unknown journal record type " + type);
+            }
+        }
+    }
+
+    private final Logger logger;
+    private final File journalFile;
+    private final File snapshotFile;
+    private final AsyncIoService.SerialQueue ioQueue;
+
+    // Mirror of the persisted state, used to build snapshots (updated on the main thread)
+    private final State state = new State();
+    private int recordsSinceSnapshot = 0;
+    // Records not yet taken by the I/O queue; a new batch is started after each snapshot (main thread)
+    private Batch openBatch;
+
+    // Only touched by tasks of the I/O queue
+    private FileChannel journalChannel;
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * @param plugin The plugin, for logging and its I/O service.
+     * @param directory Directory holding the journal and snapshot files of one arena.
+     * @param arenaName Arena name, used to name the I/O queue.
+     */
+    public GameStateJournal(DragonEggRacePlugin plugin, File directory, String arenaName) {
+        this.logger = plugin.getLogger();
+        this.journalFile = new File(directory, "journal.bin");
+        this.snapshotFile = new File(directory, "snapshot.bin");
+        this.ioQueue = plugin.getIo().newSerialQueue("journal-" + arenaName);
+    }
+
+    /**
+     * Loads the snapshot and replays the journal on the I/O queue.
+     * Must be called before any state change is recorded.
+     *
+     * @return A future completed with a copy of the recovered state (inactive if nothing was saved).
+     */
+    public CompletableFuture<State> recover() {
+        return CompletableFuture.supplyAsync(() -> {
+            State recovered = new State();
+            long start = System.nanoTime();
+            try {
+                Files.createDirectories(journalFile.getParentFile().toPath());
+                readSnapshot(recovered);
+                int records = replayJournal(recovered);
+                logger.info("게임 상태 복구 완료: 기록 " + records + "개, "
+                        + (System.nanoTime() - start) / 1_000_000 + "ms");
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "게임 상태를 복구하지 못했습니다. 새 게임으로 시작합니다.", e);
+                recovered.reset();
+            }
+            synchronized (state) {
+                state.copyFrom(recovered);
+            }
+            return recovered;
+        }, ioQueue);
+    }
+
+    public void gameStarted(UUID gameId) {
+        append(GAME_STARTED, out -> writeUuid(out, gameId));
+    }
+
+    public void gameEnded() {
+        append(GAME_ENDED, out -> {
+        });
+    }
+
+    public void clock(long elapsedTicks) {
+        append(CLOCK, out -> out.writeLong(elapsedTicks));
+    }
+
+    public void dayElapsed(int elapsedDays, long elapsedTicks) {
+        append(DAY_ELAPSED, out -> {
+            out.writeInt(elapsedDays);
+            out.writeLong(elapsedTicks);
+        });
+    }
+
+    public void holderChanged(UUID holderId) {
+        append(HOLDER_CHANGED, out -> {
+            out.writeBoolean(holderId != null);
+            if (holderId != null) {
+                writeUuid(out, holderId);
+            }
+        });
+    }
+
+    public void beaconPlaced(Location location) {
+        append(BEACON_PLACED, out -> {
+            writeUuid(out, location.getWorld().getUID());
+            out.writeInt(location.getBlockX());
+            out.writeInt(location.getBlockY());
+            out.writeInt(location.getBlockZ());
+        });
+    }
+
+    public void beaconsCleared() {
+        append(BEACONS_CLEARED, out -> {
+        });
+    }
+
+    public void holdStats(HoldLeaderboard.Entry entry) {
+        append(HOLD_STATS, out -> writeHoldStats(out, entry));
+    }
+
+    public void eggLocated(EggLocator.Position position) {
+        append(EGG_LOCATED, out -> writeEggPosition(out, position));
+    }
+
+    /**
+     * Writes a final snapshot, waits for all pending writes and closes the journal.
+     * The journal file is closed by the I/O queue after the last write, so a write that is still
+     * running when the wait times out is never cut off.
+     */
+    public void close() {
+        compact();
+        ioQueue.execute(this::closeChannel);
+        if (!ioQueue.close(10, TimeUnit.SECONDS)) {
+            logger.warning("게임 상태 저장이 시간 안에 끝나지 않았습니다.");
+        }
+    }
+
+    /**
+     * Returns a future completed once every record appended so far has been written and synced.
+     */
+    CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(() -> {
+        }, ioQueue);
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Records filled on the main thread and taken once by the I/O task that writes them.
+     */
+    private static final class Batch {
+        private final List<byte[]> payloads = new ArrayList<>();
+        private boolean taken = false;
+
+        private synchronized boolean add(byte[] payload) {
+            if (taken) {
+                return false;
+            }
+            payloads.add(payload);
+            return true;
+        }
+
+        private synchronized List<byte[]> take() {
+            taken = true;
+            return payloads;
+        }
+    }
+
+    /**
+     * Encodes a record on the calling thread, applies it to the mirror state and queues the write.
+     */
+    private void append(byte type, PayloadWriter payloadWriter) {
+        byte[] payload;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            payloadWriter.write(out);
+            payload = bytes.toByteArray();
+
+            synchronized (state) {
+                state.apply(type, new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1)));
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "게임 상태 기록을 만들지 못했습니다.", e);
+            return;
+        }
+
+        // 아직 디스크에 쓰이지 않은 묶음이 있으면 함께 기록
+        if (openBatch == null || !openBatch.add(payload)) {
+            Batch batch = new Batch();
+            batch.add(payload);
+            openBatch = batch;
+            ioQueue.execute(() -> writeBatch(batch));
+        }
+
+        if (++recordsSinceSnapshot >= COMPACT_AFTER_RECORDS) {
+            compact();
+        }
+    }
+
+    /**
+     * Queues a snapshot of the current state and truncates the journal after it is written.
+     */
+    private void compact() {
+        recordsSinceSnapshot = 0;
+        openBatch = null; // 이후 기록은 스냅샷 다음에 써야 잘리지 않음
+        State snapshot;
+        synchronized (state) {
+            snapshot = state.copy();
+        }
+        if (!ioQueue.isClosed()) {
+            ioQueue.execute(() -> writeSnapshot(snapshot));
+        }
+    }
+
+    // ---- I/O queue ----
+
+    // Writes all records of a batch with one write and one fsync
+    private void writeBatch(Batch batch) {
+        try {
+            List<byte[]> payloads = batch.take();
+            int size = 0;
+            for (byte[] payload : payloads) {
+                size += 4 + payload.length + 4;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (byte[] payload : payloads) {
+                crc.reset();
+                crc.update(payload);
+                buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+            }
+            buffer.flip();
+
+            FileChannel channel = journalChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "게임 상태 기록을 저장하지 못했습니다.", e);
+        }
+    }
+
+    private void writeSnapshot(State snapshot) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeBoolean(snapshot.active);
+            out.writeBoolean(snapshot.gameId != null);
+            if (snapshot.gameId != null) {
+                writeUuid(out, snapshot.gameId);
+            }
+            out.writeLong(snapshot.elapsedTicks);
+            out.writeInt(snapshot.elapsedDays);
+            out.writeBoolean(snapshot.holderId != null);
+            if (snapshot.holderId != null) {
+                writeUuid(out, snapshot.holderId);
+            }
+            out.writeInt(snapshot.beacons.size());
+            for (BeaconBlock beacon : snapshot.beacons) {
+                writeUuid(out, beacon.worldId());
+                out.writeInt(beacon.x());
+                out.writeInt(beacon.y());
+                out.writeInt(beacon.z());
+            }
+            out.writeInt(snapshot.holdStats.size());
+            for (HoldLeaderboard.Entry entry : snapshot.holdStats.values()) {
+                writeHoldStats(out, entry);
+            }
+            out.writeBoolean(snapshot.eggPosition != null);
+            if (snapshot.eggPosition != null) {
+                writeEggPosition(out, snapshot.eggPosition);
+            }
+            crc.reset();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+
+            // Write to a temp file first so a crash never leaves a half-written snapshot
+            File temp = new File(snapshotFile.getParentFile(), "snapshot.bin.tmp");
+            try (FileChannel channel = FileChannel.open(temp.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Everything in the journal is now part of the snapshot
+            journalChannel().truncate(0);
+            journalChannel.force(true);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "게임 상태 스냅샷을 저장하지 못했습니다.", e);
+        }
+    }
+
+    private void readSnapshot(State target) throws IOException {
+        if (!snapshotFile.isFile()) {
+            return;
+        }
+
+        byte[] bytes = Files.readAllBytes(snapshotFile.toPath());
+        if (bytes.length < 8) {
+            logger.warning("게임 상태 스냅샷이 손상되어 무시합니다.");
+            return;
+        }
+        crc.reset();
+        crc.update(bytes, 0, bytes.length - 4);
+        int storedCrc = ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt();
+        if ((int) crc.getValue() != storedCrc) {
+            logger.warning("게임 상태 스냅샷이 손상되어 무시합니다.");
+            return;
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+        int magic = in.readInt();
+        if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V2 && magic != SNAPSHOT_MAGIC_V1) {
+            logger.warning("알 수 없는 게임 상태 스냅샷 형식이라 무시합니다.");
+            return;
+        }
+        target.active = in.readBoolean();
+        target.gameId = in.readBoolean() ? readUuid(in) : null;
+        target.elapsedTicks = in.readLong();
+        target.elapsedDays = in.readInt();
+        target.holderId = in.readBoolean() ? readUuid(in) : null;
+        int beaconCount = in.readInt();
+        for (int i = 0; i < beaconCount; i++) {
+            target.beacons.add(new BeaconBlock(readUuid(in), in.readInt(), in.readInt(), in.readInt()));
+        }
+        if (magic != SNAPSHOT_MAGIC_V1) {
+            int statCount = in.readInt();
+            for (int i = 0; i < statCount; i++) {
+                HoldLeaderboard.Entry entry = readHoldStats(in);
+                target.holdStats.put(entry.playerId(), entry);
+            }
+        }
+        if (magic == SNAPSHOT_MAGIC && in.readBoolean()) {
+            target.eggPosition = readEggPosition(in);
+        }
+    }
+
+    /**
+     * Replays all intact journal records and cuts off a torn or corrupted tail.
+     *
+     * @return The number of records replayed.
+     */
+    private int replayJournal(State target) throws IOException {
+        if (!journalFile.isFile()) {
+            return 0;
+        }
+
+        int records = 0;
+        long validLength = 0;
+        try (InputStream file = new BufferedInputStream(new FileInputStream(journalFile))) {
+            DataInputStream in = new DataInputStream(file);
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break; // clean end of journal
+                }
+                if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                    break;
+                }
+
+                byte[] payload = new byte[length];
+                int storedCrc;
+                try {
+                    in.readFully(payload);
+                    storedCrc = in.readInt();
+                } catch (EOFException e) {
+                    break; // record was only partially written
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != storedCrc) {
+                    break;
+                }
+
+                target.apply(payload[0], new DataInputStream(new ByteArrayInputStream(payload, 1, length - 1)));
+                validLength += 4 + length + 4;
+                records++;
+            }
+        }
+
+        if (validLength < journalFile.length()) {
+            logger.warning("게임 상태 기록 끝부분이 손상되어 " + (journalFile.length() - validLength) + "바이트를 잘라냈습니다.");
+            try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+        }
+        return records;
+    }
+
+    private FileChannel journalChannel() throws IOException {
+        if (journalChannel == null) {
+            journalChannel = FileChannel.open(journalFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return journalChannel;
+    }
+
+    private void closeChannel() {
+        if (journalChannel != null) {
+            try {
+                journalChannel.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "게임 상태 기록 파일을 닫지 못했습니다.", e);
+            }
+            journalChannel = null;
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeHoldStats(DataOutputStream out, HoldLeaderboard.Entry entry) throws IOException {
+        writeUuid(out, entry.playerId());
+        out.writeUTF(entry.name());
+        out.writeLong(entry.holdTicks());
+        out.writeLong(entry.longestStreakTicks());
+        out.writeLong(entry.streakTicks());
+        out.writeInt(entry.steals());
+    }
+
+    private static HoldLeaderboard.Entry readHoldStats(DataInputStream in) throws IOException {
+        return new HoldLeaderboard.Entry(readUuid(in), in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readInt());
+    }
+
+    private static void writeEggPosition(DataOutputStream out, EggLocator.Position position) throws IOException {
+        out.writeByte(position.kind().ordinal());
+        writeOptionalUuid(out, position.playerId());
+        out.writeUTF(position.playerName() != null ? position.playerName() : "");
+        writeOptionalUuid(out, position.entityId());
+        writeOptionalUuid(out, position.worldId());
+        out.writeDouble(position.x());
+        out.writeDouble(position.y());
+        out.writeDouble(position.z());
+    }
+
+    private static EggLocator.Position readEggPosition(DataInputStream in) throws IOException {
+        int kind = in.readByte();
+        if (kind < 0 || kind >= EggLocator.Kind.values().length) {
+            throw new IOException("Unknown egg position kind " + kind);
+        }
+        UUID playerId = readOptionalUuid(in);
+        String playerName = in.readUTF();
+        return new EggLocator.Position(EggLocator.Kind.values()[kind], playerId, playerName.isEmpty() ? null : playerName,
+                readOptionalUuid(in), readOptionalUuid(in), in.readDouble(), in.readDouble(), in.readDouble());
+    }
+
+    private static void writeOptionalUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) {
+            writeUuid(out, id);
+        }
+    }
+
+    private static UUID readOptionalUuid(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readUuid(in) : null;
+    }
+}
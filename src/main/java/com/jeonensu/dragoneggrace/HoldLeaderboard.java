@@ -0,0 +1,252 @@
+package com.jeonensu.dragoneggrace;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Per-player egg statistics of one game: cumulative hold time, longest continuous hold and steals.
+ * <p>
+ * Players are rows of a table of primitive columns, found by UUID. Nothing is ever recomputed:
+ * holder transitions and the tracking pass add the game time since the last update to the holder's
+ * row only, and the sorted view (rows by hold time, descending) is kept in order by moving that row
+ * up, since hold times only grow. {@link #getVersion()} changes whenever a value or the order does,
+ * so displays only redraw after a real change.
+ * <p>
+ * A steal is taking the egg after another player was the last to hold it, whether directly or after
+ * they dropped it. Times are game ticks.
+ */
+public class HoldLeaderboard {
+
+    /**
+     * One player's row, as saved in the journal.
+     */
+    public record Entry(UUID playerId, String name, long holdTicks, long longestStreakTicks,
+                        long streakTicks, int steals) {
+    }
+
+    private static final int NONE = -1;
+
+    private final Map<UUID, Integer> rows = new HashMap<>();
+    private UUID[] ids = new UUID[16];
+    private String[] names = new String[16];
+    private long[] holdTicks = new long[16];
+    private long[] longestStreakTicks = new long[16];
+    // Length of the ongoing hold, 0 for everyone but the holder
+    private long[] streakTicks = new long[16];
+    private int[] steals = new int[16];
+    // Sorted view: order[rank] = row, rankOf[row] = rank
+    private int[] order = new int[16];
+    private int[] rankOf = new int[16];
+    private int size = 0;
+
+    private int holderRow = NONE;
+    // Last player who held the egg, to recognize steals after a drop
+    private int lastHolderRow = NONE;
+    private long lastUpdateTick = 0;
+    private long version = 0;
+
+    /**
+     * Forgets every player, e.g. when a new game starts.
+     */
+    public void clear() {
+        rows.clear();
+        Arrays.fill(ids, 0, size, null);
+        Arrays.fill(names, 0, size, null);
+        size = 0;
+        holderRow = NONE;
+        lastHolderRow = NONE;
+        lastUpdateTick = 0;
+        version++;
+    }
+
+    /**
+     * Loads the rows of a resumed game.
+     *
+     * @param entries The saved rows.
+     * @param holderId The holder recorded before the restart, whose streak goes on; or null.
+     * @param elapsedTicks The game time the game resumes at.
+     */
+    public void restore(Collection<Entry> entries, UUID holderId, long elapsedTicks) {
+        clear();
+        for (Entry entry : entries) {
+            int row = rowOf(entry.playerId(), entry.name());
+            holdTicks[row] = entry.holdTicks();
+            longestStreakTicks[row] = entry.longestStreakTicks();
+            streakTicks[row] = entry.streakTicks();
+            steals[row] = entry.steals();
+            moveUp(row);
+        }
+        Integer row = holderId != null ? rows.get(holderId) : null;
+        holderRow = row != null ? row : NONE;
+        lastHolderRow = holderRow;
+        lastUpdateTick = elapsedTicks;
+    }
+
+    /**
+     * Applies a holder transition reported by the race state machine.
+     *
+     * @param holderId The new holder, or null.
+     * @param holderName Their name, shown in the leaderboard.
+     * @param elapsedTicks The game time of the transition.
+     */
+    public void onHolderChanged(UUID holderId, String holderName, long elapsedTicks) {
+        advance(elapsedTicks);
+        endStreak();
+        if (holderId == null) {
+            return;
+        }
+
+        int row = rowOf(holderId, holderName);
+        if (lastHolderRow != NONE && lastHolderRow != row) {
+            steals[row]++;
+        }
+        holderRow = row;
+        lastHolderRow = row;
+        version++;
+    }
+
+    /**
+     * Adds the game time since the last update to the current holder. Called on every tracking pass.
+     * A holder that differs from the last transition (e.g. dropped silently after a restart)
+     * is taken over without counting a steal.
+     *
+     * @param holderId The holder according to the race state machine, or null.
+     * @param holderName Their name.
+     * @param elapsedTicks The current game time.
+     */
+    public void update(UUID holderId, String holderName, long elapsedTicks) {
+        advance(elapsedTicks);
+        UUID current = holderRow != NONE ? ids[holderRow] : null;
+        if (!Objects.equals(current, holderId)) {
+            endStreak();
+            if (holderId != null) {
+                holderRow = rowOf(holderId, holderName);
+                lastHolderRow = holderRow;
+            }
+            version++;
+        }
+    }
+
+    private void advance(long elapsedTicks) {
+        long delta = elapsedTicks - lastUpdateTick;
+        lastUpdateTick = Math.max(lastUpdateTick, elapsedTicks);
+        if (holderRow == NONE || delta <= 0) {
+            return;
+        }
+        int row = holderRow;
+        holdTicks[row] += delta;
+        streakTicks[row] += delta;
+        if (streakTicks[row] > longestStreakTicks[row]) {
+            longestStreakTicks[row] = streakTicks[row];
+        }
+        moveUp(row);
+        version++;
+    }
+
+    private void endStreak() {
+        if (holderRow != NONE) {
+            streakTicks[holderRow] = 0;
+            holderRow = NONE;
+        }
+    }
+
+    // Hold times only grow, so a changed row can only move towards the top
+    private void moveUp(int row) {
+        int rank = rankOf[row];
+        long value = holdTicks[row];
+        while (rank > 0 && holdTicks[order[rank - 1]] < value) {
+            int other = order[rank - 1];
+            order[rank] = other;
+            rankOf[other] = rank;
+            rank--;
+        }
+        order[rank] = row;
+        rankOf[row] = rank;
+    }
+
+    private int rowOf(UUID playerId, String name) {
+        Integer existing = rows.get(playerId);
+        if (existing != null) {
+            if (name != null) {
+                names[existing] = name; // 이름이 바뀌었을 수 있음
+            }
+            return existing;
+        }
+
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            holdTicks = Arrays.copyOf(holdTicks, capacity);
+            longestStreakTicks = Arrays.copyOf(longestStreakTicks, capacity);
+            streakTicks = Arrays.copyOf(streakTicks, capacity);
+            steals = Arrays.copyOf(steals, capacity);
+            order = Arrays.copyOf(order, capacity);
+            rankOf = Arrays.copyOf(rankOf, capacity);
+        }
+        int row = size++;
+        ids[row] = playerId;
+        names[row] = name != null ? name : playerId.toString().substring(0, 8);
+        holdTicks[row] = 0;
+        longestStreakTicks[row] = 0;
+        streakTicks[row] = 0;
+        steals[row] = 0;
+        // New rows start at the bottom of the sorted view
+        order[row] = row;
+        rankOf[row] = row;
+        rows.put(playerId, row);
+        return row;
+    }
+
+    /**
+     * Returns the number of players who have held the egg.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a counter that changes whenever a value or the order changes.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the row at a rank of the sorted view (0 = most hold time).
+     */
+    public Entry getRanked(int rank) {
+        return entry(order[rank]);
+    }
+
+    /**
+     * Returns a player's row, or null if they never held the egg.
+     */
+    public Entry get(UUID playerId) {
+        Integer row = rows.get(playerId);
+        return row != null ? entry(row) : null;
+    }
+
+    /**
+     * Returns the current holder's row, or null.
+     */
+    public Entry getHolder() {
+        return holderRow != NONE ? entry(holderRow) : null;
+    }
+
+    public String getName(int rank) {
+        return names[order[rank]];
+    }
+
+    public long getHoldTicks(int rank) {
+        return holdTicks[order[rank]];
+    }
+
+    private Entry entry(int row) {
+        return new Entry(ids[row], names[row], holdTicks[row], longestStreakTicks[row], streakTicks[row], steals[row]);
+    }
+}
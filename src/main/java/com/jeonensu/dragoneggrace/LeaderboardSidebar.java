@@ -0,0 +1,135 @@
+package com.jeonensu.dragoneggrace;
+
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Criteria;
+import org.bukkit.scoreboard.DisplaySlot;
+import org.bukkit.scoreboard.Objective;
+import org.bukkit.scoreboard.Scoreboard;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shows the top of an arena's {@link HoldLeaderboard} in a scoreboard sidebar: one line per player,
+ * scored by minutes of hold time.
+ * <p>
+ * The arena's players get the arena's own scoreboard; players who leave the arena get the main
+ * scoreboard back. Lines are only rewritten when the leaderboard's version changed, and then only
+ * the scores whose shown value differs, so while someone holds the egg the clients receive about one
+ * score update per minute.
+ */
+public class LeaderboardSidebar {
+
+    private static final int TICKS_PER_MINUTE = 1200;
+
+    private final Arena arena;
+    private final boolean enabled;
+    private final int lines;
+
+    private Scoreboard board;
+    private Objective objective;
+    // Names on the sidebar and their scores
+    private final Map<String, Integer> shown = new HashMap<>();
+    private final Map<String, Integer> next = new HashMap<>();
+    private long renderedVersion = -1;
+    // Players that were given the board, with the pass they were last seen in the arena
+    private final Map<UUID, Integer> viewers = new HashMap<>();
+    private int pass = 0;
+    private long scoreUpdateCount = 0;
+
+    public LeaderboardSidebar(DragonEggRacePlugin plugin, Arena arena) {
+        this.arena = arena;
+        this.enabled = plugin.getConfig().getBoolean("leaderboard.sidebar.enabled", true);
+        this.lines = Math.max(1, Math.min(15, plugin.getConfig().getInt("leaderboard.sidebar.lines", 10)));
+    }
+
+    /**
+     * Hands the board to players who entered the arena and redraws changed lines.
+     * Called once per tracking pass.
+     *
+     * @param leaderboard The arena's leaderboard.
+     */
+    public void update(HoldLeaderboard leaderboard) {
+        if (!enabled) {
+            return;
+        }
+        if (board == null) {
+            board = Bukkit.getScoreboardManager().getNewScoreboard();
+            objective = board.registerNewObjective("dragonegg", Criteria.DUMMY,
+                    LegacyComponentSerializer.legacySection().deserialize(ChatColor.GOLD + "드래곤 알 보유 (분)"));
+            objective.setDisplaySlot(DisplaySlot.SIDEBAR);
+        }
+
+        pass++;
+        for (Player player : arena.getPlayers()) {
+            if (viewers.put(player.getUniqueId(), pass) == null) {
+                player.setScoreboard(board);
+            }
+        }
+        // 아레나를 떠난 플레이어는 기본 스코어보드로 되돌림
+        Iterator<Map.Entry<UUID, Integer>> it = viewers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, Integer> viewer = it.next();
+            if (viewer.getValue() != pass) {
+                Player player = Bukkit.getPlayer(viewer.getKey());
+                if (player != null) {
+                    player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
+                }
+                it.remove();
+            }
+        }
+
+        if (leaderboard.getVersion() != renderedVersion) {
+            renderedVersion = leaderboard.getVersion();
+            render(leaderboard);
+        }
+    }
+
+    private void render(HoldLeaderboard leaderboard) {
+        next.clear();
+        int count = Math.min(lines, leaderboard.size());
+        for (int rank = 0; rank < count; rank++) {
+            String name = leaderboard.getName(rank);
+            int minutes = (int) (leaderboard.getHoldTicks(rank) / TICKS_PER_MINUTE);
+            next.put(name, minutes);
+            Integer previous = shown.get(name);
+            if (previous == null || previous != minutes) {
+                objective.getScore(name).setScore(minutes);
+                scoreUpdateCount++;
+            }
+        }
+        for (String name : shown.keySet()) {
+            if (!next.containsKey(name)) {
+                board.resetScores(name); // 상위권에서 밀려남
+                scoreUpdateCount++;
+            }
+        }
+        shown.clear();
+        shown.putAll(next);
+    }
+
+    /**
+     * Gives every viewer the main scoreboard back, e.g. when the plugin is disabled.
+     */
+    public void hide() {
+        for (UUID viewerId : viewers.keySet()) {
+            Player player = Bukkit.getPlayer(viewerId);
+            if (player != null) {
+                player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
+            }
+        }
+        viewers.clear();
+    }
+
+    /**
+     * Returns how many sidebar scores were set or removed.
+     */
+    public long getScoreUpdateCount() {
+        return scoreUpdateCount;
+    }
+}
@@ -0,0 +1,205 @@
+package com.jeonensu.dragoneggrace;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing hash map from primitive long keys to int values.
+ * Used for hot-path lookups keyed by packed coordinates, so lookups never box or allocate.
+ */
+public class LongIntMap {
+
+    // Marks an empty slot; a real key with this value is kept in a separate field
+    private static final long FREE_KEY = Long.MIN_VALUE;
+
+    private final int missingValue;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    private boolean hasFreeKey = false;
+    private int freeKeyValue;
+
+    /**
+     * @param missingValue The value returned by {@link #get(long)} for keys that are not present.
+     */
+    public LongIntMap(int missingValue) {
+        this.missingValue = missingValue;
+        allocate(16);
+    }
+
+    public int get(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : missingValue;
+        }
+
+        int index = indexOf(key);
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                return missingValue;
+            }
+            if (current == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+
+        int index = indexOf(key);
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                return false;
+            }
+            if (current == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * @return The previous value for the key, or the missing value if there was none.
+     */
+    public int put(long key, int value) {
+        if (key == FREE_KEY) {
+            int previous = hasFreeKey ? freeKeyValue : missingValue;
+            if (!hasFreeKey) {
+                size++;
+            }
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return previous;
+        }
+
+        int index = indexOf(key);
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size * 2 > keys.length) {
+                    resize(keys.length * 2);
+                }
+                return missingValue;
+            }
+            if (current == key) {
+                int previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * @return The removed value, or the missing value if the key was not present.
+     */
+    public int remove(long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return missingValue;
+            }
+            hasFreeKey = false;
+            size--;
+            return freeKeyValue;
+        }
+
+        int index = indexOf(key);
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                return missingValue;
+            }
+            if (current == key) {
+                int previous = values[index];
+                shiftBack(index);
+                size--;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Calls the consumer for every key, in no particular order. The map must not be modified meanwhile.
+     */
+    public void forEachKey(LongConsumer consumer) {
+        if (hasFreeKey) {
+            consumer.accept(FREE_KEY);
+        }
+        for (long key : keys) {
+            if (key != FREE_KEY) {
+                consumer.accept(key);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void shiftBack(int index) {
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE_KEY) {
+            int home = indexOf(keys[next]);
+            // Move the entry into the gap if its home slot is not between the gap and its position
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE_KEY;
+    }
+
+    private int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == FREE_KEY) continue;
+
+            int index = indexOf(key);
+            while (keys[index] != FREE_KEY) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = oldValues[i];
+        }
+    }
+}
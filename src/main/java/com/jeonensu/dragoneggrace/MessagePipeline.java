@@ -0,0 +1,303 @@
+package com.jeonensu.dragoneggrace;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sends the plugin's broadcast messages.
+ * <p>
+ * Templates are loaded once at startup from {@code lang/<locale>.yml} and turned into Adventure
+ * components right away when they have no placeholders. Messages broadcast during one tick are
+ * queued and sent at the start of the next tick as a single multi-line message per recipient,
+ * rendered in that player's locale. Keys listed under {@code messages.rate-limited} are dropped
+ * when they repeat within {@code messages.rate-limit-ticks}, so an egg changing hands quickly
+ * does not flood the chat.
+ * <p>
+ * A message can be addressed to one arena; then only the players currently in that arena's worlds
+ * receive it, while the console receives every message.
+ */
+public class MessagePipeline {
+
+    private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.legacyAmpersand();
+    private static final String[] BUNDLED_LOCALES = {"ko_kr", "en_us"};
+
+    /**
+     * One message in one locale: its lines, and the pre-built component of each line without placeholders.
+     */
+    private static final class Template {
+        final String[] lines;
+        final Component[] prebuilt;
+
+        Template(String prefix, List<String> rawLines) {
+            lines = new String[rawLines.size()];
+            prebuilt = new Component[rawLines.size()];
+            for (int i = 0; i < lines.length; i++) {
+                String line = rawLines.get(i);
+                // 빈 줄은 접두어 없이 그대로 (기존 broadcastMessage("") 동작)
+                lines[i] = line.isEmpty() ? "" : prefix + line;
+                if (lines[i].indexOf('{') < 0) {
+                    prebuilt[i] = LEGACY.deserialize(lines[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * A message waiting for the end-of-tick flush.
+     */
+    private record Pending(Arena arena, String key, String[] placeholders, Component raw) {
+    }
+
+    private final DragonEggRacePlugin plugin;
+    private final Map<String, Map<String, Template>> templatesByLocale = new HashMap<>();
+    private String defaultLocale;
+
+    private final Set<String> rateLimitedKeys = new HashSet<>();
+    private long rateLimitTicks;
+    private final Map<String, Long> lastSentTicks = new HashMap<>();
+
+    private final List<Pending> pending = new ArrayList<>();
+    private TaskScheduler.Task flushTask;
+
+    // Metrics
+    private int lastTickMessageCount = 0;
+    private int maxTickMessageCount = 0;
+    private long totalMessageCount = 0;
+    private long totalSendCount = 0;
+    private long suppressedMessageCount = 0;
+
+    public MessagePipeline(DragonEggRacePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Loads all locale files and the rate limit settings. Called once in onEnable.
+     */
+    public void load() {
+        ConfigurationSection config = plugin.getConfig();
+        defaultLocale = config.getString("messages.default-locale", "ko_kr").toLowerCase(Locale.ROOT);
+        rateLimitTicks = config.getLong("messages.rate-limit-ticks", 40L);
+        rateLimitedKeys.addAll(config.getStringList("messages.rate-limited"));
+
+        // 기본 언어 파일을 데이터 폴더에 복사해 두어 서버 관리자가 수정할 수 있게 함
+        File langFolder = new File(plugin.getDataFolder(), "lang");
+        for (String locale : BUNDLED_LOCALES) {
+            if (!new File(langFolder, locale + ".yml").exists()) {
+                plugin.saveResource("lang/" + locale + ".yml", false);
+            }
+        }
+
+        File[] files = langFolder.listFiles((dir, name) -> name.endsWith(".yml"));
+        if (files != null) {
+            for (File file : files) {
+                String locale = file.getName().substring(0, file.getName().length() - 4).toLowerCase(Locale.ROOT);
+                templatesByLocale.put(locale, loadTemplates(YamlConfiguration.loadConfiguration(file)));
+            }
+        }
+
+        if (!templatesByLocale.containsKey(defaultLocale)) {
+            plugin.getLogger().warning("기본 언어 파일 lang/" + defaultLocale + ".yml 이 없어 ko_kr 을 사용합니다.");
+            defaultLocale = "ko_kr";
+        }
+    }
+
+    private Map<String, Template> loadTemplates(YamlConfiguration yaml) {
+        String prefix = yaml.getString("prefix", "");
+        Map<String, Template> templates = new HashMap<>();
+        for (String key : yaml.getKeys(false)) {
+            if (key.equals("prefix")) continue;
+
+            List<String> lines = yaml.isList(key) ? yaml.getStringList(key) : List.of(yaml.getString(key, ""));
+            templates.put(key, new Template(prefix, lines));
+        }
+        return templates;
+    }
+
+    /**
+     * Queues a templated message for every online player.
+     *
+     * @param key The message key in the locale files.
+     * @param placeholders Alternating placeholder names and values, e.g. {@code "player", name}.
+     */
+    public void broadcast(String key, String... placeholders) {
+        broadcast(null, key, placeholders);
+    }
+
+    /**
+     * Queues a templated message for the players of one arena.
+     *
+     * @param arena The arena whose players receive the message, or null for every online player.
+     * @param key The message key in the locale files.
+     * @param placeholders Alternating placeholder names and values, e.g. {@code "player", name}.
+     */
+    public void broadcast(Arena arena, String key, String... placeholders) {
+        if (rateLimitedKeys.contains(key)) {
+            // 아레나마다 따로 제한 (다른 아레나의 알 이동 메시지에 묻히지 않도록)
+            String limitKey = arena == null ? key : arena.getName() + ":" + key;
+            long now = Bukkit.getCurrentTick();
+            Long lastSent = lastSentTicks.get(limitKey);
+            if (lastSent != null && now - lastSent < rateLimitTicks) {
+                suppressedMessageCount++;
+                return;
+            }
+            lastSentTicks.put(limitKey, now);
+        }
+
+        enqueue(new Pending(arena, key, placeholders, null));
+    }
+
+    /**
+     * Queues an already formatted message (section-sign colors) that is sent the same way to everyone.
+     *
+     * @param message The message, without the prefix.
+     */
+    public void broadcastRaw(String message) {
+        Component component = message.isEmpty()
+                ? Component.empty()
+                : LegacyComponentSerializer.legacySection().deserialize(message);
+        enqueue(new Pending(null, null, null, component));
+    }
+
+    /**
+     * Sends everything still queued right away, e.g. before the plugin is disabled.
+     */
+    public void flushNow() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+    }
+
+    public int getLastTickMessageCount() {
+        return lastTickMessageCount;
+    }
+
+    public int getMaxTickMessageCount() {
+        return maxTickMessageCount;
+    }
+
+    public long getTotalMessageCount() {
+        return totalMessageCount;
+    }
+
+    public long getTotalSendCount() {
+        return totalSendCount;
+    }
+
+    public long getSuppressedMessageCount() {
+        return suppressedMessageCount;
+    }
+
+    private void enqueue(Pending message) {
+        pending.add(message);
+        if (flushTask == null && plugin.isEnabled()) {
+            flushTask = plugin.getTaskScheduler().runGlobalLater(this::flush, 1L);
+        }
+    }
+
+    private void flush() {
+        flushTask = null;
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Render the joined message once per locale and arena, then send it once per recipient
+        Map<String, Map<Arena, Component>> rendered = new HashMap<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            String locale = localeOf(player);
+            Arena arena = plugin.getArenas().arenaOf(player);
+            Component message = rendered.computeIfAbsent(locale, l -> new HashMap<>())
+                    .computeIfAbsent(arena, a -> render(locale, a));
+            if (message != null) {
+                player.sendMessage(message);
+                totalSendCount++;
+            }
+        }
+        Component console = render(defaultLocale, null);
+        if (console != null) {
+            Bukkit.getConsoleSender().sendMessage(console);
+        }
+
+        lastTickMessageCount = pending.size();
+        maxTickMessageCount = Math.max(maxTickMessageCount, lastTickMessageCount);
+        totalMessageCount += lastTickMessageCount;
+        pending.clear();
+    }
+
+    /**
+     * Joins the pending messages addressed to an arena's players.
+     *
+     * @param arena The recipient's arena, or null to include every message (console).
+     * @return The joined message, or null if none of the pending messages applies.
+     */
+    private Component render(String locale, Arena arena) {
+        Map<String, Template> templates = templatesByLocale.getOrDefault(locale, Map.of());
+        Map<String, Template> fallback = templatesByLocale.getOrDefault(defaultLocale, Map.of());
+
+        List<Component> lines = new ArrayList<>();
+        for (Pending message : pending) {
+            if (arena != null && message.arena() != null && message.arena() != arena) {
+                continue; // 다른 아레나의 메시지
+            }
+            if (message.raw() != null) {
+                lines.add(message.raw());
+                continue;
+            }
+
+            Template template = templates.getOrDefault(message.key(), fallback.get(message.key()));
+            if (template == null) {
+                lines.add(Component.text(message.key())); // 번역이 없으면 키를 그대로 표시
+                continue;
+            }
+            for (int i = 0; i < template.lines.length; i++) {
+                if (template.prebuilt[i] != null) {
+                    lines.add(template.prebuilt[i]);
+                } else {
+                    lines.add(LEGACY.deserialize(fill(template.lines[i], message.placeholders())));
+                }
+            }
+        }
+        return lines.isEmpty() ? null : Component.join(JoinConfiguration.newlines(), lines);
+    }
+
+    private String localeOf(Player player) {
+        String locale = player.locale().toString().toLowerCase(Locale.ROOT);
+        if (templatesByLocale.containsKey(locale)) {
+            return locale;
+        }
+
+        // 같은 언어의 다른 지역 파일이 있으면 사용 (예: en_gb -> en_us)
+        String language = player.locale().getLanguage().toLowerCase(Locale.ROOT);
+        for (String available : templatesByLocale.keySet()) {
+            if (available.startsWith(language + "_")) {
+                return available;
+            }
+        }
+        return defaultLocale;
+    }
+
+    private static String fill(String line, String[] placeholders) {
+        if (placeholders == null) {
+            return line;
+        }
+        for (int i = 0; i + 1 < placeholders.length; i += 2) {
+            line = line.replace("{" + placeholders[i] + "}", placeholders[i + 1]);
+        }
+        return line;
+    }
+}
@@ -0,0 +1,254 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Entity;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds footprints and beacon blocks left in the world by an earlier server run (a crash or a kill
+ * before the plugin could clean up) and removes them when their chunk is loaded.
+ * <p>
+ * Footprint entities carry a persistent data marker with the id of the plugin session that spawned
+ * them; any marked entity of another session is stale, since footprints are never restored.
+ * Blocks can't carry data, so each chunk with beacon blocks records their packed positions and the
+ * game id in its own persistent data container. Such a chunk keeps only the positions that belong to
+ * the running game and are still protected by its tracker; the others are removed if they still
+ * are beacon or diamond blocks. Chunks loaded before their arena recovered its game are checked
+ * once the arena is ready.
+ * <p>
+ * Nothing scans the worlds: the work happens per chunk as chunks load, plus one pass over the
+ * chunks that are already loaded when an arena becomes ready.
+ */
+public class OrphanCleaner {
+
+    private final DragonEggRacePlugin plugin;
+    // Entity marker: id of the session that spawned a footprint
+    private final NamespacedKey footprintKey;
+    // Chunk markers: game id and packed positions of the beacon blocks in the chunk
+    private final NamespacedKey beaconGameKey;
+    private final NamespacedKey beaconBlocksKey;
+    private final String sessionId = UUID.randomUUID().toString();
+
+    // Chunks with beacon markers loaded before their arena was ready (chunk loads may run on region threads)
+    private final Queue<Chunk> pendingChunks = new ConcurrentLinkedQueue<>();
+    // Counted on whichever thread loads the chunk
+    private final AtomicLong removedEntityCount = new AtomicLong();
+    private final AtomicLong removedBlockCount = new AtomicLong();
+
+    public OrphanCleaner(DragonEggRacePlugin plugin) {
+        this.plugin = plugin;
+        this.footprintKey = new NamespacedKey(plugin, "footprint");
+        this.beaconGameKey = new NamespacedKey(plugin, "beacon_game");
+        this.beaconBlocksKey = new NamespacedKey(plugin, "beacon_blocks");
+    }
+
+    /**
+     * Marks a footprint entity as spawned by this session. Called before the entity is added to the world.
+     */
+    public void markFootprint(Entity entity) {
+        entity.getPersistentDataContainer().set(footprintKey, PersistentDataType.STRING, sessionId);
+    }
+
+    /**
+     * Records a beacon block placed by a game in its chunk's persistent data.
+     *
+     * @param chunk The loaded chunk of the block.
+     * @param gameId The game the beacon belongs to.
+     */
+    public void markBeaconBlock(Chunk chunk, UUID gameId, int x, int y, int z) {
+        PersistentDataContainer data = chunk.getPersistentDataContainer();
+        String game = gameId.toString();
+        long[] positions = data.get(beaconBlocksKey, PersistentDataType.LONG_ARRAY);
+        if (positions == null || !game.equals(data.get(beaconGameKey, PersistentDataType.STRING))) {
+            positions = new long[0]; // 이전 게임의 기록은 청크를 불러올 때 이미 정리됨
+        }
+        long packed = pack(x, y, z);
+        for (long position : positions) {
+            if (position == packed) {
+                return;
+            }
+        }
+        positions = Arrays.copyOf(positions, positions.length + 1);
+        positions[positions.length - 1] = packed;
+        data.set(beaconGameKey, PersistentDataType.STRING, game);
+        data.set(beaconBlocksKey, PersistentDataType.LONG_ARRAY, positions);
+    }
+
+    /**
+     * Forgets a beacon block that was removed from its chunk.
+     */
+    public void unmarkBeaconBlock(Chunk chunk, int x, int y, int z) {
+        PersistentDataContainer data = chunk.getPersistentDataContainer();
+        long[] positions = data.get(beaconBlocksKey, PersistentDataType.LONG_ARRAY);
+        if (positions == null) {
+            return;
+        }
+        long packed = pack(x, y, z);
+        long[] kept = new long[positions.length];
+        int keptCount = 0;
+        for (long position : positions) {
+            if (position != packed) {
+                kept[keptCount++] = position;
+            }
+        }
+        storeBeaconBlocks(data, kept, keptCount, positions.length);
+    }
+
+    /**
+     * Removes marked footprint entities of earlier sessions among freshly loaded entities.
+     */
+    public void onEntitiesLoad(List<Entity> entities) {
+        for (Entity entity : entities) {
+            if (entity instanceof BlockDisplay && isStaleFootprint(entity)) {
+                entity.remove();
+                removedEntityCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Checks a freshly loaded chunk for beacon blocks of other games.
+     */
+    public void onChunkLoad(Chunk chunk) {
+        if (!chunk.getPersistentDataContainer().has(beaconBlocksKey)) {
+            return; // 대부분의 청크
+        }
+        // 월드 로드 이벤트 전에 로드되는 청크도 이름으로 설정된 아레나를 찾음 (기본 아레나로 처리하지 않음)
+        Arena arena = plugin.getArenas().arenaOf(chunk.getWorld());
+        if (arena.isReady()) {
+            cleanBeacons(chunk, arena);
+        } else {
+            pendingChunks.add(chunk); // 재시작 전 게임을 복구한 뒤에 판단
+        }
+    }
+
+    /**
+     * Checks the chunks that were loaded before an arena recovered its game: the ones queued by
+     * {@link #onChunkLoad(Chunk)} and, on a single-threaded server, every chunk already loaded in
+     * the arena's worlds (spawn chunks load before the plugin is enabled).
+     */
+    public void onArenaReady(Arena arena) {
+        TaskScheduler scheduler = plugin.getTaskScheduler();
+        Iterator<Chunk> it = pendingChunks.iterator();
+        while (it.hasNext()) {
+            Chunk chunk = it.next();
+            if (plugin.getArenas().arenaOf(chunk.getWorld()) != arena) continue;
+            it.remove();
+            scheduler.executeAt(chunk.getWorld(), chunk.getX(), chunk.getZ(), () -> {
+                if (chunk.isLoaded()) {
+                    cleanBeacons(chunk, arena);
+                }
+            });
+        }
+
+        if (scheduler.isRegionThreaded()) {
+            return; // 지역 스레드 밖에서는 로드된 청크를 읽을 수 없음; 청크 로드 이벤트로만 처리
+        }
+        for (World world : Bukkit.getWorlds()) {
+            if (plugin.getArenas().arenaOf(world) != arena) continue;
+            for (Chunk chunk : world.getLoadedChunks()) {
+                onChunkLoad(chunk);
+                onEntitiesLoad(Arrays.asList(chunk.getEntities()));
+            }
+        }
+    }
+
+    private boolean isStaleFootprint(Entity entity) {
+        String session = entity.getPersistentDataContainer().get(footprintKey, PersistentDataType.STRING);
+        return session != null && !session.equals(sessionId);
+    }
+
+    // Keeps the positions of the running game that its tracker still protects, removes the rest
+    private void cleanBeacons(Chunk chunk, Arena arena) {
+        PersistentDataContainer data = chunk.getPersistentDataContainer();
+        long[] positions = data.get(beaconBlocksKey, PersistentDataType.LONG_ARRAY);
+        if (positions == null) {
+            return;
+        }
+        String game = data.get(beaconGameKey, PersistentDataType.STRING);
+        boolean running = arena.isGameActive() && arena.getGameId() != null && arena.getGameId().toString().equals(game);
+        ProtectedBlockIndex protectedBlocks = arena.getEggTracker().getBeaconBlocks();
+
+        World world = chunk.getWorld();
+        long[] kept = new long[positions.length];
+        int keptCount = 0;
+        StructurePlacer.Job job = null;
+        for (long position : positions) {
+            int x = unpackX(position);
+            int y = unpackY(position);
+            int z = unpackZ(position);
+            if (running && protectedBlocks.contains(world, x, y, z)) {
+                kept[keptCount++] = position;
+                continue;
+            }
+            if (job == null) {
+                job = plugin.getStructurePlacer().newJob("beacon-orphans", null);
+            }
+            // 그 사이에 다른 블록으로 바뀌었으면 건드리지 않음
+            job.remove(world, x, y, z, DragonEggTracker.BEACON_BLOCK_TYPES, Material.BEACON);
+            removedBlockCount.incrementAndGet();
+        }
+
+        storeBeaconBlocks(data, kept, keptCount, positions.length);
+        if (job != null) {
+            plugin.getStructurePlacer().submit(job);
+            plugin.getLogger().info("이전 실행에서 남은 신호기 블록 " + (positions.length - keptCount) + "개를 제거합니다 ("
+                    + world.getName() + " " + chunk.getX() + ", " + chunk.getZ() + ")");
+        }
+    }
+
+    // Writes back the remaining positions, or drops the markers when none are left
+    private void storeBeaconBlocks(PersistentDataContainer data, long[] kept, int keptCount, int previousCount) {
+        if (keptCount == 0) {
+            data.remove(beaconBlocksKey);
+            data.remove(beaconGameKey);
+        } else if (keptCount < previousCount) {
+            data.set(beaconBlocksKey, PersistentDataType.LONG_ARRAY, Arrays.copyOf(kept, keptCount));
+        }
+    }
+
+    // Block position in one long: x and z 26 bits, y 12 bits
+    static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    /**
+     * Returns how many stale footprint entities were removed.
+     */
+    public long getRemovedEntityCount() {
+        return removedEntityCount.get();
+    }
+
+    /**
+     * Returns how many stale beacon block positions were cleared.
+     */
+    public long getRemovedBlockCount() {
+        return removedBlockCount.get();
+    }
+}
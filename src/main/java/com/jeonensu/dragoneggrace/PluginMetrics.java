@@ -0,0 +1,224 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+
+/**
+ * Registry of the plugin's main-thread timings and counters.
+ * <p>
+ * Timers are {@link TickHistogram}s looked up once by name and kept by the code they measure.
+ * Gauges read existing counters (holder index repairs, footprint counts, message stats, ...) only
+ * when the metrics are shown or exported. If {@code metrics.export-file} is set, a snapshot in
+ * Prometheus text format is written there periodically; the text is built on the main thread and
+ * the file is written asynchronously.
+ */
+public class PluginMetrics {
+
+    private static final String PREFIX = "dragon100_";
+
+    private final DragonEggRacePlugin plugin;
+    private final Map<String, TickHistogram> timers = new LinkedHashMap<>();
+    private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+    private TaskScheduler.Task exportTask;
+
+    public PluginMetrics(DragonEggRacePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Returns the timer with the given name, creating it on first use.
+     *
+     * @param name Lower-case name with underscores, e.g. "tracking_pass".
+     */
+    public TickHistogram timer(String name) {
+        return timers.computeIfAbsent(name, TickHistogram::new);
+    }
+
+    /**
+     * Registers a value read whenever the metrics are shown or exported.
+     *
+     * @param name Lower-case name with underscores, e.g. "footprints".
+     * @param supplier Reads the current value on the main thread.
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Registers the {@link EventHandler} methods of a listener like
+     * {@link org.bukkit.plugin.PluginManager#registerEvents(Listener, org.bukkit.plugin.Plugin)} does,
+     * but times every call into an {@code event_<handler>} timer, e.g. {@code event_block_break}.
+     *
+     * @param listener The listener to register.
+     */
+    public void registerTimedEvents(Listener listener) {
+        for (Method method : listener.getClass().getMethods()) {
+            EventHandler handler = method.getAnnotation(EventHandler.class);
+            if (handler == null || method.getParameterCount() != 1
+                    || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+
+            Class<? extends Event> eventClass = method.getParameterTypes()[0].asSubclass(Event.class);
+            EventExecutor executor = EventExecutor.create(method, eventClass);
+            TickHistogram timer = timer("event_" + toSnakeCase(method.getName().replaceFirst("^on", "")));
+            plugin.getServer().getPluginManager().registerEvent(eventClass, listener, handler.priority(), (l, event) -> {
+                // 하위 이벤트 클래스도 전달되므로 실제 처리 대상인 경우만 측정
+                if (!eventClass.isInstance(event)) return;
+                long start = System.nanoTime();
+                executor.execute(l, event);
+                timer.recordSince(start);
+            }, plugin, handler.ignoreCancelled());
+        }
+    }
+
+    public Collection<TickHistogram> getTimers() {
+        return Collections.unmodifiableCollection(timers.values());
+    }
+
+    /**
+     * Reads every gauge.
+     *
+     * @return Gauge values by name, in registration order.
+     */
+    public Map<String, Long> readGauges() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            values.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        return values;
+    }
+
+    /**
+     * Clears all timers. Gauges are left alone, they read live values.
+     */
+    public void resetTimers() {
+        for (TickHistogram timer : timers.values()) {
+            timer.reset();
+        }
+    }
+
+    /**
+     * Starts the periodic Prometheus export if {@code metrics.export-file} is configured.
+     */
+    public void startExport() {
+        String fileName = plugin.getConfig().getString("metrics.export-file", "");
+        long intervalTicks = plugin.getConfig().getLong("metrics.export-interval-seconds", 15L) * 20L;
+        if (fileName.isEmpty() || intervalTicks <= 0) {
+            return;
+        }
+
+        Path target = new File(plugin.getDataFolder(), fileName).toPath();
+        exportTask = plugin.getTaskScheduler().runGlobalTimer(() -> {
+            String text = toPrometheus();
+            // 파일 작업이 밀려 있으면 이번 내보내기는 건너뜀 (다음 내보내기가 대신함)
+            plugin.getIo().offer(() -> write(target, text));
+        }, intervalTicks, intervalTicks);
+    }
+
+    public void stopExport() {
+        if (exportTask != null) {
+            exportTask.cancel();
+            exportTask = null;
+        }
+    }
+
+    /**
+     * Formats all timers and gauges in Prometheus text exposition format.
+     * Timers become one summary family labelled by timer name, in seconds.
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+
+        out.append("# HELP ").append(PREFIX).append("duration_seconds Main thread time spent by the plugin.\n");
+        out.append("# TYPE ").append(PREFIX).append("duration_seconds summary\n");
+        for (TickHistogram timer : timers.values()) {
+            String label = "timer=\"" + timer.getName() + "\"";
+            for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+                appendSample(out, "duration_seconds", label + ",quantile=\"" + quantile + "\"", seconds(timer.getQuantile(quantile)));
+            }
+            appendSample(out, "duration_seconds_sum", label, seconds(timer.getSum()));
+            appendSample(out, "duration_seconds_count", label, Long.toString(timer.getCount()));
+        }
+
+        out.append("# HELP ").append(PREFIX).append("duration_max_seconds Longest single run since the last reset.\n");
+        out.append("# TYPE ").append(PREFIX).append("duration_max_seconds gauge\n");
+        for (TickHistogram timer : timers.values()) {
+            appendSample(out, "duration_max_seconds", "timer=\"" + timer.getName() + "\"", seconds(timer.getMax()));
+        }
+
+        for (Map.Entry<String, Long> gauge : readGauges().entrySet()) {
+            out.append("# TYPE ").append(PREFIX).append(gauge.getKey()).append(" gauge\n");
+            appendSample(out, gauge.getKey(), null, Long.toString(gauge.getValue()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns the timer lines for {@code /dragongame metrics}, slowest p99 first.
+     */
+    public List<String> formatTimers() {
+        List<TickHistogram> sorted = new ArrayList<>(timers.values());
+        sorted.removeIf(timer -> timer.getCount() == 0);
+        sorted.sort((a, b) -> Long.compare(b.getQuantile(0.99), a.getQuantile(0.99)));
+
+        List<String> lines = new ArrayList<>();
+        for (TickHistogram timer : sorted) {
+            lines.add(String.format(Locale.ROOT, "%s: p50 %s, p99 %s, max %s (%d회)",
+                    timer.getName(), millis(timer.getQuantile(0.5)), millis(timer.getQuantile(0.99)),
+                    millis(timer.getMax()), timer.getCount()));
+        }
+        return lines;
+    }
+
+    private void write(Path target, String text) {
+        try {
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.createDirectories(target.getParent());
+            Files.writeString(temp, text, StandardCharsets.UTF_8);
+            // 스크래퍼가 반쯤 쓰인 파일을 읽지 않도록 교체
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "메트릭 파일을 쓰지 못했습니다: " + target, e);
+        }
+    }
+
+    private static String toSnakeCase(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, String value) {
+        out.append(PREFIX).append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,178 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Set of block positions that players must not break, e.g. beacon structures.
+ * <p>
+ * Positions are packed into one long per block and kept in a primitive map per world. In front of
+ * it sits a counting bitmap over hashed chunk coordinates: a block in a chunk whose counter is zero
+ * cannot be protected, so the block break, explosion and piston listeners reject almost every
+ * event with a single array read and never allocate a {@link Location}.
+ */
+public class ProtectedBlockIndex {
+
+    // 4096 chunk counters per world; collisions only cost a map lookup, never a wrong answer
+    private static final int CHUNK_BUCKETS = 4096;
+    private static final int CHUNK_BUCKET_MASK = CHUNK_BUCKETS - 1;
+
+    /**
+     * Receives the position of a protected block.
+     */
+    @FunctionalInterface
+    public interface BlockVisitor {
+        void accept(World world, int x, int y, int z);
+    }
+
+    private static final class WorldBlocks {
+        World world;
+        final UUID worldId;
+        final LongIntMap blocks = new LongIntMap(0);
+        final int[] chunkCounts = new int[CHUNK_BUCKETS];
+
+        WorldBlocks(World world) {
+            this.world = world;
+            this.worldId = world.getUID();
+        }
+    }
+
+    // Servers have a handful of worlds, so a linear scan beats hashing the world on every event
+    private WorldBlocks[] worlds = new WorldBlocks[0];
+    private int size = 0;
+
+    /**
+     * Adds a block position.
+     *
+     * @return true if the position was not protected before.
+     */
+    public boolean add(World world, int x, int y, int z) {
+        WorldBlocks blocks = worldBlocks(world, true);
+        if (blocks.blocks.put(pack(x, y, z), 1) != 0) {
+            return false;
+        }
+        blocks.chunkCounts[chunkBucket(x >> 4, z >> 4)]++;
+        size++;
+        return true;
+    }
+
+    public boolean add(Location location) {
+        return add(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Removes a block position.
+     *
+     * @return true if the position was protected.
+     */
+    public boolean remove(World world, int x, int y, int z) {
+        WorldBlocks blocks = worldBlocks(world, false);
+        if (blocks == null || blocks.blocks.remove(pack(x, y, z)) == 0) {
+            return false;
+        }
+        blocks.chunkCounts[chunkBucket(x >> 4, z >> 4)]--;
+        size--;
+        return true;
+    }
+
+    public boolean contains(World world, int x, int y, int z) {
+        if (size == 0) {
+            return false;
+        }
+        WorldBlocks blocks = worldBlocks(world, false);
+        if (blocks == null || blocks.chunkCounts[chunkBucket(x >> 4, z >> 4)] == 0) {
+            return false; // 이 청크에는 보호 블록이 없음
+        }
+        return blocks.blocks.containsKey(pack(x, y, z));
+    }
+
+    public boolean contains(Block block) {
+        return contains(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Returns whether any block of the chunk might be protected. False means none is.
+     */
+    public boolean mayContainChunk(World world, int chunkX, int chunkZ) {
+        if (size == 0) {
+            return false;
+        }
+        WorldBlocks blocks = worldBlocks(world, false);
+        return blocks != null && blocks.chunkCounts[chunkBucket(chunkX, chunkZ)] != 0;
+    }
+
+    /**
+     * Calls the visitor for every protected block, in no particular order.
+     * The index must not be modified from the visitor.
+     */
+    public void forEach(BlockVisitor visitor) {
+        for (WorldBlocks blocks : worlds) {
+            blocks.blocks.forEachKey(packed -> visitor.accept(blocks.world, unpackX(packed), unpackY(packed), unpackZ(packed)));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (WorldBlocks blocks : worlds) {
+            blocks.blocks.clear();
+            Arrays.fill(blocks.chunkCounts, 0);
+        }
+        size = 0;
+    }
+
+    private WorldBlocks worldBlocks(World world, boolean create) {
+        for (WorldBlocks blocks : worlds) {
+            if (blocks.world == world) {
+                return blocks;
+            }
+        }
+        // A world that was unloaded and loaded again is a new object with the same UID
+        UUID worldId = world.getUID();
+        for (WorldBlocks blocks : worlds) {
+            if (blocks.worldId.equals(worldId)) {
+                blocks.world = world;
+                return blocks;
+            }
+        }
+        if (!create) {
+            return null;
+        }
+
+        WorldBlocks blocks = new WorldBlocks(world);
+        worlds = Arrays.copyOf(worlds, worlds.length + 1);
+        worlds[worlds.length - 1] = blocks;
+        return blocks;
+    }
+
+    private static int chunkBucket(int chunkX, int chunkZ) {
+        return (chunkX * 0x9E3779B1 + chunkZ * 0x7FEB352D) >>> 20 & CHUNK_BUCKET_MASK;
+    }
+
+    // Same layout as Minecraft's BlockPos#asLong: 26 bits x, 26 bits z, 12 bits y
+    private static long pack(int x, int y, int z) {
+        return ((x & 0x3FFFFFFL) << 38) | ((z & 0x3FFFFFFL) << 12) | (y & 0xFFFL);
+    }
+
+    private static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    private static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    private static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+}
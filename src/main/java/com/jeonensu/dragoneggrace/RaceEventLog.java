@@ -0,0 +1,152 @@
+package com.jeonensu.dragoneggrace;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * An append-only list of {@link RaceStateMachine} inputs, kept in primitive arrays.
+ * <p>
+ * Only inputs that change the machine's state are recorded, so a 100-day game is a few hundred
+ * entries. {@link #replay(RaceStateMachine)} feeds the entries back into a machine in order;
+ * {@link #write(DataOutput)} and {@link #read(DataInput)} store a log in a small binary file
+ * so a game recorded on the server can be replayed by the offline simulator.
+ */
+public class RaceEventLog {
+
+    public static final byte START = 1;
+    public static final byte STOP = 2;
+    public static final byte HOLDER = 3;
+    public static final byte NIGHT = 4;
+    public static final byte CLOCK = 5;
+
+    private static final int MAGIC = 0x44455245; // "DERE"
+    private static final int VERSION = 1;
+
+    private byte[] types = new byte[64];
+    private long[] ticks = new long[64];
+    // Player id of the entry (both 0 for none); NIGHT stores its flag in the low half
+    private long[] mostBits = new long[64];
+    private long[] leastBits = new long[64];
+    private int size = 0;
+
+    /**
+     * Appends an entry.
+     *
+     * @param type One of the type constants.
+     * @param tick Game time of the input.
+     * @param playerId The player of the input, or null.
+     */
+    public void append(byte type, long tick, UUID playerId) {
+        if (playerId == null) {
+            append(type, tick, 0L, 0L);
+        } else {
+            append(type, tick, playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+        }
+    }
+
+    /**
+     * Appends an entry carrying a flag instead of a player, e.g. {@link #NIGHT}.
+     */
+    public void appendFlag(byte type, long tick, boolean flag) {
+        append(type, tick, 0L, flag ? 1L : 0L);
+    }
+
+    private void append(byte type, long tick, long most, long least) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            ticks = Arrays.copyOf(ticks, capacity);
+            mostBits = Arrays.copyOf(mostBits, capacity);
+            leastBits = Arrays.copyOf(leastBits, capacity);
+        }
+        types[size] = type;
+        ticks[size] = tick;
+        mostBits[size] = most;
+        leastBits[size] = least;
+        size++;
+    }
+
+    /**
+     * Feeds every entry into a machine, in the order they were recorded.
+     *
+     * @param machine The machine, usually a fresh one with the same duration as the recorded game.
+     */
+    public void replay(RaceStateMachine machine) {
+        for (int i = 0; i < size; i++) {
+            long tick = ticks[i];
+            switch (types[i]) {
+                case START -> machine.start(tick, playerAt(i));
+                case STOP -> machine.stop(tick);
+                case HOLDER -> machine.observeHolder(tick, playerAt(i));
+                case NIGHT -> machine.observeNight(tick, leastBits[i] != 0);
+                case CLOCK -> machine.advanceTo(tick);
+                default -> throw new IllegalStateException("Unknown race event type " + types[i] + " at " + i);
+            }
+        }
+    }
+
+    private UUID playerAt(int index) {
+        long most = mostBits[index];
+        long least = leastBits[index];
+        return most == 0 && least == 0 ? null : new UUID(most, least);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte getType(int index) {
+        return types[index];
+    }
+
+    public long getTick(int index) {
+        return ticks[index];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Writes the log: a header (magic, version, count) followed by fixed-size entries.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeByte(types[i]);
+            out.writeLong(ticks[i]);
+            out.writeLong(mostBits[i]);
+            out.writeLong(leastBits[i]);
+        }
+    }
+
+    /**
+     * Reads a log written by {@link #write(DataOutput)}.
+     *
+     * @throws IOException If the data is not a race event log or is truncated.
+     */
+    public static RaceEventLog read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a race event log");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported race event log version " + version);
+        }
+        int count = in.readInt();
+        RaceEventLog log = new RaceEventLog();
+        for (int i = 0; i < count; i++) {
+            byte type = in.readByte();
+            long tick = in.readLong();
+            long most = in.readLong();
+            long least = in.readLong();
+            log.append(type, tick, most, least);
+        }
+        return log;
+    }
+}
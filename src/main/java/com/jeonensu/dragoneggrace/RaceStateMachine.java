@@ -0,0 +1,227 @@
+package com.jeonensu.dragoneggrace;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * The rules of one race, without any Bukkit dependency: who holds the egg, when it is lost or
+ * picked up, when night falls, the daily countdown and the end of the game.
+ * <p>
+ * The machine only reacts to its inputs ({@link #start}, {@link #observeHolder},
+ * {@link #observeNight}, {@link #advanceTo}, {@link #stop}) and reports transitions to a
+ * {@link Listener}. On the server the tracker and the game clock feed it; offline a recorded or
+ * generated {@link RaceEventLog} can be replayed into it, so whole games run in milliseconds.
+ * <p>
+ * Inputs may be recorded to a {@link RaceEventLog}: replaying that log into a fresh machine with the
+ * same duration reproduces exactly the same transitions.
+ */
+public class RaceStateMachine {
+
+    public static final int TICKS_PER_DAY = 24000;
+
+    /**
+     * Receives the transitions of the race. Every method is called synchronously from the input that caused it.
+     */
+    public interface Listener {
+        /** The egg went from no one to a player. */
+        default void onEggPickedUp(UUID playerId) {}
+
+        /** The holder lost the egg (death, dropped, logged out) and no one has it now. */
+        default void onEggLost(UUID playerId) {}
+
+        /** The holder changed in any way, including a direct hand-over; called after pick-up/loss. */
+        default void onHolderChanged(UUID previousId, UUID holderId) {}
+
+        /** Day turned into night during a game. */
+        default void onNightStarted() {}
+
+        /** A full game day has passed. */
+        default void onDayElapsed(int daysLeft) {}
+
+        /** The whole duration has passed; the machine is no longer running. */
+        default void onGameEnded(UUID holderId) {}
+    }
+
+    private final long durationTicks;
+    private final Listener listener;
+    private RaceEventLog recorder;
+
+    private boolean running = false;
+    // Game time of the last clock input
+    private long elapsedTicks = 0;
+    // Number of full days already announced
+    private int announcedDays = 0;
+    // Current holder, or null
+    private UUID holderId = null;
+    // Holder recorded before a restart; adopted silently if the first observation agrees
+    private boolean holderUnconfirmed = false;
+    // Night state of the arena's day world, kept between games like the world itself
+    private boolean night = false;
+
+    public RaceStateMachine(long durationTicks, Listener listener) {
+        this.durationTicks = durationTicks;
+        this.listener = listener;
+    }
+
+    /**
+     * Records every following input to a log, or stops recording.
+     *
+     * @param recorder The log to append to, or null.
+     */
+    public void setRecorder(RaceEventLog recorder) {
+        this.recorder = recorder;
+    }
+
+    public RaceEventLog getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Starts a new game or resumes a saved one.
+     *
+     * @param elapsedTicks Game time that has already passed (0 for a new game).
+     * @param restoredHolderId Holder recorded before a restart, or null.
+     */
+    public void start(long elapsedTicks, UUID restoredHolderId) {
+        if (recorder != null && night) {
+            recorder.appendFlag(RaceEventLog.NIGHT, elapsedTicks, true); // 재생할 때 밤 상태부터 맞춤
+        }
+        record(RaceEventLog.START, elapsedTicks, restoredHolderId);
+        running = true;
+        this.elapsedTicks = Math.min(durationTicks, Math.max(0, elapsedTicks));
+        announcedDays = (int) (this.elapsedTicks / TICKS_PER_DAY);
+        holderId = restoredHolderId;
+        holderUnconfirmed = restoredHolderId != null;
+    }
+
+    /**
+     * Stops the game without a winner.
+     *
+     * @param tick Game time of the input, only used for the log.
+     */
+    public void stop(long tick) {
+        record(RaceEventLog.STOP, tick, null);
+        running = false;
+        holderId = null;
+        holderUnconfirmed = false;
+    }
+
+    /**
+     * Reports who holds the egg at the moment; transitions fire only when it differs from the last observation.
+     *
+     * @param tick Game time of the input, only used for the log.
+     * @param observedId The player holding the egg, or null.
+     */
+    public void observeHolder(long tick, UUID observedId) {
+        if (!running) {
+            return;
+        }
+        if (holderUnconfirmed) {
+            record(RaceEventLog.HOLDER, tick, observedId);
+            holderUnconfirmed = false;
+            if (!Objects.equals(observedId, holderId)) {
+                holderId = null; // 재시작 전 보유자가 이미 알을 잃음 (알리지 않음)
+            }
+        } else if (!Objects.equals(observedId, holderId)) {
+            record(RaceEventLog.HOLDER, tick, observedId);
+        }
+        if (Objects.equals(observedId, holderId)) {
+            return;
+        }
+
+        UUID previousId = holderId;
+        holderId = observedId;
+        if (previousId != null && observedId == null) {
+            listener.onEggLost(previousId);
+        }
+        if (observedId != null && previousId == null) {
+            listener.onEggPickedUp(observedId);
+        }
+        listener.onHolderChanged(previousId, observedId);
+    }
+
+    /**
+     * Reports whether it is night in the arena's day world.
+     *
+     * @param tick Game time of the input, only used for the log.
+     * @param isNight True at night.
+     */
+    public void observeNight(long tick, boolean isNight) {
+        if (isNight == night) {
+            return;
+        }
+        if (recorder != null) {
+            recorder.appendFlag(RaceEventLog.NIGHT, tick, isNight);
+        }
+        night = isNight;
+        if (isNight && running) {
+            listener.onNightStarted();
+        }
+    }
+
+    /**
+     * Moves the game time forward, announcing a passed day or ending the game.
+     * If several days passed at once (lag), only the current day is announced.
+     *
+     * @param elapsedTicks The game time that has passed since the start.
+     */
+    public void advanceTo(long elapsedTicks) {
+        if (!running) {
+            return;
+        }
+        record(RaceEventLog.CLOCK, elapsedTicks, null);
+        this.elapsedTicks = Math.min(durationTicks, Math.max(this.elapsedTicks, elapsedTicks));
+
+        if (this.elapsedTicks >= durationTicks) {
+            running = false;
+            listener.onGameEnded(holderId);
+            return;
+        }
+
+        int elapsedDays = (int) (this.elapsedTicks / TICKS_PER_DAY);
+        if (elapsedDays > announcedDays) {
+            announcedDays = elapsedDays;
+            listener.onDayElapsed(getRemainingDays());
+        }
+    }
+
+    /**
+     * Returns the game time of the next day boundary or the end of the game, whichever comes first.
+     */
+    public long getNextMilestone() {
+        return Math.min(durationTicks, (long) (announcedDays + 1) * TICKS_PER_DAY);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isNight() {
+        return night;
+    }
+
+    /**
+     * Returns the holder as far as the machine knows, or null.
+     */
+    public UUID getHolderId() {
+        return holderId;
+    }
+
+    public long getElapsedTicks() {
+        return elapsedTicks;
+    }
+
+    public long getDurationTicks() {
+        return durationTicks;
+    }
+
+    public int getRemainingDays() {
+        return (int) Math.max(0, durationTicks / TICKS_PER_DAY - elapsedTicks / TICKS_PER_DAY);
+    }
+
+    private void record(byte type, long tick, UUID playerId) {
+        if (recorder != null) {
+            recorder.append(type, tick, playerId);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Applies block edits of plugin structures (beacons and their bases) in batches.
+ * <p>
+ * Edits are grouped per chunk and applied without physics updates by a single task that only runs
+ * while edits are pending, spending at most {@code structures.tick-budget-micros} per tick. Chunks
+ * that are not loaded are loaded asynchronously and held with a plugin chunk ticket until their
+ * edits are done. A chunk that fails to load is retried on the next ticks; after
+ * {@value #MAX_LOAD_ATTEMPTS} failed attempts its edits are dropped and counted as skipped.
+ * Edits of later jobs in the same chunk are applied after earlier ones, so a clear followed by a
+ * placement at the same spot ends with the placement.
+ * <p>
+ * On a region-threaded server the task hands every chunk's batch to the region that owns the chunk,
+ * which applies it whole: the tick budget does not apply there, since each region has its own tick.
+ * The job's totals are collected back on the global region.
+ */
+public class StructurePlacer {
+
+    // Failed asynchronous loads of one chunk before its edits are given up
+    static final int MAX_LOAD_ATTEMPTS = 5;
+
+    /**
+     * One block edit, queued in the batch of its chunk.
+     *
+     * @param world The world of the block.
+     * @param x Block x.
+     * @param y Block y.
+     * @param z Block z.
+     * @param type The new block type.
+     * @param onlyIf Types the current block must have to be replaced, or null to always replace.
+     * @param effectOn Spawn the removal particles if the replaced block had this type, or null for none.
+     * @param job The job the edit belongs to.
+     */
+    private record BlockEdit(World world, int x, int y, int z, Material type, Set<Material> onlyIf, Material effectOn, Job job) {
+    }
+
+    /**
+     * All pending edits of one chunk.
+     */
+    private static final class ChunkBatch {
+        final World world;
+        final int chunkX;
+        final int chunkZ;
+        final List<BlockEdit> edits = new ArrayList<>();
+        int next = 0;
+        boolean loading = false;
+        int failedLoads = 0;
+        Chunk ticketed = null;
+
+        ChunkBatch(World world, int chunkX, int chunkZ) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+    }
+
+    /**
+     * Records a changed block in the data of its chunk, which is loaded when called.
+     */
+    @FunctionalInterface
+    public interface BlockMarker {
+        void mark(Chunk chunk, int x, int y, int z);
+    }
+
+    /**
+     * A group of edits submitted together, e.g. one beacon placement or clearing all beacons.
+     * Reports its timings once every edit has been applied.
+     */
+    public static final class Job {
+        private final String name;
+        private final Consumer<Job> onComplete;
+        private BlockMarker marker;
+        private final List<BlockEdit> edits = new ArrayList<>();
+        private int remaining;
+        private int applied = 0;
+        private int skipped = 0;
+        private int chunkCount = 0;
+        private long submitNanos;
+        private long finishNanos;
+        private long workNanos = 0;
+
+        private Job(String name, Consumer<Job> onComplete) {
+            this.name = name;
+            this.onComplete = onComplete;
+        }
+
+        /**
+         * Sets a block to the given type.
+         */
+        public Job set(World world, int x, int y, int z, Material type) {
+            edits.add(new BlockEdit(world, x, y, z, type, null, null, this));
+            return this;
+        }
+
+        /**
+         * Sets a block to air if it currently has one of the given types.
+         *
+         * @param effectOn Spawn removal particles if the block had this type, so a structure gets
+         *                 one burst at its center block instead of one per block. Null for none.
+         */
+        public Job remove(World world, int x, int y, int z, Set<Material> onlyIf, Material effectOn) {
+            edits.add(new BlockEdit(world, x, y, z, Material.AIR, onlyIf, effectOn, this));
+            return this;
+        }
+
+        /**
+         * Calls the marker for every block this job changes, right after the change, on the thread that
+         * owns the block's chunk.
+         */
+        public Job markIn(BlockMarker marker) {
+            this.marker = marker;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Returns the number of blocks that were changed. */
+        public int getAppliedCount() {
+            return applied;
+        }
+
+        /** Returns the number of removals skipped because the block no longer had the expected type. */
+        public int getSkippedCount() {
+            return skipped;
+        }
+
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        /** Returns the main thread time spent applying this job's edits, in nanoseconds. */
+        public long getWorkNanos() {
+            return workNanos;
+        }
+
+        /** Returns the time from submission until the last edit was applied, in nanoseconds. */
+        public long getElapsedNanos() {
+            return finishNanos - submitNanos;
+        }
+    }
+
+    private final DragonEggRacePlugin plugin;
+    private final long tickBudgetNanos;
+    // Pending batches in submission order, keyed by world and chunk
+    private final Map<ChunkKey, ChunkBatch> batches = new LinkedHashMap<>();
+    // Most recently completed job per name, for status output
+    private final Map<String, Job> lastJobs = new HashMap<>();
+    private TaskScheduler.Task task;
+
+    private record ChunkKey(World world, int chunkX, int chunkZ) {
+    }
+
+    public StructurePlacer(DragonEggRacePlugin plugin) {
+        this.plugin = plugin;
+        this.tickBudgetNanos = Math.max(50L, plugin.getConfig().getLong("structures.tick-budget-micros", 1000L)) * 1000L;
+    }
+
+    /**
+     * Creates an empty job. Add edits to it, then {@link #submit(Job)} it.
+     *
+     * @param name Name used in the timing report.
+     * @param onComplete Called on the main thread once all edits are applied, or null.
+     * @return The job.
+     */
+    public Job newJob(String name, Consumer<Job> onComplete) {
+        return new Job(name, onComplete);
+    }
+
+    /**
+     * Queues all edits of a job. Nothing is changed in the world before the next tick.
+     */
+    public void submit(Job job) {
+        job.submitNanos = System.nanoTime();
+        job.remaining = job.edits.size();
+        if (job.remaining == 0) {
+            complete(job);
+            return;
+        }
+
+        Set<ChunkKey> chunks = new HashSet<>();
+        for (BlockEdit edit : job.edits) {
+            ChunkKey key = new ChunkKey(edit.world(), edit.x() >> 4, edit.z() >> 4);
+            batches.computeIfAbsent(key, k -> new ChunkBatch(k.world(), k.chunkX(), k.chunkZ())).edits.add(edit);
+            chunks.add(key);
+        }
+        job.chunkCount = chunks.size();
+
+        if (task == null && plugin.isEnabled()) {
+            task = plugin.getTaskScheduler().runGlobalTimer(this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Applies every pending edit right away, loading chunks synchronously if needed.
+     * Used when the plugin is disabled so no queued edit is lost.
+     */
+    public void flushAll() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (ChunkBatch batch : batches.values()) {
+            Chunk chunk = batch.world.getChunkAt(batch.chunkX, batch.chunkZ);
+            applyEdits(batch, chunk, Long.MAX_VALUE);
+            releaseTicket(batch);
+        }
+        batches.clear();
+    }
+
+    /**
+     * Returns the number of edits still waiting to be applied.
+     */
+    public int getPendingEditCount() {
+        int count = 0;
+        for (ChunkBatch batch : batches.values()) {
+            count += batch.edits.size() - batch.next;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the most recently completed job with the given name.
+     *
+     * @param name The job name, e.g. "beacon-place".
+     * @return The job, or null if none has completed yet.
+     */
+    public Job getLastJob(String name) {
+        return lastJobs.get(name);
+    }
+
+    private void tick() {
+        if (plugin.getTaskScheduler().isRegionThreaded()) {
+            dispatchToRegions();
+            return;
+        }
+        long deadline = System.nanoTime() + tickBudgetNanos;
+
+        Iterator<ChunkBatch> iterator = batches.values().iterator();
+        while (iterator.hasNext()) {
+            ChunkBatch batch = iterator.next();
+            if (!batch.world.isChunkLoaded(batch.chunkX, batch.chunkZ)) {
+                if (batch.failedLoads >= MAX_LOAD_ATTEMPTS) {
+                    dropEdits(batch);
+                    iterator.remove();
+                    continue;
+                }
+                requestChunk(batch);
+                continue; // 청크가 로드되면 다음 틱에 처리
+            }
+
+            applyEdits(batch, batch.world.getChunkAt(batch.chunkX, batch.chunkZ), deadline);
+            if (batch.next < batch.edits.size()) {
+                return; // 이번 틱 시간 예산 소진
+            }
+            releaseTicket(batch);
+            iterator.remove();
+        }
+
+        if (batches.isEmpty()) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    // Folia: the region that owns a chunk loads it if needed and applies its batch in one go
+    private void dispatchToRegions() {
+        TaskScheduler scheduler = plugin.getTaskScheduler();
+        for (ChunkBatch batch : batches.values()) {
+            scheduler.executeAt(batch.world, batch.chunkX, batch.chunkZ,
+                    () -> applyEdits(batch, batch.world.getChunkAt(batch.chunkX, batch.chunkZ), Long.MAX_VALUE));
+        }
+        batches.clear();
+        task.cancel();
+        task = null;
+    }
+
+    // Loads the chunk off the main thread and keeps it loaded until its edits are applied
+    private void requestChunk(ChunkBatch batch) {
+        if (batch.loading) {
+            return;
+        }
+        batch.loading = true;
+        batch.world.getChunkAtAsync(batch.chunkX, batch.chunkZ).whenComplete((chunk, error) -> {
+            batch.loading = false; // 실패해도 다음 틱에 다시 시도
+            if (error != null || chunk == null) {
+                batch.failedLoads++;
+                plugin.getLogger().log(Level.WARNING, "구조물 청크를 불러오지 못했습니다 (" + batch.world.getName() + " "
+                        + batch.chunkX + ", " + batch.chunkZ + ", " + batch.failedLoads + "/" + MAX_LOAD_ATTEMPTS + "회)", error);
+                return;
+            }
+            if (batch.ticketed == null && chunk.addPluginChunkTicket(plugin)) {
+                batch.ticketed = chunk;
+            }
+        });
+    }
+
+    // Gives up the edits of a chunk that can't be loaded, so their jobs still complete
+    private void dropEdits(ChunkBatch batch) {
+        plugin.getLogger().warning("청크를 불러올 수 없어 구조물 블록 " + (batch.edits.size() - batch.next) + "개를 건너뜁니다 ("
+                + batch.world.getName() + " " + batch.chunkX + ", " + batch.chunkZ + ")");
+        while (batch.next < batch.edits.size()) {
+            Job job = batch.edits.get(batch.next++).job();
+            job.skipped++;
+            if (--job.remaining == 0) {
+                complete(job);
+            }
+        }
+        releaseTicket(batch);
+    }
+
+    private void releaseTicket(ChunkBatch batch) {
+        if (batch.ticketed != null) {
+            batch.ticketed.removePluginChunkTicket(plugin);
+            batch.ticketed = null;
+        }
+    }
+
+    private void applyEdits(ChunkBatch batch, Chunk chunk, long deadline) {
+        while (batch.next < batch.edits.size()) {
+            long start = System.nanoTime();
+            if (start >= deadline) {
+                return;
+            }
+
+            BlockEdit edit = batch.edits.get(batch.next++);
+            Block block = chunk.getBlock(edit.x() & 15, edit.y(), edit.z() & 15);
+            Job job = edit.job();
+            Material previous = block.getType();
+            boolean replace = edit.onlyIf() == null || edit.onlyIf().contains(previous);
+            if (replace) {
+                block.setType(edit.type(), false); // 물리/주변 블록 업데이트 없이 변경
+                if (job.marker != null) {
+                    job.marker.mark(chunk, edit.x(), edit.y(), edit.z());
+                }
+                if (previous == edit.effectOn()) {
+                    // 구조물 하나당 한 번만 연기 효과 (블록마다 생성하지 않음)
+                    batch.world.spawnParticle(Particle.LARGE_SMOKE,
+                            new Location(batch.world, edit.x() + 0.5, edit.y() + 0.5, edit.z() + 0.5),
+                            40, 1.5, 1.0, 1.5, 0.1);
+                }
+            }
+
+            boolean done;
+            // Folia에서는 한 작업의 청크들이 여러 지역 스레드에서 동시에 적용될 수 있음
+            synchronized (job) {
+                if (replace) {
+                    job.applied++;
+                } else {
+                    job.skipped++;
+                }
+                job.workNanos += System.nanoTime() - start;
+                done = --job.remaining == 0;
+            }
+            if (done) {
+                if (plugin.getTaskScheduler().isRegionThreaded() && plugin.isEnabled()) {
+                    plugin.getTaskScheduler().runGlobal(() -> complete(job)); // 결과는 전역 지역에서 모음
+                } else {
+                    complete(job);
+                }
+            }
+        }
+    }
+
+    private void complete(Job job) {
+        job.finishNanos = System.nanoTime();
+        lastJobs.put(job.name, job);
+        plugin.getMetrics().timer("structure_" + job.name.replace('-', '_')).record(job.workNanos);
+        plugin.getLogger().log(Level.FINE, () -> String.format(
+                "구조물 작업 %s: 블록 %d개 변경, %d개 건너뜀, 청크 %d개, 작업 %.2fms, 완료까지 %.1fms",
+                job.name, job.applied, job.skipped, job.chunkCount,
+                job.workNanos / 1_000_000.0, job.getElapsedNanos() / 1_000_000.0));
+        if (job.onComplete != null) {
+            job.onComplete.accept(job);
+        }
+    }
+}
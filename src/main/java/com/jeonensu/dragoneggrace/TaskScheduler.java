@@ -0,0 +1,98 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+/**
+ * Runs the plugin's tasks on the thread that owns what they touch.
+ * <p>
+ * There are three kinds of tasks. Global tasks (game clocks, the shared tracking tick, message
+ * flushing) own the plugin's game state. Region tasks change blocks or spawn entities at a
+ * location. Entity tasks act on one entity (particles at a dropped egg, effects at the winner).
+ * On a regular Bukkit server all three run on the main thread. On a region-threaded server (Folia)
+ * region and entity tasks run on the thread of the region that currently owns the location or
+ * entity, in parallel with other regions.
+ * <p>
+ * The {@code execute...} methods run the task right away if the calling thread already owns the
+ * target, so code that is on the right thread keeps its ordering.
+ */
+public interface TaskScheduler {
+
+    /**
+     * A scheduled repeating or delayed task.
+     */
+    @FunctionalInterface
+    interface Task {
+        void cancel();
+    }
+
+    /**
+     * Creates the scheduler for the running server: region-threaded if Folia's regionized server
+     * is present, otherwise the Bukkit scheduler.
+     */
+    static TaskScheduler create(DragonEggRacePlugin plugin) {
+        return isFolia() ? new FoliaTaskScheduler(plugin) : new BukkitTaskScheduler(plugin);
+    }
+
+    /**
+     * Returns whether the server is Folia, which ticks regions on separate threads.
+     */
+    static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether region and entity tasks may run on another thread than global tasks.
+     */
+    boolean isRegionThreaded();
+
+    /**
+     * Runs a global task on the next tick.
+     */
+    void runGlobal(Runnable task);
+
+    /**
+     * Runs a global task after a delay.
+     *
+     * @param delayTicks Delay in ticks; at least one tick.
+     */
+    Task runGlobalLater(Runnable task, long delayTicks);
+
+    /**
+     * Runs a global task repeatedly.
+     *
+     * @param delayTicks Delay before the first run in ticks; at least one tick.
+     * @param periodTicks Ticks between two runs.
+     */
+    Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Runs a task on the owner of a location: now if the calling thread owns it, otherwise as soon as possible.
+     */
+    void executeAt(Location location, Runnable task);
+
+    /**
+     * Runs a task on the owner of a chunk: now if the calling thread owns it, otherwise as soon as possible.
+     */
+    void executeAt(World world, int chunkX, int chunkZ, Runnable task);
+
+    /**
+     * Runs a task on the owner of an entity: now if the calling thread owns it, otherwise as soon as possible.
+     * The task is dropped if the entity is removed first.
+     */
+    void executeOn(Entity entity, Runnable task);
+
+    /**
+     * Runs a task on the owner of an entity after a delay, following the entity across regions.
+     * The task is dropped if the entity is removed first.
+     *
+     * @param delayTicks Delay in ticks; at least one tick.
+     */
+    Task runOnLater(Entity entity, Runnable task, long delayTicks);
+}
@@ -0,0 +1,117 @@
+package com.jeonensu.dragoneggrace;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-bucket histogram of durations in nanoseconds.
+ * <p>
+ * Buckets are log-linear like HdrHistogram with one significant binary digit of precision plus
+ * three sub-bucket bits: values below 16 ns are exact, larger values fall into one of 8 buckets per
+ * power of two, so a percentile is off by at most 12.5%. Recording is a few shifts and one array
+ * increment and never allocates. Not thread-safe; record and read on the main thread.
+ */
+public class TickHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Exponents 4..62 with 8 sub-buckets each after the linear range
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (63 - 4) * SUB_BUCKETS;
+
+    private final String name;
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    public TickHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration in nanoseconds. Negative values count as zero.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[bucketOf(nanos)]++;
+        count++;
+        sum += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * Records the time elapsed since a {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the duration below which the given fraction of recorded values fall.
+     *
+     * @param quantile A value between 0 and 1, e.g. 0.99.
+     * @return The upper bound of the bucket holding that quantile, never above the maximum, or 0 if nothing was recorded.
+     */
+    public long getQuantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width - 1;
+    }
+}
@@ -0,0 +1,466 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records the path of every egg holder for review after the event.
+ * <p>
+ * The tracking pass writes one position sample into a fixed-size ring buffer of primitive arrays,
+ * without allocating. A serial queue of the plugin's {@link AsyncIoService} drains the buffer every few seconds, delta-encodes the
+ * samples of each holder session (one holder in one world, from pickup until the egg is lost) as
+ * zig-zag varints and appends them in one write per session to
+ * {@code trails/<arena>/<game id>/<start>-<player>.trail}. If the buffer is full, new samples are
+ * dropped and counted instead of blocking the main thread.
+ * <p>
+ * {@link #export(Format)} decodes the trail files of the current game into a heatmap PNG per world
+ * or a single CSV file, also on the I/O queue.
+ */
+public class TrailRecorder {
+
+    private static final int FILE_MAGIC = 0x44455452; // "DETR"
+    private static final byte FILE_VERSION = 1;
+    private static final String FILE_SUFFIX = ".trail";
+    // Samples buffered between two drains; must be a power of two
+    private static final int BUFFER_SIZE = 1024;
+
+    public enum Format {
+        PNG, CSV
+    }
+
+    /**
+     * Who and where a session is about, written once at the start of its file.
+     */
+    private record SessionInfo(File file, UUID playerId, String playerName, UUID worldId, String worldName, long startMillis) {
+    }
+
+    /**
+     * Encoder state of an open session; only touched by tasks of the I/O queue.
+     */
+    private static final class Session {
+        final SessionInfo info;
+        byte[] pending = new byte[256];
+        int pendingLength = 0;
+        long lastTick = 0;
+        int lastX = 0;
+        int lastY = 0;
+        int lastZ = 0;
+
+        Session(SessionInfo info) {
+            this.info = info;
+        }
+
+        void append(long tick, int x, int y, int z) {
+            if (pendingLength + 4 * 10 > pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            pendingLength = writeVarLong(pending, pendingLength, tick - lastTick);
+            pendingLength = writeVarLong(pending, pendingLength, x - lastX);
+            pendingLength = writeVarLong(pending, pendingLength, y - lastY);
+            pendingLength = writeVarLong(pending, pendingLength, z - lastZ);
+            lastTick = tick;
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+        }
+    }
+
+    /**
+     * Receives the decoded samples of one trail file.
+     */
+    private interface SampleVisitor {
+        void visit(SessionInfo info, long tick, int x, int y, int z);
+    }
+
+    private final DragonEggRacePlugin plugin;
+    private final Arena arena;
+    private final Logger logger;
+    private final File baseDirectory;
+    private final boolean enabled;
+    private final long flushIntervalTicks;
+    private final int heatmapSize;
+    private final AsyncIoService.SerialQueue ioQueue;
+
+    // Ring buffer: written by the main thread up to head, read by the I/O queue up to tail
+    private final int[] ringSession = new int[BUFFER_SIZE];
+    private final long[] ringTick = new long[BUFFER_SIZE];
+    private final int[] ringX = new int[BUFFER_SIZE];
+    private final int[] ringY = new int[BUFFER_SIZE];
+    private final int[] ringZ = new int[BUFFER_SIZE];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // Main thread state of the current session
+    private final Location scratch = new Location(null, 0, 0, 0);
+    private int currentSession = -1;
+    private int nextSessionId = 0;
+    private UUID sessionPlayerId;
+    private UUID sessionWorldId;
+    private long lastFlushTick = 0;
+    private long recordedSamples = 0;
+    private long droppedSamples = 0;
+
+    // Open sessions, owned by the I/O queue
+    private final Map<Integer, Session> sessions = new HashMap<>();
+
+    public TrailRecorder(DragonEggRacePlugin plugin, Arena arena) {
+        this.plugin = plugin;
+        this.arena = arena;
+        this.logger = plugin.getLogger();
+        this.baseDirectory = new File(plugin.getDataFolder(), "trails/" + arena.getName());
+        this.enabled = plugin.getConfig().getBoolean("trails.enabled", true);
+        this.flushIntervalTicks = Math.max(1L, plugin.getConfig().getLong("trails.flush-interval-seconds", 10L)) * 20L;
+        this.heatmapSize = Math.max(16, plugin.getConfig().getInt("trails.heatmap-size", 1024));
+        this.ioQueue = plugin.getIo().newSerialQueue("trails-" + arena.getName());
+    }
+
+    /**
+     * Records the holder's current block position. Starts a new session when the holder or their
+     * world changed since the last sample. Called on the main thread by every tracking pass.
+     *
+     * @param holder The egg holder.
+     * @param tick The current server tick.
+     */
+    public void record(Player holder, long tick) {
+        if (!enabled || arena.getGameId() == null) {
+            return;
+        }
+
+        holder.getLocation(scratch);
+        World world = scratch.getWorld();
+        if (world == null) {
+            return;
+        }
+        if (currentSession < 0 || !holder.getUniqueId().equals(sessionPlayerId) || !world.getUID().equals(sessionWorldId)) {
+            beginSession(holder, world);
+        }
+
+        long h = head.get();
+        if (h - tail.get() >= BUFFER_SIZE) {
+            droppedSamples++; // 파일 작업이 따라오지 못함
+            return;
+        }
+        int i = (int) h & (BUFFER_SIZE - 1);
+        ringSession[i] = currentSession;
+        ringTick[i] = tick;
+        ringX[i] = scratch.getBlockX();
+        ringY[i] = scratch.getBlockY();
+        ringZ[i] = scratch.getBlockZ();
+        head.lazySet(h + 1); // 배열에 쓴 뒤에 공개
+        recordedSamples++;
+
+        if (tick - lastFlushTick >= flushIntervalTicks) {
+            lastFlushTick = tick;
+            submit(this::drainAndWrite);
+        }
+    }
+
+    /**
+     * Ends the current session, e.g. when the egg is lost or the game stops.
+     */
+    public void endSession() {
+        if (currentSession < 0) {
+            return;
+        }
+        int session = currentSession;
+        currentSession = -1;
+        sessionPlayerId = null;
+        sessionWorldId = null;
+        submit(() -> {
+            drainAndWrite();
+            sessions.remove(session);
+        });
+    }
+
+    private void beginSession(Player holder, World world) {
+        endSession();
+        currentSession = nextSessionId++;
+        sessionPlayerId = holder.getUniqueId();
+        sessionWorldId = world.getUID();
+
+        long now = System.currentTimeMillis();
+        File directory = new File(baseDirectory, arena.getGameId().toString());
+        SessionInfo info = new SessionInfo(new File(directory, now + "-" + sessionPlayerId + FILE_SUFFIX),
+                sessionPlayerId, holder.getName(), sessionWorldId, world.getName(), now);
+        int session = currentSession;
+        submit(() -> openSession(session, info));
+    }
+
+    /**
+     * Writes everything recorded so far and decodes the current game's trails into export files.
+     *
+     * @param format PNG for one heatmap per world, CSV for all samples.
+     * @return Completes on an I/O thread with the written files.
+     */
+    public CompletableFuture<List<File>> export(Format format) {
+        UUID gameId = arena.getGameId();
+        if (gameId == null) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        File directory = new File(baseDirectory, gameId.toString());
+        return CompletableFuture.supplyAsync(() -> {
+            drainAndWrite();
+            try {
+                return format == Format.PNG ? exportHeatmaps(directory) : List.of(exportCsv(directory));
+            } catch (IOException e) {
+                throw new IllegalStateException("경로 기록을 내보내지 못했습니다: " + directory, e);
+            }
+        }, ioQueue);
+    }
+
+    /**
+     * Ends the current session and writes all remaining samples. Called when the plugin is disabled.
+     */
+    public void close() {
+        endSession();
+        if (!ioQueue.close(10, TimeUnit.SECONDS)) {
+            logger.warning("경로 기록 저장이 시간 안에 끝나지 않았습니다.");
+        }
+    }
+
+    public long getRecordedSampleCount() {
+        return recordedSamples;
+    }
+
+    public long getDroppedSampleCount() {
+        return droppedSamples;
+    }
+
+    private void submit(Runnable task) {
+        // 닫힌 뒤에는 메인 스레드에서 파일을 쓰지 않도록 버림
+        if (!ioQueue.isClosed()) {
+            ioQueue.execute(task);
+        }
+    }
+
+    // --- I/O queue ---
+
+    private void openSession(int id, SessionInfo info) {
+        try {
+            Files.createDirectories(info.file().getParentFile().toPath());
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(info.file()))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeByte(FILE_VERSION);
+                writeUuid(out, info.playerId());
+                out.writeUTF(info.playerName());
+                writeUuid(out, info.worldId());
+                out.writeUTF(info.worldName());
+                out.writeLong(info.startMillis());
+            }
+            sessions.put(id, new Session(info));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "경로 기록 파일을 만들지 못했습니다: " + info.file(), e);
+        }
+    }
+
+    private void drainAndWrite() {
+        long t = tail.get();
+        long h = head.get();
+        for (; t < h; t++) {
+            int i = (int) t & (BUFFER_SIZE - 1);
+            Session session = sessions.get(ringSession[i]);
+            if (session != null) {
+                session.append(ringTick[i], ringX[i], ringY[i], ringZ[i]);
+            }
+        }
+        tail.lazySet(h);
+
+        // 세션마다 모인 기록을 한 번에 파일 끝에 추가
+        for (Session session : sessions.values()) {
+            if (session.pendingLength == 0) continue;
+            try (OutputStream out = new FileOutputStream(session.info.file(), true)) {
+                out.write(session.pending, 0, session.pendingLength);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "경로 기록을 쓰지 못했습니다: " + session.info.file(), e);
+            }
+            session.pendingLength = 0;
+        }
+    }
+
+    private List<File> exportHeatmaps(File directory) throws IOException {
+        // 월드별 좌표 목록 (x, z 교대로)
+        Map<String, int[]> pointsByWorld = new LinkedHashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        readTrails(directory, (info, tick, x, y, z) -> {
+            int size = sizes.getOrDefault(info.worldName(), 0);
+            int[] points = pointsByWorld.computeIfAbsent(info.worldName(), name -> new int[256]);
+            if (size + 2 > points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+                pointsByWorld.put(info.worldName(), points);
+            }
+            points[size] = x;
+            points[size + 1] = z;
+            sizes.put(info.worldName(), size + 2);
+        });
+
+        List<File> files = new ArrayList<>();
+        for (Map.Entry<String, int[]> entry : pointsByWorld.entrySet()) {
+            File file = new File(directory, "heatmap-" + entry.getKey().replaceAll("[^A-Za-z0-9_.-]", "_") + ".png");
+            ImageIO.write(renderHeatmap(entry.getValue(), sizes.get(entry.getKey())), "png", file);
+            files.add(file);
+        }
+        return files;
+    }
+
+    private BufferedImage renderHeatmap(int[] points, int length) {
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minZ = Integer.MAX_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < length; i += 2) {
+            minX = Math.min(minX, points[i]);
+            maxX = Math.max(maxX, points[i]);
+            minZ = Math.min(minZ, points[i + 1]);
+            maxZ = Math.max(maxZ, points[i + 1]);
+        }
+
+        // 긴 쪽이 heatmap-size 픽셀 안에 들어가도록 한 픽셀이 차지할 블록 수 결정
+        long span = Math.max((long) maxX - minX, (long) maxZ - minZ) + 1;
+        int blocksPerPixel = (int) Math.max(1, (span + heatmapSize - 1) / heatmapSize);
+        int width = (int) (((long) maxX - minX) / blocksPerPixel) + 1;
+        int height = (int) (((long) maxZ - minZ) / blocksPerPixel) + 1;
+
+        int[] counts = new int[width * height];
+        int max = 0;
+        for (int i = 0; i < length; i += 2) {
+            int px = (int) (((long) points[i] - minX) / blocksPerPixel);
+            int pz = (int) (((long) points[i + 1] - minZ) / blocksPerPixel);
+            max = Math.max(max, ++counts[pz * width + px]);
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        double scale = Math.log1p(max);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            // 로그 스케일: 잠깐 지나간 곳도 보이고, 오래 머문 곳은 밝게
+            double t = Math.log1p(counts[i]) / scale;
+            image.setRGB(i % width, i / width, heatColor(t));
+        }
+        return image;
+    }
+
+    // 보라(적음) -> 빨강 -> 노랑(많음)
+    private static int heatColor(double t) {
+        int r = (int) (128 + 127 * Math.min(1.0, t * 2));
+        int g = (int) (255 * Math.max(0.0, t * 2 - 1));
+        int b = (int) (160 * (1 - t));
+        return 0xFF000000 | r << 16 | g << 8 | b;
+    }
+
+    private File exportCsv(File directory) throws IOException {
+        File file = new File(directory, "trail.csv");
+        Files.createDirectories(directory.toPath());
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write("session_start,player_id,player,world,tick,x,y,z\n");
+            IOException[] error = new IOException[1];
+            readTrails(directory, (info, tick, x, y, z) -> {
+                if (error[0] != null) return;
+                try {
+                    out.write(String.format(Locale.ROOT, "%d,%s,%s,%s,%d,%d,%d,%d%n",
+                            info.startMillis(), info.playerId(), info.playerName(), info.worldName(), tick, x, y, z));
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+        }
+        return file;
+    }
+
+    private void readTrails(File directory, SampleVisitor visitor) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files); // 시작 시각 순
+        for (File file : files) {
+            readTrail(file, visitor);
+        }
+    }
+
+    private void readTrail(File file, SampleVisitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readByte() != FILE_VERSION) {
+                logger.warning("알 수 없는 경로 기록 파일을 건너뜁니다: " + file);
+                return;
+            }
+            SessionInfo info = new SessionInfo(file, readUuid(in), in.readUTF(), readUuid(in), in.readUTF(), in.readLong());
+
+            long tick = 0;
+            int x = 0, y = 0, z = 0;
+            while (true) {
+                try {
+                    tick += readVarLong(in);
+                    x += (int) readVarLong(in);
+                    y += (int) readVarLong(in);
+                    z += (int) readVarLong(in);
+                } catch (EOFException e) {
+                    return; // 파일 끝 (비정상 종료로 잘린 마지막 기록도 여기서 무시)
+                }
+                visitor.visit(info, tick, x, y, z);
+            }
+        } catch (EOFException e) {
+            logger.warning("헤더가 잘린 경로 기록 파일을 건너뜁니다: " + file);
+        }
+    }
+
+    // Zig-zag varint: small deltas of either sign take one byte
+    private static int writeVarLong(byte[] buffer, int offset, long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            buffer[offset++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[offset++] = (byte) v;
+        return offset;
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("잘못된 varint");
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
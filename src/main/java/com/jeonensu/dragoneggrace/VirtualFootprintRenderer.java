@@ -0,0 +1,162 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps footprints only as data in the {@link FootprintStore} and spawns an entity for a footprint
+ * only while some player is close enough to see it.
+ * <p>
+ * The entities are non-persistent, so they are never written to chunk data, and they are
+ * removed again as soon as nobody is within {@link #MATERIALIZE_RANGE}. The number of footprint
+ * entities on the server is therefore bounded by what players can actually see, not by the
+ * length of the trail.
+ */
+public class VirtualFootprintRenderer implements FootprintRenderer {
+
+    public static final String MODE = "virtual";
+
+    // Spawn footprints a little before they come into view range, and keep them a little longer
+    static final double MATERIALIZE_RANGE = FootprintDisplays.VIEW_RANGE + 6.0;
+
+    private final IntConsumer visibleSlotVisitor = this::markVisible;
+    private final FootprintVisibility visibility;
+    private final Arena arena;
+
+    // Pass number in which each slot was last within range of a player
+    private int[] seenPass = new int[256];
+    // Position of each slot in the materialized list, or -1
+    private int[] materializedIndex = new int[256];
+    // Slots that currently have an entity
+    private int[] materialized = new int[64];
+    private int materializedCount = 0;
+
+    private int pass = 0;
+    // State of the current tick pass, kept in fields so the visitor doesn't allocate
+    private FootprintStore currentStore;
+    private World currentWorld;
+
+    /**
+     * @param visibility Hides the spawned footprints from players who turned them off.
+     * @param arena The arena whose players see the footprints.
+     */
+    public VirtualFootprintRenderer(FootprintVisibility visibility, Arena arena) {
+        this.visibility = visibility;
+        this.arena = arena;
+        Arrays.fill(materializedIndex, -1);
+    }
+
+    @Override
+    public void onAdded(FootprintStore store, int slot, World world) {
+        ensureCapacity(slot + 1);
+        seenPass[slot] = 0;
+        materializedIndex[slot] = -1;
+        // Spawned on the next pass if a player is nearby (the holder usually is)
+    }
+
+    @Override
+    public void onRemoved(FootprintStore store, int slot) {
+        if (slot < materializedIndex.length && materializedIndex[slot] >= 0) {
+            dematerialize(store, slot);
+        }
+    }
+
+    /**
+     * Spawns entities for footprints near the arena's players and removes the ones nobody is near anymore.
+     */
+    @Override
+    public void tick(FootprintStore store) {
+        pass++;
+        currentStore = store;
+
+        if (store.size() > 0) {
+            for (Player player : arena.getPlayers()) {
+                Location loc = player.getLocation();
+                currentWorld = loc.getWorld();
+                store.forEachWithin(currentWorld, loc.getX(), loc.getY(), loc.getZ(), MATERIALIZE_RANGE, visibleSlotVisitor);
+            }
+        }
+
+        // Walk backwards because dematerialize swaps the last entry into the current position
+        for (int i = materializedCount - 1; i >= 0; i--) {
+            int slot = materialized[i];
+            BlockDisplay display = store.getDisplay(slot);
+            if (seenPass[slot] != pass || display == null || !display.isValid()) {
+                dematerialize(store, slot);
+            }
+        }
+
+        currentStore = null;
+        currentWorld = null;
+    }
+
+    @Override
+    public void onEntitiesLoad(FootprintStore store, Chunk chunk, List<Entity> entities) {
+        // Virtual footprints are never saved with the chunk, nothing to clean up
+    }
+
+    @Override
+    public int getLiveEntityCount() {
+        return materializedCount;
+    }
+
+    @Override
+    public String getMode() {
+        return MODE;
+    }
+
+    private void markVisible(int slot) {
+        seenPass[slot] = pass;
+        if (materializedIndex[slot] >= 0) {
+            return;
+        }
+
+        FootprintStore store = currentStore;
+        // 청크 저장 데이터에 남기지 않음
+        BlockDisplay arrow = FootprintDisplays.spawnArrow(currentWorld,
+                store.getX(slot), store.getY(slot), store.getZ(slot), store.getYaw(slot), false, !visibility.isEnabled());
+        store.attachDisplay(slot, arrow);
+        visibility.onSpawned(store, slot, arrow);
+
+        if (materializedCount == materialized.length) {
+            materialized = Arrays.copyOf(materialized, materializedCount * 2);
+        }
+        materializedIndex[slot] = materializedCount;
+        materialized[materializedCount++] = slot;
+    }
+
+    private void dematerialize(FootprintStore store, int slot) {
+        BlockDisplay display = store.getDisplay(slot);
+        if (display != null && display.isValid()) {
+            display.remove();
+        }
+        store.detachDisplay(slot);
+
+        // Swap-remove from the materialized list
+        int index = materializedIndex[slot];
+        int lastSlot = materialized[--materializedCount];
+        materialized[index] = lastSlot;
+        materializedIndex[lastSlot] = index;
+        materializedIndex[slot] = -1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= seenPass.length) {
+            return;
+        }
+
+        int newLength = Math.max(capacity, seenPass.length * 2);
+        int oldLength = materializedIndex.length;
+        seenPass = Arrays.copyOf(seenPass, newLength);
+        materializedIndex = Arrays.copyOf(materializedIndex, newLength);
+        Arrays.fill(materializedIndex, oldLength, newLength, -1);
+    }
+}
@@ -0,0 +1,64 @@
+package com.jeonensu.dragoneggrace;
+
+import be.seeseemelk.mockbukkit.WorldMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * World binding of the {@link ArenaManager}: arenas claim their worlds by name, so a world that
+ * loads after the arena was created, or unloads, never falls back to the default arena.
+ */
+class ArenaManagerTest {
+
+    private TestServer server;
+    private ArenaManager manager;
+
+    @BeforeEach
+    void setUp() {
+        server = TestServer.start(0, true);
+        manager = server.plugin.getArenas();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void worldLoadedAfterTheArenaBelongsToIt() {
+        Arena arena = manager.createArena("event", List.of("event_world"), false);
+        assertNotNull(arena);
+        assertTrue(arena.getWorldIds().isEmpty());
+
+        WorldMock world = server.server.addSimpleWorld("event_world");
+        assertSame(arena, manager.arenaOf(world)); // 월드 로드 이벤트 전
+
+        manager.bindWorld(world);
+        assertSame(arena, manager.arenaOf(world));
+        assertEquals(Set.of(world.getUID()), arena.getWorldIds());
+        assertSame(manager.getDefaultArena(), manager.arenaOf(server.world));
+    }
+
+    @Test
+    void unloadedWorldKeepsItsArena() {
+        WorldMock world = server.server.addSimpleWorld("event_world");
+        Arena arena = manager.createArena("event", List.of("event_world"), false);
+        assertEquals(Set.of(world.getUID()), arena.getWorldIds());
+
+        manager.unbindWorld(world);
+        assertSame(arena, manager.getArena("event"));
+        assertTrue(arena.getWorldIds().isEmpty());
+        assertSame(arena, manager.arenaOf(world));
+        assertFalse(arena.isDefault());
+    }
+}
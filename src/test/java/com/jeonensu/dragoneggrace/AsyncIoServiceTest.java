@@ -0,0 +1,232 @@
+package com.jeonensu.dragoneggrace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The I/O service with two running and eight waiting tasks: a busy disk never runs work on the caller,
+ * a full overflow queue makes the caller wait and then rejects, and shutdown runs everything that
+ * was queued, in order for a serial queue.
+ */
+class AsyncIoServiceTest {
+
+    private static final int MAX_RUNNING_TASKS = 2;
+    private static final int MAX_WAITING_TASKS = 8;
+    private static final long MAX_WAIT_MILLIS = 100L;
+    // Exactly what fits: every thread busy and the overflow queue full
+    private static final int TASKS = MAX_RUNNING_TASKS + MAX_WAITING_TASKS;
+    private static final int LINES = 200;
+
+    @TempDir
+    Path directory;
+
+    private TestServer server;
+    private AsyncIoService io;
+
+    @BeforeEach
+    void setUp() {
+        server = TestServer.start(0, true);
+        server.plugin.getConfig().set("io.max-running-tasks", MAX_RUNNING_TASKS);
+        server.plugin.getConfig().set("io.max-waiting-tasks", MAX_WAITING_TASKS);
+        server.plugin.getConfig().set("io.max-wait-millis", MAX_WAIT_MILLIS);
+        io = new AsyncIoService(server.plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        io.shutdown();
+        server.stop();
+    }
+
+    @Test
+    void fullQueueNeverRunsOnTheCaller() throws InterruptedException {
+        CountDownLatch disk = new CountDownLatch(1);
+        AtomicInteger onCaller = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        Thread caller = Thread.currentThread();
+
+        for (int i = 0; i < TASKS; i++) {
+            io.execute(() -> {
+                if (Thread.currentThread() == caller) {
+                    onCaller.incrementAndGet();
+                }
+                await(disk);
+                finished.incrementAndGet();
+            });
+        }
+        assertEquals(0, onCaller.get(), "tasks ran on the caller while the disk was busy");
+        assertEquals(MAX_WAITING_TASKS, io.getOverflowCount());
+        assertEquals(TASKS, io.getQueuedCount());
+
+        disk.countDown();
+        io.shutdown();
+        assertEquals(TASKS, finished.get());
+        assertEquals(0, onCaller.get());
+        assertEquals(0, io.getCallerRunsCount());
+        assertEquals(0, io.getQueuedCount());
+    }
+
+    @Test
+    void shutdownWaitsForTasksStillInTheOverflowQueue() throws InterruptedException {
+        CountDownLatch disk = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        for (int i = 0; i < TASKS; i++) {
+            io.execute(() -> {
+                await(disk);
+                finished.incrementAndGet();
+            });
+        }
+
+        // The disk frees up only while shutdown is already waiting
+        Thread.ofVirtual().start(() -> {
+            sleep(100);
+            disk.countDown();
+        });
+        io.shutdown();
+        assertEquals(TASKS, finished.get());
+        assertEquals(TASKS, io.getCompletedCount());
+    }
+
+    @Test
+    void fullOverflowQueueRejectsAfterTheWait() throws InterruptedException {
+        CountDownLatch disk = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        Runnable write = () -> {
+            await(disk);
+            finished.incrementAndGet();
+        };
+        for (int i = 0; i < TASKS; i++) {
+            io.execute(write);
+        }
+
+        long start = System.nanoTime();
+        assertThrows(RejectedExecutionException.class, () -> io.execute(write));
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waited >= MAX_WAIT_MILLIS, "rejected after " + waited + " ms");
+        assertEquals(1, io.getRejectedCount());
+        assertEquals(TASKS, io.getQueuedCount(), "the bound holds");
+
+        disk.countDown();
+        io.shutdown();
+        assertEquals(TASKS, finished.get());
+        assertEquals(0, io.getCallerRunsCount());
+    }
+
+    @Test
+    void waitingCallerGetsThePlaceThatFreesUp() throws InterruptedException {
+        CountDownLatch disk = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        Runnable write = () -> {
+            await(disk);
+            finished.incrementAndGet();
+        };
+        for (int i = 0; i < TASKS; i++) {
+            io.execute(write);
+        }
+
+        // The disk catches up while the caller waits for a place
+        Thread.ofVirtual().start(() -> {
+            sleep(MAX_WAIT_MILLIS / 5);
+            disk.countDown();
+        });
+        io.execute(write);
+        assertEquals(0, io.getRejectedCount());
+
+        io.shutdown();
+        assertEquals(TASKS + 1, finished.get());
+    }
+
+    @Test
+    void serialQueueKeepsItsTasksWhenItsDrainIsRejected() throws InterruptedException {
+        CountDownLatch disk = new CountDownLatch(1);
+        for (int i = 0; i < TASKS; i++) {
+            io.execute(() -> await(disk));
+        }
+
+        AtomicInteger lines = new AtomicInteger();
+        AsyncIoService.SerialQueue queue = io.newSerialQueue("lines");
+        queue.execute(lines::incrementAndGet); // 서비스가 가득 차 거부되지만 대기열에 남음
+        assertEquals(1, io.getRejectedCount());
+        assertEquals(0, lines.get());
+
+        disk.countDown();
+        assertTrue(queue.close(10, TimeUnit.SECONDS));
+        assertEquals(1, lines.get());
+    }
+
+    @Test
+    void shutdownKeepsEverySerialWriteInOrder() throws IOException {
+        Path file = directory.resolve("lines.txt");
+        AsyncIoService.SerialQueue lines = io.newSerialQueue("lines");
+        // Other work keeps the service at its limit so the serial queue goes through the overflow queue
+        for (int i = 0; i < LINES; i++) {
+            int line = i;
+            io.execute(() -> sleep(1));
+            lines.execute(() -> append(file, line + "\n"));
+        }
+
+        assertTrue(lines.close(10, TimeUnit.SECONDS));
+        io.shutdown();
+        List<String> written = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(LINES, written.size());
+        for (int i = 0; i < LINES; i++) {
+            assertEquals(Integer.toString(i), written.get(i));
+        }
+    }
+
+    @Test
+    void onlyTasksAfterShutdownRunOnTheCaller() {
+        io.shutdown();
+        Thread caller = Thread.currentThread();
+        AtomicInteger onCaller = new AtomicInteger();
+        io.execute(() -> {
+            if (Thread.currentThread() == caller) {
+                onCaller.incrementAndGet();
+            }
+        });
+        assertEquals(1, onCaller.get());
+        assertEquals(1, io.getCallerRunsCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void append(Path file, String text) {
+        try {
+            Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Location;
+import org.bukkit.entity.BlockDisplay;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * The {@link TaskScheduler} contract on a single-threaded server: global tasks run on the ticks they
+ * were scheduled for, region and entity tasks run right away on the main thread and wait for the next
+ * tick from any other thread, and entity tasks are dropped once their entity is removed.
+ */
+class BukkitTaskSchedulerTest {
+
+    private TestServer server;
+    private TaskScheduler scheduler;
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        server = TestServer.start(1, true);
+        scheduler = new BukkitTaskScheduler(server.plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void globalTaskRunsOnTheNextTick() {
+        scheduler.runGlobal(runs::incrementAndGet);
+        assertEquals(0, runs.get());
+        server.server.getScheduler().performOneTick();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void delayedAndRepeatingTasksFollowTheirTicks() {
+        scheduler.runGlobalLater(runs::incrementAndGet, 5L);
+        server.server.getScheduler().performTicks(4L);
+        assertEquals(0, runs.get());
+        server.server.getScheduler().performOneTick();
+        assertEquals(1, runs.get());
+
+        AtomicInteger repeats = new AtomicInteger();
+        TaskScheduler.Task timer = scheduler.runGlobalTimer(repeats::incrementAndGet, 2L, 3L);
+        server.server.getScheduler().performTicks(2L);
+        assertEquals(1, repeats.get());
+        server.server.getScheduler().performTicks(3L);
+        assertEquals(2, repeats.get());
+        timer.cancel();
+        server.server.getScheduler().performTicks(10L);
+        assertEquals(2, repeats.get());
+    }
+
+    @Test
+    void regionAndEntityTasksRunRightAwayOnTheMainThread() {
+        Location location = new Location(server.world, 8, 64, 8);
+        scheduler.executeAt(location, runs::incrementAndGet);
+        scheduler.executeAt(server.world, 0, 0, runs::incrementAndGet);
+        scheduler.executeOn(server.players.get(0), runs::incrementAndGet);
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void regionTaskFromAnotherThreadWaitsForTheMainThread() throws InterruptedException {
+        Thread main = Thread.currentThread();
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        Thread other = Thread.ofVirtual().start(() -> scheduler.executeAt(new Location(server.world, 8, 64, 8),
+                () -> ranOn.set(Thread.currentThread())));
+        other.join();
+        assertNull(ranOn.get());
+
+        server.server.getScheduler().performOneTick();
+        assertSame(main, ranOn.get());
+    }
+
+    @Test
+    void entityTasksAreDroppedOnceTheEntityIsRemoved() {
+        BlockDisplay entity = server.world.spawn(new Location(server.world, 8, 64, 8), BlockDisplay.class, display -> { });
+        scheduler.runOnLater(entity, runs::incrementAndGet, 2L);
+        entity.remove();
+
+        scheduler.executeOn(entity, runs::incrementAndGet);
+        server.server.getScheduler().performTicks(5L);
+        assertEquals(0, runs.get());
+    }
+}
@@ -0,0 +1,201 @@
+package com.jeonensu.dragoneggrace;
+
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Routing of the {@link FoliaTaskScheduler} against stubbed region schedulers: work for a region
+ * the current thread owns runs inline, other work goes to the owning region or entity, and Folia's
+ * minimum delay of one tick is respected.
+ */
+class FoliaTaskSchedulerTest {
+
+    private TestServer server;
+    private FoliaTaskScheduler scheduler;
+
+    // What the stubbed schedulers were asked to do, and the tasks they hold
+    private final List<String> calls = new ArrayList<>();
+    private final List<Runnable> queued = new ArrayList<>();
+    private final List<Location> checkedLocations = new ArrayList<>();
+    private boolean owned;
+    private boolean entityRemoved;
+    private int ran;
+
+    @BeforeEach
+    void setUp() {
+        server = TestServer.start(0, true);
+        ScheduledTask scheduled = stub(ScheduledTask.class, (method, args) -> {
+            calls.add(method.getName());
+            return null;
+        });
+        GlobalRegionScheduler global = stub(GlobalRegionScheduler.class, (method, args) -> switch (method.getName()) {
+            case "execute" -> queued.add((Runnable) args[1]);
+            case "runDelayed" -> {
+                calls.add("global delayed " + args[2]);
+                yield scheduled;
+            }
+            case "runAtFixedRate" -> {
+                calls.add("global timer " + args[2] + " " + args[3]);
+                yield scheduled;
+            }
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+        RegionScheduler regions = stub(RegionScheduler.class, (method, args) -> {
+            if (!method.getName().equals("execute")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            if (args.length == 5) {
+                calls.add("region " + args[2] + "," + args[3]);
+                queued.add((Runnable) args[4]);
+            } else {
+                calls.add("region at location");
+                queued.add((Runnable) args[2]);
+            }
+            return null;
+        });
+        scheduler = new FoliaTaskScheduler(server.plugin, global, regions,
+                location -> {
+                    checkedLocations.add(location);
+                    return owned;
+                },
+                entity -> owned);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void chunkOfTheCurrentRegionRunsInline() {
+        owned = true;
+        scheduler.executeAt(server.world, 3, -2, this::count);
+
+        assertEquals(1, ran);
+        assertEquals(List.of(), calls);
+        // 청크의 첫 블록으로 소유 여부를 확인
+        assertEquals(48, checkedLocations.get(0).getBlockX());
+        assertEquals(-32, checkedLocations.get(0).getBlockZ());
+    }
+
+    @Test
+    void chunkOfAnotherRegionGoesToItsRegion() {
+        scheduler.executeAt(server.world, 3, -2, this::count);
+
+        assertEquals(0, ran);
+        assertEquals(List.of("region 3,-2"), calls);
+        runQueued();
+        assertEquals(1, ran);
+    }
+
+    @Test
+    void locationOfAnotherRegionGoesToItsRegion() {
+        scheduler.executeAt(new Location(server.world, 100.5, 64, -7.5), this::count);
+
+        assertEquals(0, ran);
+        assertEquals(List.of("region at location"), calls);
+        runQueued();
+        assertEquals(1, ran);
+    }
+
+    @Test
+    void entityWorkFollowsTheEntity() {
+        Entity entity = entity();
+        scheduler.executeOn(entity, this::count);
+        assertEquals(0, ran);
+        assertEquals(List.of("entity execute 1"), calls);
+        runQueued();
+        assertEquals(1, ran);
+
+        owned = true;
+        scheduler.executeOn(entity, this::count);
+        assertEquals(2, ran);
+        assertEquals(List.of("entity execute 1"), calls);
+    }
+
+    @Test
+    void globalDelaysAreAtLeastOneTick() {
+        scheduler.runGlobalLater(this::count, 0L).cancel();
+        scheduler.runGlobalTimer(this::count, 0L, 0L);
+        scheduler.runGlobal(this::count);
+
+        assertEquals(List.of("global delayed 1", "cancel", "global timer 1 1"), calls);
+        assertEquals(0, ran);
+        runQueued();
+        assertEquals(1, ran);
+    }
+
+    @Test
+    void delayedTaskOfARemovedEntityCancelsNothing() {
+        Entity entity = entity();
+        scheduler.runOnLater(entity, this::count, 5L).cancel();
+        assertEquals(List.of("entity delayed 5", "cancel"), calls);
+
+        entityRemoved = true;
+        scheduler.runOnLater(entity, this::count, 0L).cancel();
+        assertEquals(List.of("entity delayed 5", "cancel", "entity delayed 1"), calls);
+    }
+
+    private void count() {
+        ran++;
+    }
+
+    private void runQueued() {
+        List<Runnable> tasks = new ArrayList<>(queued);
+        queued.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private Entity entity() {
+        ScheduledTask scheduled = stub(ScheduledTask.class, (method, args) -> {
+            calls.add(method.getName());
+            return null;
+        });
+        EntityScheduler entityScheduler = stub(EntityScheduler.class, (method, args) -> switch (method.getName()) {
+            case "execute" -> {
+                calls.add("entity execute " + args[3]);
+                queued.add((Runnable) args[1]);
+                yield true;
+            }
+            case "runDelayed" -> {
+                calls.add("entity delayed " + args[3]);
+                yield entityRemoved ? null : scheduled;
+            }
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+        return stub(Entity.class, (method, args) -> {
+            if (!method.getName().equals("getScheduler")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            return entityScheduler;
+        });
+    }
+
+    private static <T> T stub(Class<T> type, BiFunction<Method, Object[], Object> handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + " stub";
+                };
+            }
+            return handler.apply(method, args);
+        }));
+    }
+}
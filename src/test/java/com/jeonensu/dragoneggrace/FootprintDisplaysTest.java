@@ -0,0 +1,110 @@
+package com.jeonensu.dragoneggrace;
+
+import com.sun.management.ThreadMXBean;
+import org.bukkit.Color;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Display;
+import org.bukkit.util.Transformation;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The shared arrow templates of {@link FootprintDisplays}: the yaw table turns the arrow towards the
+ * movement direction, and spawning an arrow allocates nothing beyond what the entity itself costs.
+ */
+class FootprintDisplaysTest {
+
+    private static final int SPAWNS = 10_000;
+    // Old pipeline: BlockData, Transformation with its vectors and rotations, Brightness, two Locations
+    private static final long MAX_EXTRA_BYTES_PER_SPAWN = 32;
+
+    private TestServer server;
+
+    @BeforeEach
+    void setUp() {
+        server = TestServer.start(0, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void everyStepHasItsOwnRotation() {
+        for (int step = 1; step < FootprintDisplays.YAW_STEPS; step++) {
+            assertNotEquals(FootprintDisplays.rotation(0).getLeftRotation(), FootprintDisplays.rotation(step).getLeftRotation(),
+                    "step " + step);
+        }
+    }
+
+    @Test
+    void arrowPointsInTheYawDirection() {
+        // Minecraft yaw: 0 south (+Z), 90 west (-X), 180 north (-Z), -90 east (+X)
+        assertPointsTo(0f, 0f, 1f);
+        assertPointsTo(90f, -1f, 0f);
+        assertPointsTo(180f, 0f, -1f);
+        assertPointsTo(-90f, 1f, 0f);
+    }
+
+    @Test
+    void spawningAllocatesNothingBeyondTheEntity() {
+        World world = server.world;
+
+        // The same entity with the same properties, set from values prepared outside the loop
+        BlockData block = Material.PURPLE_CONCRETE.createBlockData();
+        Transformation rotation = FootprintDisplays.rotation(FootprintDisplays.yawStep(45f));
+        Display.Brightness brightness = new Display.Brightness(15, 15);
+        Location location = new Location(world, 0.5, 64.1, 0.5);
+        Consumer<BlockDisplay> sameProperties = arrow -> {
+            arrow.setBlock(block);
+            arrow.setTransformation(rotation);
+            arrow.setGlowing(true);
+            arrow.setGlowColorOverride(Color.RED);
+            arrow.setBrightness(brightness);
+            arrow.setViewRange(FootprintDisplays.VIEW_RANGE);
+            arrow.setPersistent(true);
+            arrow.setVisibleByDefault(true);
+        };
+
+        long entityOnly = allocatedPerCall(() -> world.spawn(location, BlockDisplay.class, sameProperties).remove());
+        long pipeline = allocatedPerCall(() -> FootprintDisplays.spawnArrow(world, 0.5, 64.1, 0.5, 45f, true, true).remove());
+
+        assertTrue(pipeline - entityOnly <= MAX_EXTRA_BYTES_PER_SPAWN,
+                "spawnArrow allocates " + pipeline + " bytes per footprint, the entity alone " + entityOnly);
+    }
+
+    private static void assertPointsTo(float yaw, float x, float z) {
+        Vector3f forward = FootprintDisplays.rotation(FootprintDisplays.yawStep(yaw)).getLeftRotation()
+                .transform(new Vector3f(0f, 0f, 1f));
+        assertEquals(x, forward.x, 1e-5f, "x at yaw " + yaw);
+        assertEquals(0f, forward.y, 1e-5f, "y at yaw " + yaw);
+        assertEquals(z, forward.z, 1e-5f, "z at yaw " + yaw);
+    }
+
+    // Average bytes allocated by the current thread per call, after one warm-up round
+    private static long allocatedPerCall(Runnable action) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < SPAWNS; i++) {
+            action.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < SPAWNS; i++) {
+            action.run();
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / SPAWNS;
+    }
+}
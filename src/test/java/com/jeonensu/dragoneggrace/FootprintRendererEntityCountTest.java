@@ -0,0 +1,97 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.Location;
+import org.bukkit.entity.BlockDisplay;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts the footprint entities in the world with each renderer for the same long trail, with one
+ * player standing at its start: the entity renderer keeps one entity per footprint, the virtual
+ * renderer only the ones near the player.
+ */
+class FootprintRendererEntityCountTest {
+
+    private static final int FOOTPRINTS = 2000;
+    private static final double SPACING = 5.0;
+
+    private TestServer server;
+    private DragonEggTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        server = TestServer.start(1, true);
+        tracker = server.plugin.getArenas().getDefaultArena().getEggTracker();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void entityRendererKeepsOneEntityPerFootprint() {
+        FootprintRenderer renderer = new EntityFootprintRenderer(tracker.getFootprintVisibility(), server.plugin.getTaskScheduler());
+        FootprintStore store = addTrail(renderer);
+
+        assertEquals(FOOTPRINTS, countFootprintEntities());
+        assertEquals(FOOTPRINTS, renderer.getLiveEntityCount());
+
+        removeAll(renderer, store);
+        assertEquals(0, countFootprintEntities());
+    }
+
+    @Test
+    void virtualRendererOnlySpawnsFootprintsNearPlayers() {
+        FootprintRenderer renderer = new VirtualFootprintRenderer(tracker.getFootprintVisibility(), server.plugin.getArenas().getDefaultArena());
+        FootprintStore store = addTrail(renderer);
+        assertEquals(0, countFootprintEntities(), "nothing is spawned before the next pass");
+
+        renderer.tick(store);
+        int nearby = countNearPlayer(store);
+        assertEquals(nearby, countFootprintEntities());
+        assertEquals(nearby, renderer.getLiveEntityCount());
+
+        // The player walks away from the trail: its entities go, the footprints stay
+        server.players.get(0).teleport(new Location(server.world, 0, 64, 1000));
+        renderer.tick(store);
+        assertEquals(0, countFootprintEntities());
+        assertEquals(FOOTPRINTS, store.size());
+
+        removeAll(renderer, store);
+        assertEquals(0, countFootprintEntities());
+    }
+
+    // A straight trail along +X starting at the player, who stands at 0, 64, 0
+    private FootprintStore addTrail(FootprintRenderer renderer) {
+        FootprintStore store = new FootprintStore();
+        UUID owner = UUID.randomUUID();
+        for (int i = 0; i < FOOTPRINTS; i++) {
+            int slot = store.add(owner, server.world, i * SPACING, 64.1, 0.5, -90f, 0L);
+            renderer.onAdded(store, slot, server.world);
+        }
+        return store;
+    }
+
+    private void removeAll(FootprintRenderer renderer, FootprintStore store) {
+        store.forEach(slot -> {
+            renderer.onRemoved(store, slot);
+            store.remove(slot);
+        });
+    }
+
+    private int countNearPlayer(FootprintStore store) {
+        Location at = server.players.get(0).getLocation();
+        return store.forEachWithin(server.world, at.getX(), at.getY(), at.getZ(),
+                VirtualFootprintRenderer.MATERIALIZE_RANGE, slot -> { });
+    }
+
+    private int countFootprintEntities() {
+        return server.world.getEntitiesByClass(BlockDisplay.class).size();
+    }
+}
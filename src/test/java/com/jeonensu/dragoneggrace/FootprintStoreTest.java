@@ -0,0 +1,53 @@
+package com.jeonensu.dragoneggrace;
+
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Chunk keys of the {@link FootprintStore}: reading a world without footprints finds nothing and
+ * registers nothing, and the keys found for a chunk match the keys stored with its footprints.
+ */
+class FootprintStoreTest {
+
+    private TestServer server;
+    private World nether;
+    private FootprintStore store;
+
+    @BeforeEach
+    void setUp() {
+        server = TestServer.start(0, false);
+        nether = server.server.addSimpleWorld("world_nether");
+        store = new FootprintStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void readingAWorldWithoutFootprintsRegistersNothing() {
+        store.add(UUID.randomUUID(), server.world, 8.5, 64.0, 8.5, 0f, 0L);
+
+        assertEquals(0, store.forEachWithin(nether, 8.5, 64.0, 8.5, 32.0, slot -> { }));
+        store.forEachInChunk(nether, 0, 0, slot -> { });
+        assertEquals(FootprintStore.NO_CHUNK, store.findChunkKey(nether, 0, 0));
+    }
+
+    @Test
+    void foundKeyMatchesTheStoredKey() {
+        int slot = store.add(UUID.randomUUID(), server.world, -20.5, 64.0, 40.5, 0f, 0L);
+        int other = store.add(UUID.randomUUID(), nether, -20.5, 64.0, 40.5, 0f, 0L);
+
+        assertEquals(store.getChunkKey(slot), store.findChunkKey(server.world, -2, 2));
+        assertEquals(store.getChunkKey(other), store.findChunkKey(nether, -2, 2));
+        assertNotEquals(store.getChunkKey(slot), store.getChunkKey(other));
+    }
+}
@@ -0,0 +1,255 @@
+package com.jeonensu.dragoneggrace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Crash recovery of {@link GameStateJournal}: a journal left without {@code close()} is replayed in
+ * full, a copy taken while writes are in flight recovers a consistent prefix, and a torn, corrupted
+ * or garbage tail costs only the records it covers and is cut off the file.
+ * Records written together in one batch around a snapshot are all kept.
+ */
+class GameStateJournalTest {
+
+    private static final UUID GAME = UUID.randomUUID();
+    private static final UUID HOLDER = UUID.randomUUID();
+    // Below the snapshot interval, so the journal is never truncated during the test
+    private static final int CLOCK_RECORDS = 900;
+    // [length][type][payload][crc32]
+    private static final long GAME_STARTED_BYTES = 4 + 1 + 16 + 4;
+    private static final long CLOCK_BYTES = 4 + 1 + 8 + 4;
+
+    @TempDir
+    Path directory;
+
+    private TestServer server;
+    private Path journalFile;
+    // Every journal a test opens; closed after the test so no file stays open in the temp directory
+    private final List<GameStateJournal> journals = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        server = TestServer.start(0, true);
+        journalFile = directory.resolve("journal.bin");
+    }
+
+    @AfterEach
+    void tearDown() {
+        journals.forEach(GameStateJournal::close);
+        server.stop();
+    }
+
+    @Test
+    void journalWithoutCloseIsReplayedInFull() {
+        writeGameAndCrash();
+
+        GameStateJournal.State state = recover();
+        assertTrue(state.isActive());
+        assertEquals(GAME, state.getGameId());
+        assertEquals(1, state.getElapsedDays());
+        assertEquals(HOLDER, state.getHolderId());
+        assertEquals(24_100L, state.getElapsedTicks(), "last record");
+    }
+
+    @Test
+    void tornLastRecordIsCutOff() throws IOException {
+        long lastRecordStart = writeGameAndCrash();
+        long length = Files.size(journalFile);
+        try (RandomAccessFile file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+            file.setLength(lastRecordStart + (length - lastRecordStart) / 2);
+        }
+
+        GameStateJournal.State state = recover();
+        assertEquals(GAME, state.getGameId());
+        assertEquals(HOLDER, state.getHolderId());
+        assertEquals(24_000L, state.getElapsedTicks(), "state before the torn record");
+        assertEquals(lastRecordStart, Files.size(journalFile));
+    }
+
+    @Test
+    void corruptedLastRecordIsCutOff() throws IOException {
+        long lastRecordStart = writeGameAndCrash();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+            // First payload byte after [length][type]: the checksum no longer matches
+            file.seek(lastRecordStart + 5);
+            int value = file.read();
+            file.seek(lastRecordStart + 5);
+            file.write(value ^ 0xFF);
+        }
+
+        GameStateJournal.State state = recover();
+        assertEquals(HOLDER, state.getHolderId());
+        assertEquals(24_000L, state.getElapsedTicks(), "state before the corrupted record");
+        assertEquals(lastRecordStart, Files.size(journalFile));
+    }
+
+    @Test
+    void garbageAfterTheLastRecordIsCutOff() throws IOException {
+        writeGameAndCrash();
+        long length = Files.size(journalFile);
+        Files.write(journalFile, new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1, 2, 3},
+                StandardOpenOption.APPEND);
+
+        GameStateJournal.State state = recover();
+        assertEquals(24_100L, state.getElapsedTicks());
+        assertEquals(length, Files.size(journalFile));
+    }
+
+    @Test
+    void recordsAfterTheLastSnapshotAreReplayedOnTopOfIt() {
+        GameStateJournal journal = open(directory);
+        journal.recover().join();
+        journal.gameStarted(GAME);
+        journal.holderChanged(HOLDER);
+        journal.close(); // 스냅샷을 쓰고 기록을 비움
+
+        GameStateJournal next = open(directory);
+        next.recover().join();
+        next.holderChanged(null);
+        next.clock(500L);
+        next.flush().join(); // 닫지 않고 종료
+
+        GameStateJournal.State state = recover();
+        assertTrue(state.isActive());
+        assertEquals(GAME, state.getGameId());
+        assertNull(state.getHolderId());
+        assertEquals(500L, state.getElapsedTicks());
+    }
+
+    @Test
+    void burstAcrossASnapshotKeepsEveryRecord() {
+        GameStateJournal journal = open(directory);
+        journal.recover().join();
+        journal.gameStarted(GAME);
+
+        // The disk is busy: more records than one snapshot interval wait in the queue together
+        CountDownLatch disk = new CountDownLatch(1);
+        while (server.plugin.getIo().offer(() -> await(disk))) {
+        }
+        for (long tick = 1; tick <= 2500; tick++) {
+            journal.clock(tick);
+        }
+        journal.holderChanged(HOLDER);
+        disk.countDown();
+        journal.flush().join();
+
+        GameStateJournal.State state = recover();
+        assertEquals(GAME, state.getGameId());
+        assertEquals(HOLDER, state.getHolderId());
+        assertEquals(2500L, state.getElapsedTicks());
+    }
+
+    @Test
+    void crashWhileWritesAreInFlightRecoversAConsistentPrefix() throws Exception {
+        GameStateJournal journal = open(directory);
+        journal.recover().join();
+        journal.gameStarted(GAME);
+
+        // Copies of journal.bin taken while records are still being appended and written:
+        // each copy is what a kill at that moment would leave on disk
+        List<Path> crashes = new ArrayList<>();
+        AtomicBoolean appending = new AtomicBoolean(true);
+        Thread copier = Thread.ofVirtual().start(() -> {
+            for (int i = 0; appending.get(); i++) {
+                Path crash = directory.resolve("crash-" + i);
+                try {
+                    Files.createDirectories(crash);
+                    Files.copy(journalFile, crash.resolve("journal.bin"));
+                    crashes.add(crash);
+                } catch (IOException e) {
+                    // 아직 파일이 없음
+                }
+            }
+        });
+        for (long tick = 1; tick <= CLOCK_RECORDS; tick++) {
+            journal.clock(tick);
+            if (tick % 10 == 0) {
+                Thread.sleep(1);
+            }
+        }
+        appending.set(false);
+        copier.join();
+        assertFalse(crashes.isEmpty());
+
+        for (Path crash : crashes) {
+            GameStateJournal.State state = open(crash).recover().join();
+            long length = Files.size(crash.resolve("journal.bin"));
+            if (!state.isActive()) {
+                assertEquals(0L, length, crash + ": only a torn start record can be cut off to nothing");
+                continue;
+            }
+            // Every record up to the recovered clock is kept, everything after it is cut off
+            assertEquals(GAME, state.getGameId());
+            assertEquals(GAME_STARTED_BYTES + state.getElapsedTicks() * CLOCK_BYTES, length, crash.toString());
+        }
+    }
+
+    @Test
+    void endedGameRecoversInactive() {
+        GameStateJournal journal = open(directory);
+        journal.recover().join();
+        journal.gameStarted(GAME);
+        journal.clock(100L);
+        journal.gameEnded();
+        journal.flush().join();
+
+        GameStateJournal.State state = recover();
+        assertFalse(state.isActive());
+        assertNull(state.getGameId());
+        assertEquals(0L, state.getElapsedTicks());
+    }
+
+    /**
+     * Writes a game into the journal and leaves it like a crash would, without a final snapshot.
+     *
+     * @return The file offset of the last record.
+     */
+    private long writeGameAndCrash() {
+        GameStateJournal journal = open(directory);
+        journal.recover().join();
+        journal.gameStarted(GAME);
+        journal.holderChanged(HOLDER);
+        journal.dayElapsed(1, 24_000L);
+        journal.flush().join();
+        long lastRecordStart = journalFile.toFile().length();
+        journal.clock(24_100L);
+        journal.flush().join();
+        return lastRecordStart;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private GameStateJournal.State recover() {
+        return open(directory).recover().join();
+    }
+
+    private GameStateJournal open(Path directory) {
+        GameStateJournal journal = new GameStateJournal(server.plugin, directory.toFile(), "test");
+        journals.add(journal);
+        return journal;
+    }
+}
@@ -0,0 +1,212 @@
+package com.jeonensu.dragoneggrace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Plays whole races on the {@link RaceStateMachine} without a server.
+ * <p>
+ * A seeded random model moves the egg between players once per tracking pass (20 ticks), lets the
+ * world's day/night cycle run from time 0 and advances the game clock at every milestone, with an
+ * occasional simulated restart. Each game is recorded to a {@link RaceEventLog} and replayed into a
+ * fresh machine; both runs must give the same {@link Outcome} and the outcome must satisfy the race
+ * invariants, otherwise an {@link IllegalStateException} is thrown.
+ * <p>
+ * The benchmark module shades this class from the plugin's test jar.
+ * Usage, from the benchmarks directory after {@code mvn install} in the project root and {@code mvn package}:
+ * <pre>
+ * java -cp target/benchmarks.jar com.jeonensu.dragoneggrace.RaceSimulator [games] [seed]
+ * java -cp target/benchmarks.jar com.jeonensu.dragoneggrace.RaceSimulator replay &lt;file.events&gt;
+ * </pre>
+ * The second form replays a log saved by the plugin with {@code debug.record-race-events}.
+ */
+public final class RaceSimulator {
+
+    static final long GAME_DURATION = RaceStateMachine.TICKS_PER_DAY * 100L;
+    static final int TICKS_PER_PASS = (int) DragonEggTracker.FULL_PASS_INTERVAL_TICKS;
+    static final int PLAYERS = 16;
+
+    // Chances per tracking pass
+    private static final double PICKUP_CHANCE = 0.01;
+    private static final double LOSS_CHANCE = 0.002;
+    private static final double HAND_OVER_CHANCE = 0.001;
+    private static final double RESTART_CHANCE = 0.00001;
+
+    /**
+     * What a listener saw during one game.
+     */
+    public record Outcome(long pickups, long losses, long holderChanges, long nights, int daysAnnounced,
+                   int lastDaysLeft, int endings, UUID winner) {
+    }
+
+    /**
+     * Counts the transitions of one machine.
+     */
+    private static final class Counter implements RaceStateMachine.Listener {
+        long pickups;
+        long losses;
+        long holderChanges;
+        long nights;
+        int daysAnnounced;
+        int lastDaysLeft = -1;
+        int endings;
+        UUID winner;
+
+        @Override
+        public void onEggPickedUp(UUID playerId) {
+            pickups++;
+        }
+
+        @Override
+        public void onEggLost(UUID playerId) {
+            losses++;
+        }
+
+        @Override
+        public void onHolderChanged(UUID previousId, UUID holderId) {
+            holderChanges++;
+        }
+
+        @Override
+        public void onNightStarted() {
+            nights++;
+        }
+
+        @Override
+        public void onDayElapsed(int daysLeft) {
+            daysAnnounced++;
+            lastDaysLeft = daysLeft;
+        }
+
+        @Override
+        public void onGameEnded(UUID holderId) {
+            endings++;
+            winner = holderId;
+        }
+
+        Outcome toOutcome() {
+            return new Outcome(pickups, losses, holderChanges, nights, daysAnnounced, lastDaysLeft, endings, winner);
+        }
+    }
+
+    private RaceSimulator() {
+    }
+
+    /**
+     * Plays one full game.
+     *
+     * @param seed Seed of the random model; the same seed always plays the same game.
+     * @param recorder Receives the machine's inputs, or null.
+     * @return What happened.
+     */
+    static Outcome simulate(long seed, RaceEventLog recorder) {
+        SplittableRandom random = new SplittableRandom(seed);
+        UUID[] players = new UUID[PLAYERS];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new UUID(seed, i + 1);
+        }
+
+        Counter counter = new Counter();
+        RaceStateMachine race = new RaceStateMachine(GAME_DURATION, counter);
+        race.setRecorder(recorder);
+        race.start(0L, null);
+
+        UUID holder = null;
+        for (long tick = 0; ; tick += TICKS_PER_PASS) {
+            // Game clock milestone
+            if (tick >= race.getNextMilestone()) {
+                race.advanceTo(tick);
+                if (!race.isRunning()) {
+                    break;
+                }
+            }
+
+            // Server restart: the game resumes with the holder saved in the journal
+            if (random.nextDouble() < RESTART_CHANCE) {
+                race.start(tick, race.getHolderId());
+            }
+
+            // Tracking pass
+            double roll = random.nextDouble();
+            if (holder == null) {
+                if (roll < PICKUP_CHANCE) {
+                    holder = players[random.nextInt(players.length)];
+                }
+            } else if (roll < LOSS_CHANCE) {
+                holder = null;
+            } else if (roll < LOSS_CHANCE + HAND_OVER_CHANCE) {
+                holder = players[random.nextInt(players.length)];
+            }
+            race.observeHolder(tick, holder);
+
+            long time = tick % RaceStateMachine.TICKS_PER_DAY;
+            race.observeNight(tick, time >= 13000 && time <= 23000);
+        }
+        return counter.toOutcome();
+    }
+
+    /**
+     * Replays a recorded game into a fresh machine.
+     */
+    static Outcome replay(RaceEventLog log) {
+        Counter counter = new Counter();
+        log.replay(new RaceStateMachine(GAME_DURATION, counter));
+        return counter.toOutcome();
+    }
+
+    /**
+     * Throws if a finished game broke one of the race's rules.
+     */
+    static void check(Outcome outcome) {
+        int days = (int) (GAME_DURATION / RaceStateMachine.TICKS_PER_DAY);
+        if (outcome.endings() != 1) {
+            throw new IllegalStateException("Game ended " + outcome.endings() + " times: " + outcome);
+        }
+        if (outcome.daysAnnounced() != days - 1 || outcome.lastDaysLeft() != 1) {
+            throw new IllegalStateException("Day countdown is off: " + outcome);
+        }
+        // A holder who lost the egg while the server was down is dropped silently on restart,
+        // so there can be more pickups than losses, but never fewer
+        long held = outcome.pickups() - outcome.losses();
+        if (held < 0 || (outcome.winner() != null && held < 1)) {
+            throw new IllegalStateException("Pickups and losses don't match the winner: " + outcome);
+        }
+        if (outcome.nights() < days - 1) {
+            throw new IllegalStateException("Missed nights: " + outcome);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("replay")) {
+            RaceEventLog log;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[1])))) {
+                log = RaceEventLog.read(in);
+            }
+            System.out.println(log.size() + " events: " + replay(log));
+            return;
+        }
+
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        RaceEventLog log = new RaceEventLog();
+        long events = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            log.clear();
+            Outcome played = simulate(seed + i, log);
+            Outcome replayed = replay(log);
+            if (!played.equals(replayed)) {
+                throw new IllegalStateException("Replay of seed " + (seed + i) + " differs: " + played + " / " + replayed);
+            }
+            check(played);
+            events += log.size();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d ticks, %d events in %.2f s (%.0f ticks/s)%n",
+                games, games * GAME_DURATION, events, seconds, games * GAME_DURATION / seconds);
+    }
+}
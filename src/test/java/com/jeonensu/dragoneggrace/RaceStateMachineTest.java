@@ -0,0 +1,156 @@
+package com.jeonensu.dragoneggrace;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Rules of the {@link RaceStateMachine}: seeded games replay from their {@link RaceEventLog} to the
+ * same outcome, a holder saved before a restart is adopted silently, lag announces only the latest
+ * day, and the game ends exactly once.
+ */
+class RaceStateMachineTest {
+
+    private static final long DURATION = RaceSimulator.GAME_DURATION;
+    private static final int DAY = RaceStateMachine.TICKS_PER_DAY;
+
+    private static final UUID ALICE = new UUID(0L, 1L);
+    private static final UUID BOB = new UUID(0L, 2L);
+
+    private final List<String> transitions = new ArrayList<>();
+    private final RaceStateMachine race = new RaceStateMachine(DURATION, new RaceStateMachine.Listener() {
+        @Override
+        public void onEggPickedUp(UUID playerId) {
+            transitions.add("picked up " + playerId);
+        }
+
+        @Override
+        public void onEggLost(UUID playerId) {
+            transitions.add("lost " + playerId);
+        }
+
+        @Override
+        public void onHolderChanged(UUID previousId, UUID holderId) {
+            transitions.add("changed " + previousId + " -> " + holderId);
+        }
+
+        @Override
+        public void onNightStarted() {
+            transitions.add("night");
+        }
+
+        @Override
+        public void onDayElapsed(int daysLeft) {
+            transitions.add("day " + daysLeft);
+        }
+
+        @Override
+        public void onGameEnded(UUID holderId) {
+            transitions.add("ended " + holderId);
+        }
+    });
+
+    @Test
+    void seededGamesReplayToTheSameOutcome() throws IOException {
+        RaceEventLog log = new RaceEventLog();
+        for (long seed = 1; seed <= 20; seed++) {
+            log.clear();
+            RaceSimulator.Outcome played = RaceSimulator.simulate(seed, log);
+            RaceSimulator.check(played);
+            assertEquals(played, RaceSimulator.simulate(seed, null), "seed " + seed);
+            assertEquals(played, RaceSimulator.replay(log), "seed " + seed);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            log.write(new DataOutputStream(bytes));
+            RaceEventLog read = RaceEventLog.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(log.size(), read.size());
+            assertEquals(played, RaceSimulator.replay(read), "seed " + seed);
+        }
+    }
+
+    @Test
+    void restoredHolderIsAdoptedSilently() {
+        race.start(DAY * 10L, ALICE);
+        race.observeHolder(DAY * 10L, ALICE);
+
+        assertEquals(List.of(), transitions);
+        assertEquals(ALICE, race.getHolderId());
+
+        race.observeHolder(DAY * 10L + 20, null);
+        assertEquals(List.of("lost " + ALICE, "changed " + ALICE + " -> null"), transitions);
+    }
+
+    @Test
+    void restoredHolderWhoLostTheEggIsDroppedWithoutALoss() {
+        race.start(DAY * 10L, ALICE);
+        race.observeHolder(DAY * 10L, BOB);
+
+        assertEquals(List.of("picked up " + BOB, "changed null -> " + BOB), transitions);
+        assertEquals(BOB, race.getHolderId());
+    }
+
+    @Test
+    void lagAnnouncesOnlyTheLatestDay() {
+        race.start(0L, null);
+        race.advanceTo(DAY * 3L + DAY / 2);
+
+        assertEquals(List.of("day 97"), transitions);
+        assertEquals(DAY * 4L, race.getNextMilestone());
+
+        // 시계가 뒤로 가도 다시 알리지 않음
+        race.advanceTo(DAY);
+        race.advanceTo(DAY * 3L + DAY / 2 + 20);
+        assertEquals(List.of("day 97"), transitions);
+    }
+
+    @Test
+    void resumedGameDoesNotAnnounceTheCurrentDayAgain() {
+        race.start(DAY * 5L + 100, null);
+        race.advanceTo(DAY * 5L + 200);
+        race.advanceTo(DAY * 6L);
+
+        assertEquals(List.of("day 94"), transitions);
+    }
+
+    @Test
+    void gameEndsOnceWithTheHolder() {
+        race.start(DURATION - DAY / 2, null);
+        race.observeHolder(DURATION - DAY / 2, ALICE);
+        transitions.clear();
+
+        race.advanceTo(DURATION + 1000);
+        assertEquals(List.of("ended " + ALICE), transitions);
+        assertFalse(race.isRunning());
+        assertEquals(0, race.getRemainingDays());
+
+        // 게임이 끝난 뒤의 입력은 무시
+        race.advanceTo(DURATION + 2000);
+        race.observeHolder(DURATION + 2000, BOB);
+        assertEquals(List.of("ended " + ALICE), transitions);
+        assertEquals(ALICE, race.getHolderId());
+    }
+
+    @Test
+    void stoppedGameHasNoWinner() {
+        race.start(0L, null);
+        race.observeHolder(20L, ALICE);
+        race.stop(40L);
+        transitions.clear();
+
+        race.advanceTo(DURATION);
+        assertEquals(List.of(), transitions);
+        assertNull(race.getHolderId());
+        assertFalse(race.isRunning());
+    }
+}
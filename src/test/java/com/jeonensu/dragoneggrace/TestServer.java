@@ -0,0 +1,47 @@
+package com.jeonensu.dragoneggrace;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.WorldMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mock server shared by the tests: one overworld in daytime, a number of online players spread
+ * over it, and optionally the plugin itself.
+ */
+final class TestServer {
+
+    final ServerMock server;
+    final WorldMock world;
+    final List<PlayerMock> players = new ArrayList<>();
+    DragonEggRacePlugin plugin;
+
+    private TestServer(int playerCount, boolean loadPlugin) {
+        server = MockBukkit.mock();
+        world = server.addSimpleWorld("world");
+        world.setTime(1000L); // 낮 (밤에는 발자국을 만들지 않음)
+
+        for (int i = 0; i < playerCount; i++) {
+            PlayerMock player = server.addPlayer();
+            // Players stand 16 blocks apart so they don't share footprint chunks
+            player.teleport(new Location(world, (i % 32) * 16.5, 64, (i / 32) * 16.5));
+            players.add(player);
+        }
+
+        if (loadPlugin) {
+            plugin = MockBukkit.load(DragonEggRacePlugin.class);
+        }
+    }
+
+    static TestServer start(int playerCount, boolean loadPlugin) {
+        return new TestServer(playerCount, loadPlugin);
+    }
+
+    void stop() {
+        MockBukkit.unmock();
+    }
+}